@@ -0,0 +1,404 @@
+package com.ashlikun.vlayout.benchmark;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+import com.ashlikun.vlayout.LayoutHelper;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+import com.ashlikun.vlayout.layout.ColumnLayoutHelper;
+import com.ashlikun.vlayout.layout.GridLayoutHelper;
+import com.ashlikun.vlayout.layout.LinearLayoutHelper;
+import com.ashlikun.vlayout.layout.OnePlusNLayoutHelper;
+import com.ashlikun.vlayout.layout.SingleLayoutHelper;
+import com.ashlikun.vlayout.layout.StaggeredGridLayoutHelper;
+import com.ashlikun.vlayout.layout.StickyLayoutHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 回放线上采集的滚动轨迹，统计每一帧的布局耗时、创建/绑定/回收的数量和缓存池未命中，用真实的页面结构比较引擎改动前后的差异。
+ * <p>
+ * 页面描述每行一个section：{@code 类型 数量 高度 [列数]}，类型为linear、grid、staggered、column、onePlusN、sticky、single，
+ * 高度单位为像素，staggered按位置在高度的1到2倍之间变化，sticky和single只有一项，数量必须为1。
+ * <p>
+ * 轨迹每行一个事件，{@code #}开头的行忽略：
+ * <pre>
+ * S dy                       一帧滚动dy像素
+ * I section index count      插入
+ * R section index count      删除
+ * C section index count      修改
+ * </pre>
+ * 修改事件在下一帧的布局中生效。LayoutManager在attach后才能拿到RecyclerView，回放前由调用方把{@link #getRecyclerView()}添加到窗口；
+ * 每一步都同步完成measure和layout，此类只能在主线程使用。
+ */
+public class ScrollTraceReplayer {
+
+    private final RecyclerView mRecyclerView;
+
+    private final VirtualLayoutManager mLayoutManager;
+
+    private final DelegateAdapter mDelegateAdapter;
+
+    private final List<TraceAdapter> mSections = new ArrayList<>();
+
+    private final int mWidth;
+
+    private final int mHeight;
+
+    private int mCreated;
+
+    private int mBound;
+
+    private int mRecycled;
+
+    private boolean mPendingLayout;
+
+    public ScrollTraceReplayer(@NonNull Context context, int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mRecyclerView = new RecyclerView(context);
+        mLayoutManager = new VirtualLayoutManager(context);
+        mRecyclerView.setLayoutManager(mLayoutManager);
+        // 只统计布局，不运行动画
+        mRecyclerView.setItemAnimator(null);
+        mRecyclerView.addRecyclerListener(new RecyclerView.RecyclerListener() {
+            @Override
+            public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+                mRecycled++;
+            }
+        });
+        mDelegateAdapter = new DelegateAdapter(mLayoutManager);
+        mRecyclerView.setAdapter(mDelegateAdapter);
+    }
+
+    /**
+     * 用于添加到窗口，以及在回放前调整缓存池、预取等配置
+     */
+    @NonNull
+    public RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    public void loadPage(@NonNull Reader page) throws IOException {
+        mSections.clear();
+        final BufferedReader reader = new BufferedReader(page);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String[] args = split(line);
+            if (args == null) {
+                continue;
+            }
+            if (args.length < 3) {
+                throw new IOException("Invalid section: " + line);
+            }
+            final int count = Integer.parseInt(args[1]);
+            if (count < 0 || (isSingleItemType(args[0]) && count != 1)) {
+                throw new IOException("Invalid section count: " + line);
+            }
+            final int height = Integer.parseInt(args[2]);
+            final int spanCount = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+            mSections.add(new TraceAdapter(args[0], count, height, spanCount, mSections.size()));
+        }
+        List<DelegateAdapter.Adapter> adapters = new ArrayList<>(mSections);
+        mDelegateAdapter.setAdapters(adapters);
+        mPendingLayout = true;
+    }
+
+    @NonNull
+    public ReplayReport replay(@NonNull Reader trace) throws IOException {
+        final ReplayReport report = new ReplayReport();
+        // 首次布局单独记录，不计入帧
+        layoutIfNeeded();
+        report.mInitialCreated = mCreated;
+        resetCounters();
+
+        final BufferedReader reader = new BufferedReader(trace);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String[] args = split(line);
+            if (args == null) {
+                continue;
+            }
+            switch (args[0]) {
+                case "S":
+                    runFrame(Integer.parseInt(args[1]), report);
+                    break;
+                case "I":
+                case "R":
+                case "C":
+                    mutate(args[0].charAt(0), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                            Integer.parseInt(args[3]));
+                    break;
+                default:
+                    throw new IOException("Unknown trace event: " + line);
+            }
+        }
+        return report;
+    }
+
+    private void runFrame(int dy, ReplayReport report) {
+        resetCounters();
+        final long start = System.nanoTime();
+        layoutIfNeeded();
+        if (dy != 0) {
+            mRecyclerView.scrollBy(0, dy);
+        }
+        final long elapsed = System.nanoTime() - start;
+        report.addFrame(elapsed, mCreated, mBound, mRecycled);
+    }
+
+    private void mutate(char type, int section, int index, int count) throws IOException {
+        final TraceAdapter adapter = mSections.get(section);
+        if (type != 'C' && isSingleItemType(adapter.mType)) {
+            throw new IOException("Section " + section + " (" + adapter.mType + ") must keep count 1");
+        }
+        switch (type) {
+            case 'I':
+                adapter.mCount += count;
+                adapter.notifyItemRangeInserted(index, count);
+                break;
+            case 'R':
+                count = Math.min(count, adapter.mCount - index);
+                if (count <= 0) {
+                    return;
+                }
+                adapter.mCount -= count;
+                adapter.notifyItemRangeRemoved(index, count);
+                break;
+            default:
+                adapter.notifyItemRangeChanged(index, count);
+                break;
+        }
+        mPendingLayout = true;
+    }
+
+    private void layoutIfNeeded() {
+        if (!mPendingLayout && !mRecyclerView.isLayoutRequested()) {
+            return;
+        }
+        mPendingLayout = false;
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(mWidth, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(mHeight, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, mWidth, mHeight);
+    }
+
+    private void resetCounters() {
+        mCreated = 0;
+        mBound = 0;
+        mRecycled = 0;
+    }
+
+    /**
+     * 这些LayoutHelper只布局一项，其他数量会被强制改为1，和适配器的数量不一致
+     */
+    private static boolean isSingleItemType(String type) {
+        return "sticky".equals(type) || "single".equals(type);
+    }
+
+    private static String[] split(String line) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        return line.split("\\s+");
+    }
+
+    private final class TraceAdapter extends DelegateAdapter.Adapter<RecyclerView.ViewHolder> {
+
+        private final String mType;
+
+        private final int mItemHeight;
+
+        private final int mSpanCount;
+
+        private final int mViewType;
+
+        private int mCount;
+
+        TraceAdapter(String type, int count, int itemHeight, int spanCount, int viewType) {
+            mType = type;
+            mCount = count;
+            mItemHeight = itemHeight;
+            mSpanCount = spanCount;
+            mViewType = viewType;
+        }
+
+        @Override
+        public LayoutHelper onCreateLayoutHelper() {
+            switch (mType) {
+                case "linear":
+                    return new LinearLayoutHelper();
+                case "grid":
+                    return new GridLayoutHelper(mSpanCount);
+                case "staggered":
+                    return new StaggeredGridLayoutHelper(mSpanCount);
+                case "column":
+                    return new ColumnLayoutHelper();
+                case "onePlusN":
+                    return new OnePlusNLayoutHelper();
+                case "sticky":
+                    return new StickyLayoutHelper();
+                case "single":
+                    return new SingleLayoutHelper();
+                default:
+                    throw new IllegalArgumentException("Unknown section type: " + mType);
+            }
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return mViewType;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            mCreated++;
+            final View view = new View(parent.getContext());
+            view.setLayoutParams(new VirtualLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mItemHeight));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            mBound++;
+            if ("staggered".equals(mType)) {
+                // 按位置确定高度，回放结果可重复
+                holder.itemView.getLayoutParams().height = mItemHeight + mItemHeight * (position * 7 % 5) / 4;
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return mCount;
+        }
+    }
+
+    /**
+     * 回放结果，每一帧的耗时和数量按顺序保存
+     */
+    public static final class ReplayReport {
+
+        private int mInitialCreated;
+
+        private int mFrameCount;
+
+        private long[] mFrameNanos = new long[256];
+
+        private int[] mCreated = new int[256];
+
+        private int[] mBound = new int[256];
+
+        private int[] mRecycled = new int[256];
+
+        void addFrame(long nanos, int created, int bound, int recycled) {
+            if (mFrameCount == mFrameNanos.length) {
+                final int capacity = mFrameCount * 2;
+                mFrameNanos = Arrays.copyOf(mFrameNanos, capacity);
+                mCreated = Arrays.copyOf(mCreated, capacity);
+                mBound = Arrays.copyOf(mBound, capacity);
+                mRecycled = Arrays.copyOf(mRecycled, capacity);
+            }
+            mFrameNanos[mFrameCount] = nanos;
+            mCreated[mFrameCount] = created;
+            mBound[mFrameCount] = bound;
+            mRecycled[mFrameCount] = recycled;
+            mFrameCount++;
+        }
+
+        public int getFrameCount() {
+            return mFrameCount;
+        }
+
+        public long getFrameNanos(int frame) {
+            return mFrameNanos[frame];
+        }
+
+        /**
+         * 首次布局之后创建ViewHolder说明缓存池未命中
+         */
+        public int getPoolMisses(int frame) {
+            return mCreated[frame];
+        }
+
+        public int getBound(int frame) {
+            return mBound[frame];
+        }
+
+        public int getRecycled(int frame) {
+            return mRecycled[frame];
+        }
+
+        /**
+         * @return 首次布局创建的数量，不计入未命中
+         */
+        public int getInitialCreated() {
+            return mInitialCreated;
+        }
+
+        /**
+         * @param percent 0到100
+         */
+        public long getFrameNanosPercentile(int percent) {
+            if (mFrameCount == 0) {
+                return 0;
+            }
+            final long[] sorted = Arrays.copyOf(mFrameNanos, mFrameCount);
+            Arrays.sort(sorted);
+            final int index = Math.min(mFrameCount - 1, (int) ((long) percent * mFrameCount / 100));
+            return sorted[index];
+        }
+
+        /**
+         * @return 首次布局和所有帧创建的总数
+         */
+        public int getTotalCreated() {
+            return mInitialCreated + getTotalPoolMisses();
+        }
+
+        public int getTotalPoolMisses() {
+            return sum(mCreated);
+        }
+
+        public int getTotalBound() {
+            return sum(mBound);
+        }
+
+        public int getTotalRecycled() {
+            return sum(mRecycled);
+        }
+
+        private int sum(int[] values) {
+            int total = 0;
+            for (int i = 0; i < mFrameCount; i++) {
+                total += values[i];
+            }
+            return total;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "frames=" + mFrameCount
+                    + " p50=" + getFrameNanosPercentile(50) / 1000 + "us"
+                    + " p90=" + getFrameNanosPercentile(90) / 1000 + "us"
+                    + " p99=" + getFrameNanosPercentile(99) / 1000 + "us"
+                    + " created=" + getTotalCreated()
+                    + " initialCreated=" + mInitialCreated
+                    + " poolMiss=" + getTotalPoolMisses()
+                    + " bound=" + getTotalBound()
+                    + " recycled=" + getTotalRecycled();
+        }
+    }
+}
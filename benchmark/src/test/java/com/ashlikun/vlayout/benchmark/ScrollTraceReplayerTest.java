@@ -0,0 +1,64 @@
+package com.ashlikun.vlayout.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 回放示例页面和轨迹，作为引擎改动前后对比的基准，-Dvlayout.printReport=true时输出统计
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ScrollTraceReplayerTest {
+
+    private ScrollTraceReplayer mReplayer;
+
+    @Before
+    public void setUp() {
+        mReplayer = new ScrollTraceReplayer(RuntimeEnvironment.getApplication(), 1080, 1920);
+        Robolectric.buildActivity(Activity.class).setup().get().setContentView(mReplayer.getRecyclerView());
+    }
+
+    @Test
+    public void replaySampleTrace() throws IOException {
+        mReplayer.loadPage(open("sample_page.txt"));
+        ScrollTraceReplayer.ReplayReport report = mReplayer.replay(open("sample_trace.txt"));
+        if (Boolean.getBoolean("vlayout.printReport")) {
+            System.out.println("ScrollTraceReplayer: " + report);
+        }
+
+        assertEquals(241, report.getFrameCount());
+        assertTrue(report.getInitialCreated() > 0);
+        assertEquals(report.getInitialCreated() + report.getTotalPoolMisses(), report.getTotalCreated());
+        assertTrue(report.getTotalBound() > 0);
+        assertTrue(report.getTotalRecycled() > 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectStickyWithMultipleItems() throws IOException {
+        mReplayer.loadPage(new StringReader("sticky 3 120\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectInsertIntoSingle() throws IOException {
+        mReplayer.loadPage(new StringReader("single 1 400\nlinear 20 100\n"));
+        mReplayer.replay(new StringReader("I 0 0 1\n"));
+    }
+
+    private Reader open(String name) {
+        return new InputStreamReader(getClass().getClassLoader().getResourceAsStream(name), StandardCharsets.UTF_8);
+    }
+}
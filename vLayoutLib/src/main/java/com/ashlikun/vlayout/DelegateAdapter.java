@@ -27,6 +27,8 @@ package com.ashlikun.vlayout;
 import static androidx.recyclerview.widget.RecyclerView.NO_ID;
 
 import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
@@ -34,11 +36,20 @@ import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.ashlikun.vlayout.extend.FlingStateListener;
+import com.ashlikun.vlayout.extend.LayoutSpacePolicy;
+import com.ashlikun.vlayout.extend.LayoutTracer;
+import com.ashlikun.vlayout.layout.LinearLayoutHelper;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -67,6 +78,118 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
 
     private long[] cantorReverse = new long[2];
 
+    /**
+     * 逻辑类型按（命名空间，itemType）分配，所有DelegateAdapter共用，只在主线程访问
+     */
+    private static final HashMap<Class<?>, SparseIntArray> sLogicalItemTypes = new HashMap<>();
+
+    private static int sNextLogicalItemType = 0;
+
+    /**
+     * 快速滑动结束后补全绑定时使用的payload
+     */
+    public static final Object PAYLOAD_FULL_BIND = new Object();
+
+    private static final List<Object> FULL_BIND_PAYLOADS = Collections.singletonList(PAYLOAD_FULL_BIND);
+
+    private boolean mFlinging = false;
+
+    /**
+     * 快速滑动时只做了轻量绑定的ViewHolder，不在布局中的（例如在RecyclerView的缓存中）保留到重新附加或回收
+     */
+    private final Set<RecyclerView.ViewHolder> mSkeletonHolders = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private boolean mFullBindScheduled = false;
+
+    /**
+     * 子适配器不提供内容版本时返回的值
+     */
+    public static final long NO_CONTENT_VERSION = Long.MIN_VALUE;
+
+    /**
+     * 完整绑定后记录的内容版本，版本相同时跳过重复绑定
+     */
+    private final HashMap<RecyclerView.ViewHolder, BoundContent> mBoundContents = new HashMap<>();
+
+    /**
+     * 距离可见区域多少屏以内的延迟section会被创建
+     */
+    private int mLazyLookahead = 2;
+
+    /**
+     * 还没有创建的延迟section数量
+     */
+    private int mPendingLazyCount = 0;
+
+    /**
+     * 提前加载下一页的基础距离，为可见区域的倍数
+     */
+    private float mLoadAheadScreens = 1.0f;
+
+    /**
+     * 按滚动速度额外提前的时间
+     */
+    private long mLoadAheadVelocityMs = 500;
+
+    /**
+     * 正在加载下一页的子适配器
+     */
+    private final HashSet<Adapter> mLoadingAdapters = new HashSet<>();
+
+    /**
+     * 上一次加载失败的子适配器，追加数据或调用{@link #retryLoadMore()}之前不再自动加载
+     */
+    private final HashSet<Adapter> mFailedAdapters = new HashSet<>();
+
+    /**
+     * 是否有可以分页的子适配器，没有时滚动不需要检查
+     */
+    private boolean mHasPageableSections = false;
+
+    private boolean mScrollCheckScheduled = false;
+
+    @Nullable
+    private RecyclerView mRecyclerView;
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (mPendingLazyCount > 0 || mHasPageableSections) {
+                scheduleScrollCheck();
+            }
+        }
+    };
+
+    private final Runnable mScrollCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScrollCheckScheduled = false;
+            materializeNearbySections();
+            dispatchLoadMore();
+        }
+    };
+
+    private final Runnable mFullBindRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFullBindScheduled = false;
+            if (!mFlinging) {
+                dispatchFullBind();
+            }
+        }
+    };
+
+    private final FlingStateListener mFlingStateListener = new FlingStateListener() {
+        @Override
+        public void onFlingStateChanged(boolean flinging) {
+            mFlinging = flinging;
+            // 回调在滚动或布局过程中，补全绑定延迟到下一帧
+            if (!flinging) {
+                scheduleFullBind();
+            }
+        }
+    };
+
     /**
      * 代理适配器合并多个子适配器，默认为线程不安全
      *
@@ -101,11 +224,15 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        final LayoutSpacePolicy policy = mLayoutManager.getLayoutSpacePolicy();
+        if (policy != null) {
+            policy.onViewHolderCreated();
+        }
 
-        if (mHasConsistItemType) {
+        if (mHasConsistItemType || viewType < 0) {
             Adapter adapter = mItemTypeAry.get(viewType);
             if (adapter != null) {
-                return adapter.onCreateViewHolder(parent, viewType);
+                return createSubViewHolder(adapter, parent, viewType, RecyclerView.Adapter.class);
             }
 
             return null;
@@ -123,7 +250,181 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
             return null;
         }
 
-        return adapter.onCreateViewHolder(parent, subItemType);
+        return createSubViewHolder(adapter, parent, subItemType, getLogicalNamespace(adapter));
+    }
+
+    /**
+     * @param namespace 逻辑类型的命名空间，创建后在itemView上记录逻辑类型
+     */
+    private RecyclerView.ViewHolder createSubViewHolder(Adapter adapter, ViewGroup parent, int viewType, Class<?> namespace) {
+        final RecyclerView.ViewHolder holder;
+        final LayoutTracer tracer = mLayoutManager.getLayoutTracer();
+        if (tracer == null) {
+            holder = adapter.onCreateViewHolder(parent, viewType);
+        } else {
+            tracer.beginAdapterSection(adapter, false);
+            try {
+                holder = adapter.onCreateViewHolder(parent, viewType);
+            } finally {
+                tracer.endSection();
+            }
+        }
+        if (holder != null) {
+            holder.itemView.setTag(R.id.tag_logical_item_type, obtainLogicalItemType(namespace, viewType));
+        }
+        return holder;
+    }
+
+    /**
+     * 把{@link #getItemViewType(int)}返回的类型换算为与适配器下标无关的逻辑类型：
+     * 不同DelegateAdapter中同一个子适配器类的同一个itemType得到相同的值，用于在多个列表之间共享缓存。
+     * hasConsistItemType和负数的保留类型按原值，命名空间与普通适配器相同。只在主线程调用
+     *
+     * @param viewType 当前的适配器类型，适配器下标变化后旧的类型不能再换算
+     * @return 找不到对应的子适配器时为{@link RecyclerView#INVALID_TYPE}
+     */
+    public int getLogicalItemType(int viewType) {
+        if (viewType == RecyclerView.INVALID_TYPE) {
+            return RecyclerView.INVALID_TYPE;
+        }
+        if (mHasConsistItemType || viewType < 0) {
+            return obtainLogicalItemType(RecyclerView.Adapter.class, viewType);
+        }
+        com.ashlikun.vlayout.Cantor.reverseCantor(viewType, cantorReverse);
+        Adapter adapter = findAdapterByIndex((int) cantorReverse[1]);
+        if (adapter == null) {
+            return RecyclerView.INVALID_TYPE;
+        }
+        return obtainLogicalItemType(getLogicalNamespace(adapter), (int) cantorReverse[0]);
+    }
+
+    /**
+     * 延迟section创建后由内部的适配器创建ViewHolder，按内部适配器的类区分
+     */
+    private static Class<?> getLogicalNamespace(Adapter adapter) {
+        if (adapter instanceof LazyAdapter && ((LazyAdapter) adapter).getAdapter() != null) {
+            return ((LazyAdapter) adapter).getAdapter().getClass();
+        }
+        return adapter.getClass();
+    }
+
+    /**
+     * @return 创建时记录的逻辑类型，不是由DelegateAdapter创建的为{@link RecyclerView#INVALID_TYPE}
+     */
+    public static int getLogicalItemType(@NonNull RecyclerView.ViewHolder holder) {
+        final Object type = holder.itemView.getTag(R.id.tag_logical_item_type);
+        return type instanceof Integer ? (Integer) type : RecyclerView.INVALID_TYPE;
+    }
+
+    /**
+     * 获取逻辑类型，不存在时分配
+     *
+     * @param namespace 子适配器的类；类型在所有适配器之间一致时为{@link RecyclerView.Adapter}
+     * @param itemType  命名空间内的类型
+     */
+    public static int obtainLogicalItemType(@NonNull Class<?> namespace, int itemType) {
+        SparseIntArray types = sLogicalItemTypes.get(namespace);
+        if (types == null) {
+            types = new SparseIntArray();
+            sLogicalItemTypes.put(namespace, types);
+        }
+        int logicalType = types.get(itemType, RecyclerView.INVALID_TYPE);
+        if (logicalType == RecyclerView.INVALID_TYPE) {
+            logicalType = sNextLogicalItemType++;
+            types.put(itemType, logicalType);
+        }
+        return logicalType;
+    }
+
+    /**
+     * 开启后快速滑动时子适配器先收到{@link Adapter#onSkeletonBindViewHolder}，
+     * 停止滑动或速度降到阈值以下时，对仍然在布局中的ViewHolder以{@link #PAYLOAD_FULL_BIND}统一补全绑定
+     *
+     * @param enabled           是否开启
+     * @param velocityThreshold 速度阈值，像素/秒
+     */
+    public void setFlingBindingEnabled(boolean enabled, float velocityThreshold) {
+        if (enabled) {
+            mLayoutManager.setFlingStateListener(mFlingStateListener, velocityThreshold);
+        } else {
+            mLayoutManager.setFlingStateListener(null, 0);
+            mFlinging = false;
+            dispatchFullBind();
+        }
+    }
+
+    private void dispatchFullBind() {
+        if (mSkeletonHolders.isEmpty()) {
+            return;
+        }
+        Iterator<RecyclerView.ViewHolder> it = mSkeletonHolders.iterator();
+        while (it.hasNext()) {
+            RecyclerView.ViewHolder holder = it.next();
+            if (holder.itemView.getParent() == null) {
+                // 缓存中的ViewHolder重新附加时不会重新绑定，保留到onViewAttachedToWindow
+                continue;
+            }
+            it.remove();
+            int position = holder.getLayoutPosition();
+            if (position < 0 || position >= mTotal) {
+                continue;
+            }
+            Pair<AdapterDataObserver, Adapter> pair = findAdapterByPosition(position);
+            if (pair == null) {
+                continue;
+            }
+            pair.second.onBindViewHolder(holder, position - pair.first.mStartPosition, FULL_BIND_PAYLOADS);
+            pair.second.onBindViewHolderWithOffset(holder, position - pair.first.mStartPosition, position, FULL_BIND_PAYLOADS);
+            saveBoundContent(holder, pair, position);
+        }
+    }
+
+    /**
+     * 附加过程在布局中，不能直接绑定，延迟到下一帧
+     */
+    private void scheduleFullBind() {
+        if (!mFullBindScheduled && mRecyclerView != null) {
+            mFullBindScheduled = true;
+            mRecyclerView.post(mFullBindRunnable);
+        }
+    }
+
+    /**
+     * holder当前绑定的内容和position处的内容版本是否一致，一致时不需要重新绑定
+     */
+    public boolean isContentUnchanged(RecyclerView.ViewHolder holder) {
+        final int position = holder.getLayoutPosition();
+        if (position < 0 || position >= mTotal) {
+            return false;
+        }
+        final Pair<AdapterDataObserver, Adapter> pair = findAdapterByPosition(position);
+        return pair != null && getItemViewType(position) == holder.getItemViewType()
+                && matchesBoundContent(holder, pair, position);
+    }
+
+    private boolean matchesBoundContent(RecyclerView.ViewHolder holder, Pair<AdapterDataObserver, Adapter> pair, int position) {
+        final BoundContent bound = mBoundContents.get(holder);
+        if (bound == null || bound.mAdapter != pair.second || bound.mPosition != position) {
+            return false;
+        }
+        final long version = pair.second.getItemContentVersion(position - pair.first.mStartPosition);
+        return version != NO_CONTENT_VERSION && version == bound.mVersion;
+    }
+
+    private void saveBoundContent(RecyclerView.ViewHolder holder, Pair<AdapterDataObserver, Adapter> pair, int position) {
+        final long version = pair.second.getItemContentVersion(position - pair.first.mStartPosition);
+        if (version == NO_CONTENT_VERSION) {
+            mBoundContents.remove(holder);
+            return;
+        }
+        BoundContent bound = mBoundContents.get(holder);
+        if (bound == null) {
+            bound = new BoundContent();
+            mBoundContents.put(holder, bound);
+        }
+        bound.mAdapter = pair.second;
+        bound.mPosition = position;
+        bound.mVersion = version;
     }
 
     @Override
@@ -132,8 +433,29 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
         if (pair == null) {
             return;
         }
-        pair.second.onBindViewHolder(holder, position - pair.first.mStartPosition);
-        pair.second.onBindViewHolderWithOffset(holder, position - pair.first.mStartPosition, position);
+        final LayoutTracer tracer = mLayoutManager.getLayoutTracer();
+        if (tracer != null) {
+            tracer.beginAdapterSection(pair.second, true);
+        }
+        try {
+            if (!mSkeletonHolders.contains(holder) && matchesBoundContent(holder, pair, position)) {
+                // 内容版本未变，保留之前的绑定结果
+                return;
+            }
+            mSkeletonHolders.remove(holder);
+            if (mFlinging && pair.second.onSkeletonBindViewHolder(holder, position - pair.first.mStartPosition)) {
+                mBoundContents.remove(holder);
+                mSkeletonHolders.add(holder);
+                return;
+            }
+            pair.second.onBindViewHolder(holder, position - pair.first.mStartPosition);
+            pair.second.onBindViewHolderWithOffset(holder, position - pair.first.mStartPosition, position);
+            saveBoundContent(holder, pair, position);
+        } finally {
+            if (tracer != null) {
+                tracer.endSection();
+            }
+        }
     }
 
     @Override
@@ -142,9 +464,33 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
         if (pair == null) {
             return;
         }
-        pair.second.onBindViewHolder(holder, position - pair.first.mStartPosition, payloads);
-        pair.second.onBindViewHolderWithOffset(holder, position - pair.first.mStartPosition, position, payloads);
-
+        final LayoutTracer tracer = mLayoutManager.getLayoutTracer();
+        if (tracer != null) {
+            tracer.beginAdapterSection(pair.second, true);
+        }
+        try {
+            if (payloads.isEmpty()) {
+                if (!mSkeletonHolders.contains(holder) && matchesBoundContent(holder, pair, position)) {
+                    // 内容版本未变，保留之前的绑定结果
+                    return;
+                }
+                mSkeletonHolders.remove(holder);
+                if (mFlinging && pair.second.onSkeletonBindViewHolder(holder, position - pair.first.mStartPosition)) {
+                    mBoundContents.remove(holder);
+                    mSkeletonHolders.add(holder);
+                    return;
+                }
+            }
+            pair.second.onBindViewHolder(holder, position - pair.first.mStartPosition, payloads);
+            pair.second.onBindViewHolderWithOffset(holder, position - pair.first.mStartPosition, position, payloads);
+            if (payloads.isEmpty()) {
+                saveBoundContent(holder, pair, position);
+            }
+        } finally {
+            if (tracer != null) {
+                tracer.endSection();
+            }
+        }
     }
 
     @Override
@@ -168,7 +514,10 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
         int subItemType = p.second.getItemViewType(position - p.first.mStartPosition);
 
         if (subItemType < 0) {
-            // 负整数，无效，仅返回
+            // 负数是保留的类型（例如LazyAdapter的占位视图），不参与组合，直接记录所属的子适配器
+            if (subItemType != RecyclerView.INVALID_TYPE) {
+                mItemTypeAry.put(subItemType, p.second);
+            }
             return subItemType;
         }
 
@@ -213,6 +562,9 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
     @Override
     public void onViewRecycled(RecyclerView.ViewHolder holder) {
         super.onViewRecycled(holder);
+        // 子适配器回收时可能清理了内容
+        mBoundContents.remove(holder);
+        mSkeletonHolders.remove(holder);
 
         int position = holder.getLayoutPosition();
         if (position >= 0) {
@@ -227,6 +579,9 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
     @Override
     public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
         super.onViewAttachedToWindow(holder);
+        if (!mFlinging && mSkeletonHolders.contains(holder)) {
+            scheduleFullBind();
+        }
         int position = holder.getLayoutPosition();
         if (position >= 0) {
             Pair<AdapterDataObserver, Adapter> pair = findAdapterByPosition(position);
@@ -272,7 +627,11 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
         mTotal = 0;
 
         Pair<AdapterDataObserver, Adapter> pair;
+        mPendingLazyCount = 0;
         for (Adapter adapter : adapters) {
+            if (adapter instanceof LazyAdapter && !((LazyAdapter) adapter).isMaterialized()) {
+                mPendingLazyCount++;
+            }
             // 每个适配器都有一个唯一的索引id
             AdapterDataObserver observer = new AdapterDataObserver(mTotal, mIndexGen == null ? mIndex++ : mIndexGen.incrementAndGet());
             adapter.registerAdapterDataObserver(observer);
@@ -291,6 +650,257 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
             super.setHasStableIds(hasStableIds);
         }
         super.setLayoutHelpers(helpers);
+        mFailedAdapters.retainAll(adapters);
+        updatePagingState();
+        scheduleScrollCheck();
+    }
+
+    /**
+     * 设置延迟section的预加载距离，距离可见区域screens屏以内的section会被创建。
+     * 屏数按当前可见的项目数量换算成位置
+     */
+    public void setLazySectionLookahead(int screens) {
+        mLazyLookahead = Math.max(0, screens);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(mScrollListener);
+        scheduleScrollCheck();
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(mScrollListener);
+        recyclerView.removeCallbacks(mScrollCheckRunnable);
+        mScrollCheckScheduled = false;
+        recyclerView.removeCallbacks(mFullBindRunnable);
+        mFullBindScheduled = false;
+        mRecyclerView = null;
+    }
+
+    /**
+     * 布局和滚动过程中不能通知数据变化，延迟到下一帧创建section和加载下一页
+     */
+    private void scheduleScrollCheck() {
+        if (!mScrollCheckScheduled && mRecyclerView != null && !mAdapters.isEmpty()) {
+            mScrollCheckScheduled = true;
+            mRecyclerView.post(mScrollCheckRunnable);
+        }
+    }
+
+    /**
+     * 设置提前加载下一页的距离：screens屏加上当前滚动速度在velocityMs内滚过的距离
+     */
+    public void setLoadAhead(float screens, long velocityMs) {
+        mLoadAheadScreens = Math.max(0, screens);
+        mLoadAheadVelocityMs = Math.max(0, velocityMs);
+    }
+
+    /**
+     * 可以分页的子适配器离末尾的预估距离小于阈值时调用{@link Adapter#onLoadMore}，同一个子适配器同时只有一个请求
+     */
+    private void dispatchLoadMore() {
+        final int first = mLayoutManager.findFirstVisibleItemPosition();
+        if (first < 0) {
+            return;
+        }
+        final float velocity = Math.max(0, mLayoutManager.getScrollVelocity());
+        final int threshold = (int) (mLayoutManager.getMainOrientationHelper().getTotalSpace() * mLoadAheadScreens
+                + velocity * mLoadAheadVelocityMs / 1000);
+        for (int i = 0; i < mAdapters.size(); i++) {
+            Pair<AdapterDataObserver, Adapter> pair = mAdapters.get(i);
+            final int start = pair.first.mStartPosition;
+            final int end = start + pair.second.getItemCount() - 1;
+            if (end < first) {
+                // 已经滚过的section不再加载
+                continue;
+            }
+            if (mLayoutManager.estimateDistanceToEnd(Math.max(start - 1, 0)) > threshold) {
+                // 之后的section离得更远
+                break;
+            }
+            final Adapter adapter = pair.second;
+            if (mLoadingAdapters.contains(adapter) || mFailedAdapters.contains(adapter) || !adapter.hasMorePages()) {
+                continue;
+            }
+            if (mLayoutManager.estimateDistanceToEnd(Math.max(end, start)) <= threshold) {
+                mLoadingAdapters.add(adapter);
+                adapter.onLoadMore(new PageRequest(this, adapter));
+            }
+        }
+    }
+
+    /**
+     * 重新允许加载失败的子适配器加载下一页，一般在用户点击重试时调用
+     */
+    public void retryLoadMore() {
+        mFailedAdapters.clear();
+        updatePagingState();
+        scheduleScrollCheck();
+    }
+
+    private void updatePagingState() {
+        boolean pageable = false;
+        for (int i = 0, size = mAdapters.size(); i < size && !pageable; i++) {
+            final Adapter adapter = mAdapters.get(i).second;
+            pageable = !mFailedAdapters.contains(adapter) && adapter.hasMorePages();
+        }
+        mHasPageableSections = pageable;
+    }
+
+    /**
+     * 子适配器追加或刷新了数据，之前失败的加载可以重新开始
+     */
+    private void onSectionDataChanged(int index) {
+        final Pair<AdapterDataObserver, Adapter> pair = mIndexAry.get(index);
+        if (pair != null) {
+            mFailedAdapters.remove(pair.second);
+        }
+        updatePagingState();
+    }
+
+    /**
+     * 一次加载下一页的请求，成功后调用{@link #finish()}，失败后调用{@link #fail()}，之后才会发起下一次请求
+     */
+    public static final class PageRequest {
+
+        private final DelegateAdapter mOwner;
+
+        private final Adapter mAdapter;
+
+        /**
+         * 发起请求时的数量，结束时比较判断是否追加了数据
+         */
+        private final int mItemCount;
+
+        private boolean mFinished = false;
+
+        PageRequest(DelegateAdapter owner, Adapter adapter) {
+            this.mOwner = owner;
+            this.mAdapter = adapter;
+            this.mItemCount = adapter.getItemCount();
+        }
+
+        /**
+         * 加载成功，在主线程调用，数据应该已经通过notifyItemRangeInserted追加
+         */
+        public void finish() {
+            if (mFinished) {
+                return;
+            }
+            mFinished = true;
+            mOwner.mLoadingAdapters.remove(mAdapter);
+            mOwner.updatePagingState();
+            if (mAdapter.getItemCount() > mItemCount) {
+                // 追加的内容可能仍然不够，重新检查
+                mOwner.scheduleScrollCheck();
+            }
+        }
+
+        /**
+         * 加载失败，在主线程调用。之后不再自动加载这个子适配器，直到它追加了数据或调用{@link DelegateAdapter#retryLoadMore()}
+         */
+        public void fail() {
+            if (mFinished) {
+                return;
+            }
+            mFinished = true;
+            mOwner.mLoadingAdapters.remove(mAdapter);
+            mOwner.mFailedAdapters.add(mAdapter);
+            mOwner.updatePagingState();
+        }
+
+        public boolean isFinished() {
+            return mFinished;
+        }
+    }
+
+    private void materializeNearbySections() {
+        if (mPendingLazyCount <= 0) {
+            return;
+        }
+        final int first = mLayoutManager.findFirstVisibleItemPosition();
+        final int last = mLayoutManager.findLastVisibleItemPosition();
+        final int windowStart;
+        final int windowEnd;
+        if (first < 0 || last < first) {
+            // 还没有可见的项目，从头开始创建
+            windowStart = 0;
+            windowEnd = mLazyLookahead;
+        } else {
+            final int screenItems = last - first + 1;
+            windowStart = first - screenItems * mLazyLookahead;
+            windowEnd = last + screenItems * mLazyLookahead;
+        }
+        for (int i = 0; i < mAdapters.size() && mPendingLazyCount > 0; i++) {
+            Pair<AdapterDataObserver, Adapter> pair = mAdapters.get(i);
+            final int start = pair.first.mStartPosition;
+            if (start > windowEnd) {
+                break;
+            }
+            final int end = start + Math.max(1, pair.second.getItemCount()) - 1;
+            if (end >= windowStart && pair.second instanceof LazyAdapter
+                    && !((LazyAdapter) pair.second).isMaterialized()) {
+                materializeSection(pair, i);
+            }
+        }
+    }
+
+    /**
+     * 立即创建延迟section，例如跳转到该section之前
+     */
+    public void materializeSection(@NonNull LazyAdapter lazyAdapter) {
+        for (int i = 0, size = mAdapters.size(); i < size; i++) {
+            Pair<AdapterDataObserver, Adapter> pair = mAdapters.get(i);
+            if (pair.second == lazyAdapter) {
+                if (!lazyAdapter.isMaterialized()) {
+                    materializeSection(pair, i);
+                }
+                return;
+            }
+        }
+    }
+
+    private void materializeSection(Pair<AdapterDataObserver, Adapter> pair, int idx) {
+        final LazyAdapter lazyAdapter = (LazyAdapter) pair.second;
+        final int oldCount = lazyAdapter.getItemCount();
+        lazyAdapter.materialize();
+        mPendingLazyCount--;
+
+        // 换一个索引，占位视图的类型不会和真正的类型混用
+        final AdapterDataObserver observer = pair.first;
+        mIndexAry.remove(observer.mIndex);
+        observer.mIndex = mIndexGen == null ? mIndex++ : mIndexGen.incrementAndGet();
+        mIndexAry.put(observer.mIndex, pair);
+
+        final int newCount = lazyAdapter.getItemCount();
+        LayoutHelper helper = lazyAdapter.onCreateLayoutHelper();
+        helper.setItemCount(newCount);
+        List<LayoutHelper> helpers = new LinkedList<>(getLayoutHelpers());
+        helpers.set(idx, helper);
+
+        mTotal = observer.mStartPosition + newCount;
+        for (int i = idx + 1; i < mAdapters.size(); i++) {
+            Pair<AdapterDataObserver, Adapter> next = mAdapters.get(i);
+            next.first.mStartPosition = mTotal;
+            mTotal += next.second.getItemCount();
+        }
+        super.setLayoutHelpers(helpers);
+
+        final int start = observer.mStartPosition;
+        final int changed = Math.min(oldCount, newCount);
+        if (changed > 0) {
+            notifyItemRangeChanged(start, changed);
+        }
+        if (newCount > oldCount) {
+            notifyItemRangeInserted(start + oldCount, newCount - oldCount);
+        } else if (oldCount > newCount) {
+            notifyItemRangeRemoved(start + newCount, oldCount - newCount);
+        }
     }
 
     /**
@@ -538,6 +1148,7 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
             if (!updateLayoutHelper()) {
                 return;
             }
+            onSectionDataChanged(mIndex);
             notifyDataSetChanged();
         }
 
@@ -554,6 +1165,7 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
             if (!updateLayoutHelper()) {
                 return;
             }
+            onSectionDataChanged(mIndex);
             notifyItemRangeInserted(mStartPosition + positionStart, itemCount);
         }
 
@@ -593,6 +1205,264 @@ public class DelegateAdapter extends VirtualLayoutAdapter<RecyclerView.ViewHolde
         protected void onBindViewHolderWithOffset(VH holder, int position, int offsetTotal, List<Object> payloads) {
             onBindViewHolderWithOffset(holder, position, offsetTotal);
         }
+
+        /**
+         * 快速滑动时的轻量绑定，只设置占位内容，不加载图片等耗时资源。
+         * 滑动停止后会以{@link DelegateAdapter#PAYLOAD_FULL_BIND}调用{@link #onBindViewHolder(RecyclerView.ViewHolder, int, List)}补全
+         *
+         * @return true表示已经轻量绑定，false表示不支持，按正常方式完整绑定
+         */
+        protected boolean onSkeletonBindViewHolder(VH holder, int position) {
+            return false;
+        }
+
+        /**
+         * 是否还有下一页，返回true时{@link DelegateAdapter}在接近末尾时调用{@link #onLoadMore(PageRequest)}
+         */
+        protected boolean hasMorePages() {
+            return false;
+        }
+
+        /**
+         * 加载下一页，一般是异步的。成功后追加数据并调用notifyItemRangeInserted，最后调用{@link PageRequest#finish()}；
+         * 失败时调用{@link PageRequest#fail()}，不会立即重试
+         */
+        protected void onLoadMore(@NonNull PageRequest request) {
+            request.finish();
+        }
+
+        /**
+         * 返回position处内容的版本或哈希，内容不变时版本不变。
+         * 刷新数据后版本和已绑定的一致时，{@link DelegateAdapter}跳过重新绑定，布局时也保留原来的测量结果
+         *
+         * @return 默认{@link DelegateAdapter#NO_CONTENT_VERSION}，表示每次都重新绑定
+         */
+        protected long getItemContentVersion(int position) {
+            return NO_CONTENT_VERSION;
+        }
+    }
+
+    /**
+     * 延迟创建的section，注册时只提供预估的数量，滚动到附近时才调用{@link #onCreateAdapter()}创建真正的适配器、数据和LayoutHelper。
+     * 创建之前显示预估数量的占位视图，数量为0时不占位置，滚动到它的起始位置附近时创建。
+     * 真正的适配器有稳定id时，子类需要在构造函数中调用{@link #setHasStableIds(boolean)}
+     */
+    public static abstract class LazyAdapter extends Adapter<RecyclerView.ViewHolder> {
+
+        /**
+         * 占位视图类型的保留范围，从这里往下分配
+         */
+        private static final int PLACEHOLDER_VIEW_TYPE_START = -(1 << 20);
+
+        private static final AtomicInteger sPlaceholderViewTypes = new AtomicInteger(PLACEHOLDER_VIEW_TYPE_START);
+
+        private final int mEstimatedCount;
+
+        private final int mPlaceholderHeight;
+
+        /**
+         * 默认的占位视图类型，每个实例从保留的负数范围中分配，不会和子适配器的类型冲突
+         */
+        private final int mPlaceholderViewType = sPlaceholderViewTypes.decrementAndGet();
+
+        @Nullable
+        private Adapter mAdapter;
+
+        private final RecyclerView.AdapterDataObserver mForwardObserver = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                notifyItemRangeChanged(positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+                notifyItemRangeChanged(positionStart, itemCount, payload);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                notifyItemRangeInserted(positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                notifyItemRangeRemoved(positionStart, itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+        };
+
+        /**
+         * @param estimatedCount    预估的项目数量
+         * @param placeholderHeight 每个占位视图的高度
+         */
+        public LazyAdapter(int estimatedCount, int placeholderHeight) {
+            this.mEstimatedCount = Math.max(0, estimatedCount);
+            this.mPlaceholderHeight = Math.max(0, placeholderHeight);
+        }
+
+        /**
+         * 创建真正的适配器，只调用一次
+         */
+        @NonNull
+        protected abstract Adapter onCreateAdapter();
+
+        public boolean isMaterialized() {
+            return mAdapter != null;
+        }
+
+        @Nullable
+        public Adapter getAdapter() {
+            return mAdapter;
+        }
+
+        void materialize() {
+            if (mAdapter == null) {
+                mAdapter = onCreateAdapter();
+                mAdapter.registerAdapterDataObserver(mForwardObserver);
+            }
+        }
+
+        /**
+         * 占位视图的类型，默认为每个section分配的保留负数。覆盖时需要返回小于-1且和其他子适配器都不同的值
+         */
+        protected int getPlaceholderViewType() {
+            return mPlaceholderViewType;
+        }
+
+        @NonNull
+        protected View onCreatePlaceholderView(@NonNull ViewGroup parent) {
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new VirtualLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mPlaceholderHeight));
+            return view;
+        }
+
+        @Override
+        public LayoutHelper onCreateLayoutHelper() {
+            return mAdapter != null ? mAdapter.onCreateLayoutHelper() : new LinearLayoutHelper();
+        }
+
+        @Override
+        public int getItemCount() {
+            return mAdapter != null ? mAdapter.getItemCount() : mEstimatedCount;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return mAdapter != null ? mAdapter.getItemViewType(position) : getPlaceholderViewType();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mAdapter != null ? mAdapter.getItemId(position) : NO_ID;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            if (mAdapter != null) {
+                return mAdapter.onCreateViewHolder(parent, viewType);
+            }
+            return new PlaceholderViewHolder(onCreatePlaceholderView(parent));
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onBindViewHolder(holder, position);
+            }
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onBindViewHolder(holder, position, payloads);
+            }
+        }
+
+        @Override
+        protected void onBindViewHolderWithOffset(RecyclerView.ViewHolder holder, int position, int offsetTotal, List<Object> payloads) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onBindViewHolderWithOffset(holder, position, offsetTotal, payloads);
+            }
+        }
+
+        @Override
+        protected void onBindViewHolderWithOffset(RecyclerView.ViewHolder holder, int position, int offsetTotal) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onBindViewHolderWithOffset(holder, position, offsetTotal);
+            }
+        }
+
+        @Override
+        protected boolean onSkeletonBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            return mAdapter != null && !(holder instanceof PlaceholderViewHolder)
+                    && mAdapter.onSkeletonBindViewHolder(holder, position);
+        }
+
+        @Override
+        protected long getItemContentVersion(int position) {
+            return mAdapter != null ? mAdapter.getItemContentVersion(position) : NO_CONTENT_VERSION;
+        }
+
+        @Override
+        protected boolean hasMorePages() {
+            return mAdapter != null && mAdapter.hasMorePages();
+        }
+
+        @Override
+        protected void onLoadMore(@NonNull PageRequest request) {
+            if (mAdapter != null) {
+                mAdapter.onLoadMore(request);
+            } else {
+                request.finish();
+            }
+        }
+
+        @Override
+        public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onViewRecycled(holder);
+            }
+        }
+
+        @Override
+        public void onViewAttachedToWindow(@NonNull RecyclerView.ViewHolder holder) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onViewAttachedToWindow(holder);
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(@NonNull RecyclerView.ViewHolder holder) {
+            if (mAdapter != null && !(holder instanceof PlaceholderViewHolder)) {
+                mAdapter.onViewDetachedFromWindow(holder);
+            }
+        }
+    }
+
+    private static final class PlaceholderViewHolder extends RecyclerView.ViewHolder {
+
+        PlaceholderViewHolder(@NonNull View itemView) {
+            super(itemView);
+        }
+    }
+
+    private static final class BoundContent {
+
+        private Adapter mAdapter;
+
+        private int mPosition;
+
+        private long mVersion;
     }
 
 }
@@ -229,6 +229,50 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         this.recycleOffset = recycleOffset;
     }
 
+    /**
+     * 设置下次布局的锚点，和{@link #scrollToPositionWithOffset(int, int)}相同，但不会请求重新布局，用于布局过程中
+     */
+    protected void setPendingScrollPositionWithOffsetExpose(int position, int offset) {
+        mCurrentPendingScrollPosition = position;
+        mPendingScrollPositionOffset = offset;
+        if (mCurrentPendingSavedState != null) {
+            mCurrentPendingSavedState.putInt("AnchorPosition", RecyclerView.NO_POSITION);
+        }
+    }
+
+    /**
+     * 限制一次fill最多填充的空间，子类可以按需缩小
+     *
+     * @param layoutState    当前布局状态
+     * @param remainingSpace 默认的剩余空间
+     * @return 实际可以填充的空间
+     */
+    protected int clampFillSpace(LayoutState layoutState, int remainingSpace) {
+        return remainingSpace;
+    }
+
+    /**
+     * 每布局完一个块后调用，返回true时提前结束本次fill，块本身总是完整布局的
+     */
+    protected boolean shouldStopFill(LayoutState layoutState) {
+        return false;
+    }
+
+    /**
+     * 布局完成后是否修正首尾的空白
+     */
+    protected boolean shouldFixLayoutGaps() {
+        return true;
+    }
+
+    /**
+     * 修正首尾空白需要重新滚动布局时调用
+     *
+     * @param gap 空白的大小
+     */
+    protected void onFixLayoutGap(int gap) {
+    }
+
     /**
      * 计算视图布局顺序。（例如，从结束到开始或从开始到结束）自动应用RTL布局支持。因此，如果布局为RTL
      * {@link #getReverseLayout()} is {@code true},元素将从左侧开始布置。
@@ -366,7 +410,7 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         // 更改可能会导致UI上的空白，请尝试修复它们。
         // TODO 如果stackFromEndreverseLayoutRTL值都没有
         // 改变
-        if (getChildCount() > 0) {
+        if (getChildCount() > 0 && shouldFixLayoutGaps()) {
             // because layout from end may be changed by scroll to position
             // we re-calculate it.
             // find which side we should check for gaps.
@@ -711,6 +755,7 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         int gap = mOrientationHelper.getEndAfterPadding() - endOffset;
         int fixOffset = 0;
         if (gap > 0) {
+            onFixLayoutGap(gap);
             fixOffset = -scrollInternalBy(-gap, recycler, state);
         } else {
             return 0; // nothing to fix
@@ -737,6 +782,7 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         int fixOffset = 0;
         if (gap > 0) {
             // 看看我们是否应该弥补这个差距。
+            onFixLayoutGap(gap);
             fixOffset = -scrollInternalBy(gap, recycler, state);
         } else {
             return 0; // 无需修复
@@ -1128,7 +1174,7 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
             }
             recycleByLayoutStateExpose(recycler, layoutState);
         }
-        int remainingSpace = layoutState.mAvailable + layoutState.mExtra + recycleOffset;
+        int remainingSpace = clampFillSpace(layoutState, layoutState.mAvailable + layoutState.mExtra + recycleOffset);
         while (remainingSpace > 0 && layoutState.hasMore(state)) {
             layoutChunkResultCache.resetInternal();
             layoutChunk(recycler, state, layoutState, layoutChunkResultCache);
@@ -1156,6 +1202,9 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
             if (stopOnFocusable && layoutChunkResultCache.mFocusable) {
                 break;
             }
+            if (shouldStopFill(layoutState)) {
+                break;
+            }
         }
         if (VLayoutUtils.isDebug) {
             validateChildOrderExpose();
@@ -1474,8 +1523,6 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
      */
     public static class LayoutState {
 
-        private Method vhIsRemoved = null;
-
         final static String TAG = "_ExposeLLayoutManager#LayoutState";
 
         public final static int LAYOUT_START = -1;
@@ -1549,13 +1596,6 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         public List<RecyclerView.ViewHolder> mScrapList = null;
 
         public LayoutState() {
-            try {
-                vhIsRemoved = RecyclerView.ViewHolder.class.getDeclaredMethod("isRemoved");
-                vhIsRemoved.setAccessible(true);
-            } catch (NoSuchMethodException e) {
-                e.printStackTrace();
-                throw new RuntimeException(e);
-            }
         }
 
 
@@ -1593,19 +1633,9 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
             int closestDistance = Integer.MAX_VALUE;
             for (int i = 0; i < size; i++) {
                 RecyclerView.ViewHolder viewHolder = mScrapList.get(i);
-                if (!mIsPreLayout) {
-                    boolean isRemoved = false;
-                    try {
-                        isRemoved = (boolean) vhIsRemoved.invoke(viewHolder);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    } catch (InvocationTargetException e) {
-                        e.printStackTrace();
-                    }
-
-                    if (!mIsPreLayout && isRemoved) {
-                        continue;
-                    }
+                // 通过LayoutParams读取删除标记，反射调用每次都会创建参数数组
+                if (!mIsPreLayout && ((RecyclerView.LayoutParams) viewHolder.itemView.getLayoutParams()).isItemRemoved()) {
+                    continue;
                 }
                 final int distance = (viewHolder.getLayoutPosition() - mCurrentPosition) * mItemDirection;
                 if (distance < 0) {
@@ -1711,6 +1741,11 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         private static Method mIsChanged;
         private static Method mSetFlags;
 
+        /**
+         * 反射调用无参方法时复用，避免每次创建空的参数数组
+         */
+        private static final Object[] NO_ARGS = new Object[0];
+
 
         static {
             try {
@@ -1753,11 +1788,18 @@ class ExposeLinearLayoutManagerEx extends LinearLayoutManager {
         }
 
         boolean isInvalid() {
+            return isInvalid(mHolder);
+        }
+
+        /**
+         * 不创建包装对象的检查，布局过程中逐个子视图调用
+         */
+        static boolean isInvalid(RecyclerView.ViewHolder holder) {
             if (mIsInvalid == null) {
                 return true;
             }
             try {
-                return (boolean) mIsInvalid.invoke(mHolder);
+                return (boolean) mIsInvalid.invoke(holder, NO_ARGS);
             } catch (IllegalAccessException e) {
                 e.printStackTrace();
             } catch (InvocationTargetException e) {
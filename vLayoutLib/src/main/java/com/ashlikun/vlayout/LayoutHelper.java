@@ -52,6 +52,18 @@ public abstract class LayoutHelper {
     @NonNull
     Range<Integer> mRange = RANGE_EMPTY;
 
+    /**
+     * 上一次正式布局时的范围，预布局中的位置是旧位置，按这个范围划分
+     */
+    @NonNull
+    Range<Integer> mPreLayoutRange = RANGE_EMPTY;
+
+    /**
+     * 预布局期间暂存的新范围，不为空表示正在预布局
+     */
+    @Nullable
+    Range<Integer> mPendingRange = null;
+
     int mZIndex = 0;
 
 
@@ -62,7 +74,8 @@ public abstract class LayoutHelper {
      * @return 如果{@link getRange()}返回的范围内的位置为true
      */
     public boolean isOutOfRange(int position) {
-        return !mRange.contains(position);
+        // 直接比较拆箱后的值，避免装箱产生的分配
+        return position < mRange.getLower() || position > mRange.getUpper();
     }
 
 
@@ -88,7 +101,7 @@ public abstract class LayoutHelper {
             throw new MismatchChildCountException("ItemCount mismatch when range: " + mRange.toString() + " childCount: " + getItemCount());
         }
 
-        if (start == mRange.getUpper() && end == mRange.getLower()) {
+        if (start == mRange.getLower() && end == mRange.getUpper()) {
             // no change
             return;
         }
@@ -118,6 +131,53 @@ public abstract class LayoutHelper {
     }
 
 
+    /**
+     * 预布局开始时由{@link VirtualLayoutManager}调用，切换到上一次布局的范围，不回调{@link #onRangeChange(int, int)}
+     */
+    void enterPreLayout() {
+        mPendingRange = mRange;
+        mRange = mPreLayoutRange;
+    }
+
+    /**
+     * 预布局结束时恢复新范围
+     */
+    void exitPreLayout() {
+        if (mPendingRange != null) {
+            mRange = mPendingRange;
+            mPendingRange = null;
+        }
+    }
+
+    /**
+     * 正式布局完成后记录当前范围，作为下一次预布局的范围
+     */
+    void commitLayoutRange() {
+        mPreLayoutRange = mRange;
+    }
+
+    /**
+     * 预布局的约定：
+     * 1. 位置是旧位置，{@link #getRange()}和{@link #isOutOfRange(int)}返回上一次正式布局的范围，新添加的layoutHelper不参与预布局；
+     * 2. 依赖范围的派生状态（跨度缓存、子样式、固定位置等）仍按新位置保存，读取前用{@link RecyclerView.Recycler#convertPreLayoutPositionToPostLayout(int)}转换，且不能写入；
+     * 3. 已删除的项目照常布局但不占用空间，见{@link com.ashlikun.vlayout.layout.BaseLayoutHelper#handleStateOnResult}；
+     * 4. 预布局添加的视图由RecyclerView在正式布局前统一回收，layoutHelper不能自行删除或回收，浮动视图和背景视图保持不变。
+     *
+     * @return 是否正在预布局
+     */
+    public final boolean isInPreLayout() {
+        return mPendingRange != null;
+    }
+
+    /**
+     * 不能遵守预布局约定的自定义layoutHelper返回false，此时{@link VirtualLayoutManager}关闭预测动画
+     *
+     * @return 是否支持预测动画
+     */
+    public boolean supportsPredictiveItemAnimations() {
+        return true;
+    }
+
     /**
      * 有机会检查和更改所选的anchorInfo
      *
@@ -215,6 +275,30 @@ public abstract class LayoutHelper {
         return true;
     }
 
+    /**
+     * 批量回收时调用，children中从offset开始的count个子项都属于此layoutHelper，按回收的顺序排列。
+     * 默认逐个调用{@link #isRecyclable}，子类可以一次判断整段
+     *
+     * @param children   将回收的子项
+     * @param positions  子项对应的位置
+     * @param offset     此layoutHelper的第一个子项
+     * @param count      此layoutHelper的子项数量
+     * @param startIndex 将回收子项的开始位置
+     * @param endIndex   将回收子项的结束位置
+     * @param helper     类型的助手 {@link LayoutManagerHelper}
+     * @param fromStart  是否从开始回收
+     * @return 从offset开始连续可以回收的数量
+     */
+    public int getRecyclableCount(View[] children, int[] positions, int offset, int count,
+                                  int startIndex, int endIndex, LayoutManagerHelper helper, boolean fromStart) {
+        for (int i = 0; i < count; i++) {
+            if (!isRecyclable(positions[offset + i], startIndex, endIndex, helper, fromStart)) {
+                return i;
+            }
+        }
+        return count;
+    }
+
     /**
      * 返回子项计数
      *
@@ -274,6 +358,53 @@ public abstract class LayoutHelper {
 
     }
 
+    /**
+     * 插入项目后调用，只通知插入位置之后（包括自身范围）受影响的LayoutHelper，此时范围已经更新。
+     * 默认按{@link #onItemsChanged(LayoutManagerHelper)}处理
+     *
+     * @param positionStart 插入的起始位置
+     * @param itemCount     插入的数量
+     */
+    public void onItemsAdded(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        onItemsChanged(helper);
+    }
+
+    /**
+     * 删除项目后调用，只通知删除位置之后受影响的LayoutHelper，此时范围已经更新。
+     * 默认按{@link #onItemsChanged(LayoutManagerHelper)}处理
+     */
+    public void onItemsRemoved(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        onItemsChanged(helper);
+    }
+
+    /**
+     * 项目内容更新后调用，只通知范围与更新区间相交的LayoutHelper。
+     * 默认按{@link #onItemsChanged(LayoutManagerHelper)}处理
+     */
+    public void onItemsUpdated(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        onItemsChanged(helper);
+    }
+
+    /**
+     * 项目移动后调用，只通知范围与移动区间相交的LayoutHelper。
+     * 默认按{@link #onItemsChanged(LayoutManagerHelper)}处理
+     */
+    public void onItemsMoved(int from, int to, int itemCount, LayoutManagerHelper helper) {
+        onItemsChanged(helper);
+    }
+
+    /**
+     * 内存紧张时释放离可见区域较远的缓存
+     *
+     * @param level         {@link android.content.ComponentCallbacks2}中的TRIM_MEMORY_*
+     * @param startPosition 第一个可见位置
+     * @param endPosition   最后一个可见位置
+     * @return 估算释放的字节数
+     */
+    public long trimMemory(int level, int startPosition, int endPosition, LayoutManagerHelper helper) {
+        return 0;
+    }
+
     /**
      * 当此layoutHelper将从LayoutManager中删除时调用，请在此处释放视图和其他资源
      *
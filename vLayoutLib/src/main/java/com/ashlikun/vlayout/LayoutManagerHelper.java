@@ -118,6 +118,43 @@ public interface LayoutManagerHelper {
      */
     void addFixedView(View view);
 
+    /**
+     * 是否启用了固定视图浮层，启用后固定视图只在尺寸变化时测量，滚动过程中不会重复添加移除
+     *
+     * @return 启用浮层时为true
+     */
+    boolean isFixViewOverlayEnabled();
+
+    /**
+     * 固定视图是否已经托管在浮层中
+     *
+     * @param view 固定视图
+     * @return 已托管且仍然挂载在RecyclerView上时为true
+     */
+    boolean isFixedViewHosted(View view);
+
+    /**
+     * adjustLayout过程中当前LayoutHelper所属子视图在{@link #getChildAt(int)}中的起始下标，其他时候为0
+     *
+     * @return 子视图区间起点，包含
+     */
+    int getChildSliceStart();
+
+    /**
+     * adjustLayout过程中当前LayoutHelper所属子视图在{@link #getChildAt(int)}中的结束下标，其他时候为{@link #getChildCount()}
+     *
+     * @return 子视图区间终点，不包含
+     */
+    int getChildSliceEnd();
+
+    /**
+     * 按位置查找子视图在{@link #getChildAt(int)}中的下标，使用每次布局维护的映射表，避免遍历所有子视图
+     *
+     * @param position 适配器中的位置
+     * @return 子视图下标，不在布局中时返回-1
+     */
+    int findChildIndexByPosition(int position);
+
     /**
      * 将视图标记为隐藏，它将显示在屏幕上，但无法通过{@link RecyclerView.LayoutManager#getChildCount()} and {@link androidx.recyclerview.widget.RecyclerView.LayoutManager#getChildAt(int)}访问
      *
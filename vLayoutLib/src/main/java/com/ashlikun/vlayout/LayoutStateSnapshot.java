@@ -0,0 +1,141 @@
+package com.ashlikun.vlayout;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link VirtualLayoutManager}发布的布局状态：可见范围、滚动偏移、各layoutHelper的范围和子视图的边界，全部用基本类型数组保存。
+ * <p>
+ * 由调用方创建并持有，通过{@link VirtualLayoutManager#readLayoutState(LayoutStateSnapshot)}复制最新一帧的状态，
+ * 可以在任意线程读取，不加锁也不需要切换到主线程。复制之后内容不再变化，下次读取前可以反复使用，不需要每次创建。
+ */
+public final class LayoutStateSnapshot {
+
+    /**
+     * 写入时为奇数，写入完成后为偶数，读取前后不一致说明读取期间被覆盖
+     */
+    final AtomicInteger mSequence = new AtomicInteger();
+
+    long mFrame = 0;
+
+    int mFirstVisiblePosition = RecyclerView.NO_POSITION;
+
+    int mLastVisiblePosition = RecyclerView.NO_POSITION;
+
+    int mOffsetToStart = -1;
+
+    int mHelperCount = 0;
+
+    int[] mHelperLowers = new int[8];
+
+    int[] mHelperUppers = new int[8];
+
+    int mChildCount = 0;
+
+    int[] mChildPositions = new int[16];
+
+    /**
+     * 每个子视图依次为left、top、right、bottom
+     */
+    int[] mChildBounds = new int[64];
+
+    /**
+     * @return 发布的次数，相同说明布局状态没有变化
+     */
+    public long getFrame() {
+        return mFrame;
+    }
+
+    public int getFirstVisiblePosition() {
+        return mFirstVisiblePosition;
+    }
+
+    public int getLastVisiblePosition() {
+        return mLastVisiblePosition;
+    }
+
+    /**
+     * @see VirtualLayoutManager#getOffsetToStart()
+     */
+    public int getOffsetToStart() {
+        return mOffsetToStart;
+    }
+
+    public int getHelperCount() {
+        return mHelperCount;
+    }
+
+    public int getHelperLower(int index) {
+        return mHelperLowers[index];
+    }
+
+    public int getHelperUpper(int index) {
+        return mHelperUppers[index];
+    }
+
+    public int getChildCount() {
+        return mChildCount;
+    }
+
+    /**
+     * @return 子视图的位置，背景等没有位置的视图为{@link RecyclerView#NO_POSITION}
+     */
+    public int getChildPosition(int index) {
+        return mChildPositions[index];
+    }
+
+    public int getChildLeft(int index) {
+        return mChildBounds[index * 4];
+    }
+
+    public int getChildTop(int index) {
+        return mChildBounds[index * 4 + 1];
+    }
+
+    public int getChildRight(int index) {
+        return mChildBounds[index * 4 + 2];
+    }
+
+    public int getChildBottom(int index) {
+        return mChildBounds[index * 4 + 3];
+    }
+
+    void ensureCapacity(int helperCount, int childCount) {
+        if (mHelperLowers.length < helperCount) {
+            final int capacity = Math.max(helperCount, mHelperLowers.length * 2);
+            mHelperLowers = new int[capacity];
+            mHelperUppers = new int[capacity];
+        }
+        if (mChildPositions.length < childCount) {
+            final int capacity = Math.max(childCount, mChildPositions.length * 2);
+            mChildPositions = new int[capacity];
+            mChildBounds = new int[capacity * 4];
+        }
+    }
+
+    /**
+     * 复制source的内容，source可能同时被主线程覆盖，数组长度不足时只复制能容纳的部分，由调用方校验后重试
+     */
+    void copyFrom(@NonNull LayoutStateSnapshot source) {
+        final int[] helperLowers = source.mHelperLowers;
+        final int[] helperUppers = source.mHelperUppers;
+        final int[] childPositions = source.mChildPositions;
+        final int[] childBounds = source.mChildBounds;
+        final int helperCount = Math.min(source.mHelperCount, Math.min(helperLowers.length, helperUppers.length));
+        final int childCount = Math.min(source.mChildCount, Math.min(childPositions.length, childBounds.length / 4));
+
+        ensureCapacity(helperCount, childCount);
+        mFrame = source.mFrame;
+        mFirstVisiblePosition = source.mFirstVisiblePosition;
+        mLastVisiblePosition = source.mLastVisiblePosition;
+        mOffsetToStart = source.mOffsetToStart;
+        mHelperCount = helperCount;
+        System.arraycopy(helperLowers, 0, mHelperLowers, 0, helperCount);
+        System.arraycopy(helperUppers, 0, mHelperUppers, 0, helperCount);
+        mChildCount = childCount;
+        System.arraycopy(childPositions, 0, mChildPositions, 0, childCount);
+        System.arraycopy(childBounds, 0, mChildBounds, 0, childCount * 4);
+    }
+}
@@ -27,9 +27,9 @@ package com.ashlikun.vlayout;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -39,13 +39,13 @@ import java.util.ListIterator;
 public class RangeLayoutHelperFinder extends LayoutHelperFinder {
 
     @NonNull
-    private List<LayoutHelperItem> mLayoutHelperItems = new LinkedList<>();
+    private List<LayoutHelperItem> mLayoutHelperItems = new ArrayList<>();
 
     @NonNull
-    private List<com.ashlikun.vlayout.LayoutHelper> mLayoutHelpers = new LinkedList<>();
+    private List<com.ashlikun.vlayout.LayoutHelper> mLayoutHelpers = new ArrayList<>();
 
     @NonNull
-    private List<com.ashlikun.vlayout.LayoutHelper> mReverseLayoutHelpers = new LinkedList<>();
+    private List<com.ashlikun.vlayout.LayoutHelper> mReverseLayoutHelpers = new ArrayList<>();
 
     private LayoutHelperItem[] mSortedLayoutHelpers = null;
 
@@ -24,6 +24,9 @@
 
 package com.ashlikun.vlayout;
 
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -33,8 +36,12 @@ import androidx.viewpager.widget.ViewPager;
 
 import com.ashlikun.vlayout.extend.InnerRecycledViewPool;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
 /**
  * PagerAdapter，使用RecycledPool，用于嵌套ViewPager。
+ * 支持在主线程空闲时预先创建并绑定后续页面，以及同一个ViewPager内复用LayoutParams。
  */
 public abstract class RecyclablePagerAdapter<VH extends RecyclerView.ViewHolder> extends PagerAdapter {
 
@@ -42,6 +49,38 @@ public abstract class RecyclablePagerAdapter<VH extends RecyclerView.ViewHolder>
 
     private InnerRecycledViewPool mRecycledViewPool;
 
+    /**
+     * 预绑定窗口大小，0表示关闭
+     */
+    private int mPreBindCount = 0;
+
+    private boolean mReuseLayoutParams = false;
+
+    private final SparseArray<RecyclerView.ViewHolder> mActiveHolders = new SparseArray<>();
+
+    private final SparseArray<RecyclerView.ViewHolder> mPreBoundHolders = new SparseArray<>();
+
+    private final ArrayList<ViewPager.LayoutParams> mFreeLayoutParams = new ArrayList<>();
+
+    private ViewGroup mContainer;
+
+    private int mPrimaryPosition = -1;
+
+    private boolean mIdleScheduled = false;
+
+    private int mPoolHitCount = 0;
+    private int mPoolMissCount = 0;
+    private int mPreBindHitCount = 0;
+
+    private final MessageQueue.IdleHandler mPreBindIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            boolean hasMore = preBindNext();
+            mIdleScheduled = hasMore;
+            return hasMore;
+        }
+    };
+
 
     public RecyclablePagerAdapter(RecyclerView.Adapter<VH> adapter, RecyclerView.RecycledViewPool pool) {
         this.mAdapter = adapter;
@@ -52,6 +91,55 @@ public abstract class RecyclablePagerAdapter<VH extends RecyclerView.ViewHolder>
         }
     }
 
+    /**
+     * 设置预绑定窗口，当前页之后的count个页面会在主线程空闲时提前创建并绑定
+     *
+     * @param count 预绑定的页面数，0表示关闭
+     */
+    public void setPreBindCount(int count) {
+        this.mPreBindCount = Math.max(0, count);
+        if (mPreBindCount == 0) {
+            releasePreBoundHolders();
+        }
+    }
+
+    /**
+     * 同一个ViewPager内复用销毁页面的LayoutParams。
+     * 复用前会重置ViewPager记录在LayoutParams中的widthFactor、position等状态，无法重置时创建新的实例。
+     */
+    public void setReuseLayoutParams(boolean reuseLayoutParams) {
+        this.mReuseLayoutParams = reuseLayoutParams;
+        if (!reuseLayoutParams) {
+            mFreeLayoutParams.clear();
+        }
+    }
+
+    /**
+     * @return 从缓存池取到ViewHolder的次数
+     */
+    public int getPoolHitCount() {
+        return mPoolHitCount;
+    }
+
+    /**
+     * @return 缓存池为空、需要新建ViewHolder的次数
+     */
+    public int getPoolMissCount() {
+        return mPoolMissCount;
+    }
+
+    /**
+     * @return 直接使用预绑定页面的次数
+     */
+    public int getPreBindHitCount() {
+        return mPreBindHitCount;
+    }
+
+    public void resetMetrics() {
+        mPoolHitCount = 0;
+        mPoolMissCount = 0;
+        mPreBindHitCount = 0;
+    }
     @Override
     public abstract int getCount();
 
@@ -65,26 +153,36 @@ public abstract class RecyclablePagerAdapter<VH extends RecyclerView.ViewHolder>
      */
     @Override
     public Object instantiateItem(ViewGroup container, int position) {
+        attachContainer(container);
         int itemViewType = getItemViewType(position);
-        RecyclerView.ViewHolder holder = mRecycledViewPool.getRecycledView(itemViewType);
+        RecyclerView.ViewHolder holder = mPreBoundHolders.get(position);
+        if (holder != null) {
+            mPreBoundHolders.remove(position);
+            if (holder.getItemViewType() == itemViewType) {
+                mPreBindHitCount++;
+            } else {
+                mRecycledViewPool.putRecycledView(holder);
+                holder = null;
+            }
+        }
 
         if (holder == null) {
-            holder = mAdapter.createViewHolder(container, itemViewType);
+            holder = obtainViewHolder(container, itemViewType);
+            onBindViewHolder((VH) holder, position);
         }
 
-
-        onBindViewHolder((VH) holder, position);
         //当一个页面中有多个嵌套的ViewPager时，itemViews的layoutParam将被重用，
         //因此layoutParam的属性（例如widthFactor和position）也将被重用，
         //而这些属性在重用期间应重置为默认值。
         //考虑到ViewPager.LayoutParams有一些无法在外部修改的内部属性，我们在这里提供了一个新的实例
-        ViewPager.LayoutParams layoutParams = new ViewPager.LayoutParams();
+        ViewPager.LayoutParams layoutParams = obtainLayoutParams();
         if (holder.itemView.getLayoutParams() != null) {
             layoutParams.width = holder.itemView.getLayoutParams().width;
             layoutParams.height = holder.itemView.getLayoutParams().height;
         }
 
         container.addView(holder.itemView, layoutParams);
+        mActiveHolders.put(position, holder);
 
         return holder;
     }
@@ -93,11 +191,163 @@ public abstract class RecyclablePagerAdapter<VH extends RecyclerView.ViewHolder>
     public void destroyItem(ViewGroup container, int position, Object object) {
         if (object instanceof RecyclerView.ViewHolder) {
             RecyclerView.ViewHolder holder = (RecyclerView.ViewHolder) object;
+            if (mActiveHolders.get(position) == holder) {
+                mActiveHolders.remove(position);
+            }
+            ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
             container.removeView(holder.itemView);
+            if (mReuseLayoutParams && container == mContainer && layoutParams instanceof ViewPager.LayoutParams) {
+                mFreeLayoutParams.add((ViewPager.LayoutParams) layoutParams);
+            }
             mRecycledViewPool.putRecycledView(holder);
         }
     }
 
+    @Override
+    public void setPrimaryItem(ViewGroup container, int position, Object object) {
+        super.setPrimaryItem(container, position, object);
+        attachContainer(container);
+        if (mPrimaryPosition == position) {
+            return;
+        }
+        mPrimaryPosition = position;
+        if (mPreBindCount > 0) {
+            // 丢弃窗口外的预绑定页面
+            for (int i = mPreBoundHolders.size() - 1; i >= 0; i--) {
+                int pos = mPreBoundHolders.keyAt(i);
+                if (pos <= position || pos > position + mPreBindCount) {
+                    mRecycledViewPool.putRecycledView(mPreBoundHolders.valueAt(i));
+                    mPreBoundHolders.removeAt(i);
+                }
+            }
+            scheduleIdlePreBind();
+        }
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        // 数据变化后预绑定的内容已失效
+        releasePreBoundHolders();
+        super.notifyDataSetChanged();
+    }
+
+    private void attachContainer(ViewGroup container) {
+        if (mContainer != container) {
+            mContainer = container;
+            mFreeLayoutParams.clear();
+            releasePreBoundHolders();
+        }
+    }
+
+    private RecyclerView.ViewHolder obtainViewHolder(ViewGroup container, int itemViewType) {
+        RecyclerView.ViewHolder holder = mRecycledViewPool.getRecycledView(itemViewType);
+        if (holder == null) {
+            mPoolMissCount++;
+            holder = mAdapter.createViewHolder(container, itemViewType);
+        } else {
+            mPoolHitCount++;
+        }
+        return holder;
+    }
+
+    private ViewPager.LayoutParams obtainLayoutParams() {
+        final int size = mFreeLayoutParams.size();
+        if (mReuseLayoutParams && size > 0) {
+            final ViewPager.LayoutParams layoutParams = mFreeLayoutParams.remove(size - 1);
+            if (LayoutParamsResetter.reset(layoutParams)) {
+                return layoutParams;
+            }
+            mReuseLayoutParams = false;
+            mFreeLayoutParams.clear();
+        }
+        return new ViewPager.LayoutParams();
+    }
+
+    /**
+     * ViewPager只在widthFactor为0时重新读取页面的宽度和位置，这些字段是包内可见的，通过反射恢复为初始值
+     */
+    private static class LayoutParamsResetter {
+
+        private static Field mWidthFactor;
+        private static Field mPosition;
+        private static Field mNeedsMeasure;
+        private static Field mChildIndex;
+
+        static {
+            try {
+                mWidthFactor = ViewPager.LayoutParams.class.getDeclaredField("widthFactor");
+                mWidthFactor.setAccessible(true);
+                mPosition = ViewPager.LayoutParams.class.getDeclaredField("position");
+                mPosition.setAccessible(true);
+                mNeedsMeasure = ViewPager.LayoutParams.class.getDeclaredField("needsMeasure");
+                mNeedsMeasure.setAccessible(true);
+                mChildIndex = ViewPager.LayoutParams.class.getDeclaredField("childIndex");
+                mChildIndex.setAccessible(true);
+            } catch (NoSuchFieldException e) {
+                e.printStackTrace();
+                mWidthFactor = null;
+            }
+        }
+
+        /**
+         * @return 重置失败时为false，这个LayoutParams不能再使用
+         */
+        static boolean reset(ViewPager.LayoutParams layoutParams) {
+            if (mWidthFactor == null) {
+                return false;
+            }
+            try {
+                mWidthFactor.setFloat(layoutParams, 0.f);
+                mPosition.setInt(layoutParams, 0);
+                mNeedsMeasure.setBoolean(layoutParams, false);
+                mChildIndex.setInt(layoutParams, 0);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                return false;
+            }
+            layoutParams.isDecor = false;
+            layoutParams.gravity = 0;
+            return true;
+        }
+    }
+
+    private void scheduleIdlePreBind() {
+        if (!mIdleScheduled && Looper.myLooper() == Looper.getMainLooper()) {
+            mIdleScheduled = true;
+            Looper.myQueue().addIdleHandler(mPreBindIdleHandler);
+        }
+    }
+
+    /**
+     * 每次空闲只预绑定一个页面，避免占用太长的空闲时间
+     *
+     * @return 是否还有需要预绑定的页面
+     */
+    private boolean preBindNext() {
+        if (mContainer == null || mPreBindCount <= 0 || mPrimaryPosition < 0) {
+            return false;
+        }
+        final int count = getCount();
+        final int end = Math.min(count - 1, mPrimaryPosition + mPreBindCount);
+        for (int pos = mPrimaryPosition + 1; pos <= end; pos++) {
+            if (mActiveHolders.get(pos) != null || mPreBoundHolders.get(pos) != null) {
+                continue;
+            }
+            RecyclerView.ViewHolder holder = obtainViewHolder(mContainer, getItemViewType(pos));
+            onBindViewHolder((VH) holder, pos);
+            mPreBoundHolders.put(pos, holder);
+            return pos < end;
+        }
+        return false;
+    }
+
+    private void releasePreBoundHolders() {
+        for (int i = 0, size = mPreBoundHolders.size(); i < size; i++) {
+            mRecycledViewPool.putRecycledView(mPreBoundHolders.valueAt(i));
+        }
+        mPreBoundHolders.clear();
+    }
+
 
     public abstract void onBindViewHolder(VH viewHolder, int position);
 
@@ -24,33 +24,45 @@
 
 package com.ashlikun.vlayout;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Rect;
 import android.os.Trace;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.util.Pair;
+import android.view.Choreographer;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.OrientationHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.ashlikun.vlayout.extend.FlingStateListener;
 import com.ashlikun.vlayout.extend.LayoutManagerCanScrollListener;
+import com.ashlikun.vlayout.extend.LayoutSpacePolicy;
+import com.ashlikun.vlayout.extend.InnerRecycledViewPool;
+import com.ashlikun.vlayout.extend.MultiFeedViewPool;
+import com.ashlikun.vlayout.extend.LayoutTracer;
 import com.ashlikun.vlayout.extend.PerformanceMonitor;
+import com.ashlikun.vlayout.extend.ScrollVelocityTracker;
 import com.ashlikun.vlayout.extend.ViewLifeCycleHelper;
 import com.ashlikun.vlayout.extend.ViewLifeCycleListener;
 import com.ashlikun.vlayout.layout.BaseLayoutHelper;
 import com.ashlikun.vlayout.layout.DefaultLayoutHelper;
 import com.ashlikun.vlayout.layout.FixAreaAdjuster;
 import com.ashlikun.vlayout.layout.FixAreaLayoutHelper;
+import com.ashlikun.vlayout.layout.HorizontalLaneLayoutHelper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -97,28 +109,53 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     private PerformanceMonitor mPerformanceMonitor;
 
+    private LayoutTracer mLayoutTracer;
+
+    /**
+     * 本次布局或滚动中布局的块数和修正空白的次数，用于输出Trace计数
+     */
+    private int mTraceChunkCount = 0;
+
+    private int mTraceGapFixCount = 0;
+
     private ViewLifeCycleHelper mViewLifeCycleHelper;
 
-    private Comparator<Pair<Range<Integer>, Integer>> mRangeComparator = new Comparator<Pair<Range<Integer>, Integer>>() {
-        @Override
-        public int compare(Pair<Range<Integer>, Integer> a, Pair<Range<Integer>, Integer> b) {
-            if (a == null && b == null) {
-                return 0;
-            }
-            if (a == null) {
-                return -1;
-            }
-            if (b == null) {
-                return 1;
-            }
+    private LayoutSpacePolicy mLayoutSpacePolicy;
 
-            Range<Integer> lr = a.first;
-            Range<Integer> rr = b.first;
+    private int mBaseRecycleOffset = 0;
+
+    /**
+     * 快速滑动时保留了子视图的滚动所用的Recycler，停止滚动后在post中回收保留的子视图，回收后或detach时释放
+     */
+    private RecyclerView.Recycler mRetainedRecycler;
 
-            return lr.getLower() - rr.getLower();
+    private final Runnable mRecycleRetainedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final RecyclerView.Recycler recycler = mRetainedRecycler;
+            mRetainedRecycler = null;
+            if (recycler != null && mRecyclerView != null && !mRecyclerView.isComputingLayout()) {
+                recycleRetainedChildren(recycler);
+            }
         }
     };
 
+    private final ScrollVelocityTracker mScrollVelocityTracker = new ScrollVelocityTracker();
+
+    private FlingStateListener mFlingStateListener;
+
+    private float mFlingVelocityThreshold = 0;
+
+    private boolean mFlinging = false;
+
+    private boolean mFixViewOverlayEnabled = false;
+
+    /**
+     * 固定视图浮层，保存已经托管的固定视图
+     */
+    private final List<View> mOverlayFixedViews = new ArrayList<>();
+
+
     public VirtualLayoutManager(@NonNull final Context context) {
         this(context, VERTICAL);
     }
@@ -151,6 +188,84 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         mPerformanceMonitor = performanceMonitor;
     }
 
+    /**
+     * 设置后按LayoutHelper和阶段输出Trace分段和计数，null关闭
+     */
+    public void setLayoutTracer(@Nullable LayoutTracer layoutTracer) {
+        mLayoutTracer = layoutTracer;
+    }
+
+    @Nullable
+    public LayoutTracer getLayoutTracer() {
+        return mLayoutTracer;
+    }
+
+    /**
+     * 设置按滚动速度调整额外布局空间和回收偏移的策略
+     *
+     * @param policy 为null时恢复固定的回收偏移
+     */
+    public void setLayoutSpacePolicy(@Nullable LayoutSpacePolicy policy) {
+        if (mLayoutSpacePolicy != null) {
+            mLayoutSpacePolicy.setVelocityTracker(null);
+        }
+        mLayoutSpacePolicy = policy;
+        if (policy != null) {
+            policy.setVelocityTracker(mScrollVelocityTracker);
+        }
+        recycleOffset = mBaseRecycleOffset;
+    }
+
+    @Nullable
+    public LayoutSpacePolicy getLayoutSpacePolicy() {
+        return mLayoutSpacePolicy;
+    }
+
+    /**
+     * 监听快速滑动状态，滚动速度越过阈值时回调
+     *
+     * @param listener          为null时取消监听
+     * @param velocityThreshold 速度阈值，像素/秒
+     */
+    public void setFlingStateListener(@Nullable FlingStateListener listener, float velocityThreshold) {
+        mFlingStateListener = listener;
+        mFlingVelocityThreshold = velocityThreshold;
+        mFlinging = false;
+    }
+
+    /**
+     * @return 当前的滚动速度，像素/秒，带方向
+     */
+    public float getScrollVelocity() {
+        return mScrollVelocityTracker.getVelocity();
+    }
+
+    private void dispatchFlingState() {
+        if (mFlingStateListener == null) {
+            return;
+        }
+        final boolean flinging = mScrollVelocityTracker.isFlinging(mFlingVelocityThreshold);
+        if (flinging != mFlinging) {
+            mFlinging = flinging;
+            mFlingStateListener.onFlingStateChanged(flinging);
+        }
+    }
+
+    @Override
+    public void setRecycleOffset(int recycleOffset) {
+        mBaseRecycleOffset = recycleOffset;
+        super.setRecycleOffset(recycleOffset);
+    }
+
+    @Override
+    protected int getExtraLayoutSpace(RecyclerView.State state) {
+        int extra = super.getExtraLayoutSpace(state);
+        if (mLayoutSpacePolicy != null) {
+            extra += mLayoutSpacePolicy.getExtraLayoutSpace(mOrientationHelper.getTotalSpace());
+        }
+        return extra;
+    }
+
     public void setNoScrolling(boolean noScrolling) {
         this.mNoScrolling = noScrolling;
         mSpaceMeasured = false;
@@ -158,6 +273,32 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         mSpaceMeasuring = false;
     }
 
+    /**
+     * 启用固定视图浮层，{@link FixAreaLayoutHelper}的视图托管到浮层后只在尺寸变化时测量，
+     * 滚动过程中不再重复添加、移除和测量
+     *
+     * @param enabled 是否启用
+     */
+    public void setFixViewOverlayEnabled(boolean enabled) {
+        if (mFixViewOverlayEnabled == enabled) {
+            return;
+        }
+        mFixViewOverlayEnabled = enabled;
+        mOverlayFixedViews.clear();
+        requestLayout();
+    }
+
+    @Override
+    public boolean isFixViewOverlayEnabled() {
+        return mFixViewOverlayEnabled;
+    }
+
+    @Override
+    public boolean isFixedViewHosted(View view) {
+        return mFixViewOverlayEnabled && view != null && mRecyclerView != null
+                && view.getParent() == mRecyclerView && mOverlayFixedViews.contains(view);
+    }
+
     public void setCanScrollVertically(boolean canScrollVertically) {
         this.mCanScrollVertically = canScrollVertically;
     }
@@ -176,12 +317,49 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     public void setNestedScrolling(boolean nestedScrolling, int maxMeasureSize) {
         this.mNestedScrolling = nestedScrolling;
+        this.mMaxMeasureSize = maxMeasureSize;
         mSpaceMeasuring = mSpaceMeasured = false;
         mMeasuredFullSpace = 0;
     }
 
+    /**
+     * 虚拟化的嵌套滚动，用于放在NestedScrollView等纵向滚动容器中的列表。
+     * 测量时按已布局的大小和平均大小估算完整的内容高度，布局时只创建和外部滚动容器可见区域相交的子视图，
+     * 外部容器滚动时再补充布局。只支持纵向，开启后{@link #setNoScrolling(boolean)}和{@link #setNestedScrolling(boolean)}失效
+     *
+     * @param virtualized 是否开启
+     */
+    public void setVirtualizedNestedScrolling(boolean virtualized) {
+        if (mVirtualizedNestedScrolling == virtualized) {
+            return;
+        }
+        mVirtualizedNestedScrolling = virtualized;
+        mVirtualRequestedSize = -1;
+        if (virtualized) {
+            mNoScrolling = false;
+            mNestedScrolling = false;
+            mSpaceMeasuring = mSpaceMeasured = false;
+            mMeasuredFullSpace = 0;
+        }
+        updateAncestorScrollListener(mRecyclerView);
+        requestLayout();
+    }
+
+    public boolean isVirtualizedNestedScrolling() {
+        return mVirtualizedNestedScrolling && mRecyclerView != null && getOrientation() == VERTICAL;
+    }
+
     private LayoutHelperFinder mHelperFinder;
 
+    /**
+     * 预布局时按上一次布局的范围查找layoutHelper
+     */
+    private final RangeLayoutHelperFinder mPreLayoutHelperFinder = new RangeLayoutHelperFinder();
+
+    private final List<LayoutHelper> mPreLayoutHelpers = new ArrayList<>();
+
+    private boolean mInPreLayout = false;
+
     public void setHelperFinder(@NonNull final LayoutHelperFinder finder) {
         //noinspection ConstantConditions
         if (finder == null) {
@@ -191,10 +369,8 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         List<LayoutHelper> helpers = new LinkedList<>();
         if (this.mHelperFinder != null) {
             List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-            Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-            LayoutHelper layoutHelper = null;
-            while (iterator.hasNext()) {
-                layoutHelper = iterator.next();
+            for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+                LayoutHelper layoutHelper = layoutHelpers.get(i);
                 helpers.add(layoutHelper);
 
             }
@@ -230,6 +406,12 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
      * @param helpers layoutHelper组
      */
     public void setLayoutHelpers(@Nullable List<LayoutHelper> helpers) {
+        if (mLayoutTracer != null) {
+            mLayoutTracer.clear();
+        }
+        if (mActiveLane != null && (helpers == null || !helpers.contains(mActiveLane))) {
+            resetActiveLane();
+        }
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
         Iterator<LayoutHelper> it0 = layoutHelpers.iterator();
         while (it0.hasNext()) {
@@ -283,6 +465,8 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
         for (LayoutHelper helper : oldHelpersSet.values()) {
             helper.clear(this);
+            // 被移除的layoutHelper重新加入时不能沿用旧的预布局范围
+            helper.mPreLayoutRange = LayoutHelper.RANGE_EMPTY;
         }
 
         if (!oldHelpersSet.isEmpty() || !newHelpersSet.isEmpty()) {
@@ -363,7 +547,7 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             mTempAnchorInfoWrapper.position = anchorInfo.mPosition;
             mTempAnchorInfoWrapper.coordinate = anchorInfo.mCoordinate;
             mTempAnchorInfoWrapper.layoutFromEnd = anchorInfo.mLayoutFromEnd;
-            LayoutHelper layoutHelper = mHelperFinder.getLayoutHelper(anchorInfo.mPosition);
+            LayoutHelper layoutHelper = getLayoutHelper(anchorInfo.mPosition);
             if (layoutHelper != null) {
                 layoutHelper.checkAnchorInfo(state, mTempAnchorInfoWrapper, this);
             }
@@ -423,7 +607,7 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
     @Override
     protected int computeAlignOffset(int position, boolean isLayoutEnd, boolean useAnchor) {
         if (position != RecyclerView.NO_POSITION) {
-            LayoutHelper helper = mHelperFinder.getLayoutHelper(position);
+            LayoutHelper helper = getLayoutHelper(position);
 
             if (helper != null) {
                 return helper.computeAlignOffset(position - helper.getRange().getLower(),
@@ -453,11 +637,18 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
         if (mNested == 0) {
             List<LayoutHelper> reverseLayoutHelpers = mHelperFinder.reverse();
-            Iterator<LayoutHelper> iterator = reverseLayoutHelpers.iterator();
-            LayoutHelper layoutHelper = null;
-            while (iterator.hasNext()) {
-                layoutHelper = iterator.next();
-                layoutHelper.beforeLayout(recycler, state, this);
+            for (int i = 0, size = reverseLayoutHelpers.size(); i < size; i++) {
+                LayoutHelper layoutHelper = reverseLayoutHelpers.get(i);
+                if (mLayoutTracer != null) {
+                    mLayoutTracer.beginHelperSection(layoutHelper, LayoutTracer.PHASE_BEFORE_LAYOUT);
+                }
+                try {
+                    layoutHelper.beforeLayout(recycler, state, this);
+                } finally {
+                    if (mLayoutTracer != null) {
+                        mLayoutTracer.endSection();
+                    }
+                }
             }
         }
 
@@ -471,53 +662,164 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             final int startPosition = findFirstVisibleItemPosition();
             final int endPosition = findLastVisibleItemPosition();
             List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-            Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-            LayoutHelper layoutHelper = null;
-            while (iterator.hasNext()) {
-                layoutHelper = iterator.next();
+            for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+                LayoutHelper layoutHelper = layoutHelpers.get(i);
+                if (mLayoutTracer != null) {
+                    mLayoutTracer.beginHelperSection(layoutHelper, LayoutTracer.PHASE_AFTER_LAYOUT);
+                }
                 try {
                     layoutHelper.afterLayout(recycler, state, startPosition, endPosition, scrolled, this);
                 } catch (Exception e) {
                     if (VLayoutUtils.isDebug) {
                         throw e;
                     }
+                } finally {
+                    if (mLayoutTracer != null) {
+                        mLayoutTracer.endSection();
+                    }
                 }
             }
 
-            if (null != mViewLifeCycleHelper) {
+            if (null != mViewLifeCycleHelper && !state.isPreLayout()) {
                 mViewLifeCycleHelper.checkViewStatusInScreen();
             }
         }
     }
 
+    /**
+     * adjustLayout时子视图对应的位置，每次adjust过程只计算一次
+     */
+    private int[] mChildPositions = new int[32];
+
+    private int mChildSliceStart = -1;
+    private int mChildSliceEnd = -1;
+
     public void runAdjustLayout() {
         final int startPosition = findFirstVisibleItemPosition();
-        final LayoutHelper firstLayoutHelper = mHelperFinder.getLayoutHelper(startPosition);
+        final LayoutHelper firstLayoutHelper = getLayoutHelper(startPosition);
         final int endPosition = findLastVisibleItemPosition();
-        final LayoutHelper lastLayoutHelper = mHelperFinder.getLayoutHelper(endPosition);
+        final LayoutHelper lastLayoutHelper = getLayoutHelper(endPosition);
         List<LayoutHelper> totalLayoutHelpers = mHelperFinder.getLayoutHelpers();
         final int start = totalLayoutHelpers.indexOf(firstLayoutHelper);
         final int end = totalLayoutHelpers.indexOf(lastLayoutHelper);
-        for (int i = start; i <= end; i++) {
-            try {
-                totalLayoutHelpers.get(i).adjustLayout(startPosition, endPosition, this);
-            } catch (Exception e) {
-                if (VLayoutUtils.isDebug) {
-                    throw e;
+
+        // 子视图按位置有序排列时，每个LayoutHelper只需要遍历自己区间内的子视图
+        final int childCount = getChildCount();
+        if (mChildPositions.length < childCount) {
+            mChildPositions = new int[Math.max(childCount, mChildPositions.length * 2)];
+        }
+        int order = 0;
+        boolean sorted = true;
+        for (int i = 0; i < childCount; i++) {
+            final int position = getPosition(getChildAt(i));
+            mChildPositions[i] = position;
+            if (i > 0 && sorted) {
+                final int diff = position - mChildPositions[i - 1];
+                if (diff != 0) {
+                    final int dir = diff > 0 ? 1 : -1;
+                    if (order == 0) {
+                        order = dir;
+                    } else if (order != dir) {
+                        sorted = false;
+                    }
+                }
+            }
+        }
+
+        try {
+            for (int i = start; i <= end; i++) {
+                final LayoutHelper layoutHelper = totalLayoutHelpers.get(i);
+                final Range<Integer> range = layoutHelper.getRange();
+                if (sorted && range != null) {
+                    final int lower = range.getLower();
+                    final int upper = range.getUpper();
+                    if (order >= 0) {
+                        mChildSliceStart = searchChildPosition(childCount, lower, false);
+                        mChildSliceEnd = searchChildPosition(childCount, upper + 1, false);
+                    } else {
+                        mChildSliceStart = searchChildPosition(childCount, upper, true);
+                        mChildSliceEnd = searchChildPosition(childCount, lower - 1, true);
+                    }
+                } else {
+                    mChildSliceStart = 0;
+                    mChildSliceEnd = childCount;
+                }
+                if (mLayoutTracer != null) {
+                    mLayoutTracer.beginHelperSection(layoutHelper, LayoutTracer.PHASE_ADJUST_LAYOUT);
+                }
+                try {
+                    layoutHelper.adjustLayout(startPosition, endPosition, this);
+                } catch (Exception e) {
+                    if (VLayoutUtils.isDebug) {
+                        throw e;
+                    }
+                } finally {
+                    if (mLayoutTracer != null) {
+                        mLayoutTracer.endSection();
+                    }
                 }
             }
+        } finally {
+            mChildSliceStart = -1;
+            mChildSliceEnd = -1;
+        }
+    }
+
+    /**
+     * 在有序的子视图位置中查找第一个越过target的下标
+     *
+     * @param descending 位置是否降序排列
+     * @return 升序时为第一个位置大于等于target的下标，降序时为第一个位置小于等于target的下标
+     */
+    private int searchChildPosition(int childCount, int target, boolean descending) {
+        int s = 0, e = childCount;
+        while (s < e) {
+            final int m = (s + e) >>> 1;
+            final int position = mChildPositions[m];
+            if (descending ? position > target : position < target) {
+                s = m + 1;
+            } else {
+                e = m;
+            }
         }
+        return s;
+    }
+
+    @Override
+    public int getChildSliceStart() {
+        return mChildSliceStart < 0 ? 0 : mChildSliceStart;
+    }
+
+    @Override
+    public int getChildSliceEnd() {
+        return mChildSliceEnd < 0 ? getChildCount() : mChildSliceEnd;
     }
 
     @Override
     public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
         Trace.beginSection(TRACE_LAYOUT);
+        mTraceChunkCount = 0;
+        mTraceGapFixCount = 0;
+
+        invalidatePositionTable();
+        // 重新布局时超出范围的子视图会被直接回收
+        mRetainedRecycler = null;
 
         if (mNoScrolling && state.didStructureChange()) {
             mSpaceMeasured = false;
             mSpaceMeasuring = true;
         }
 
+        final boolean virtualized = isVirtualizedNestedScrolling() && !state.isPreLayout();
+        if (virtualized) {
+            prepareVirtualLayout(state);
+        }
+        prepareProgressiveFill(state);
+
+        final boolean preLayout = state.isPreLayout();
+        if (preLayout) {
+            enterPreLayout();
+        }
 
         runPreLayout(recycler, state);
 
@@ -527,8 +829,22 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             e.printStackTrace();
             throw e;
         } finally {
+            mVirtualLayouting = false;
+            finishProgressiveFill();
             // MaX_VALUE 表示滚动偏移无效-无滚动
             runPostLayout(recycler, state, Integer.MAX_VALUE); // hack表示其初始布局
+            if (preLayout) {
+                exitPreLayout();
+            }
+        }
+
+        if (!preLayout) {
+            commitLayoutRanges();
+            publishLayoutState();
+        }
+
+        if (virtualized) {
+            finishVirtualLayout(state);
         }
 
 
@@ -563,6 +879,7 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             }
         }
 
+        traceCounters();
         Trace.endSection();
     }
 
@@ -573,6 +890,22 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
     @Override
     protected int scrollInternalBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
         Trace.beginSection(TRACE_SCROLL);
+        final boolean outermost = mNested == 0;
+        if (outermost) {
+            mTraceChunkCount = 0;
+            mTraceGapFixCount = 0;
+
+            // 嵌套的滚动是同一次滚动的一部分，只统计最外层的距离
+            mScrollVelocityTracker.onScroll(dy);
+            dispatchFlingState();
+
+            if (mLayoutSpacePolicy != null) {
+                recycleOffset = mBaseRecycleOffset + mLayoutSpacePolicy.getRecycleOffset(mOrientationHelper.getTotalSpace());
+                if (recycleOffset != mBaseRecycleOffset) {
+                    mRetainedRecycler = recycler;
+                }
+            }
+        }
 
         runPreLayout(recycler, state);
 
@@ -608,6 +941,10 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             runPostLayout(recycler, state, scrolled);
         }
 
+        if (outermost) {
+            publishLayoutState();
+            traceCounters();
+        }
         Trace.endSection();
 
         return scrolled;
@@ -617,26 +954,58 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
     public void onScrollStateChanged(int state) {
         super.onScrollStateChanged(state);
 
+        mScrollVelocityTracker.onScrollStateChanged(state);
+        dispatchFlingState();
+        if (state == RecyclerView.SCROLL_STATE_IDLE && !mLaneTouching) {
+            resetActiveLane();
+        }
+
+        if (mLayoutSpacePolicy != null && state == RecyclerView.SCROLL_STATE_IDLE
+                && recycleOffset != mBaseRecycleOffset) {
+            recycleOffset = mBaseRecycleOffset;
+            // 滚动状态可能在滚动或布局的过程中改变，回收放到post中执行
+            if (mRetainedRecycler != null && mRecyclerView != null) {
+                mRecyclerView.removeCallbacks(mRecycleRetainedRunnable);
+                mRecyclerView.post(mRecycleRetainedRunnable);
+            }
+        }
+
         int startPosition = findFirstVisibleItemPosition();
         int endPosition = findLastVisibleItemPosition();
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-        Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-        LayoutHelper layoutHelper = null;
-        while (iterator.hasNext()) {
-            layoutHelper = iterator.next();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
             layoutHelper.onScrollStateChanged(state, startPosition, endPosition, this);
         }
     }
 
+    /**
+     * 停止滚动后回收快速滑动时保留的、已经完全超出回收范围的子视图
+     */
+    private void recycleRetainedChildren(RecyclerView.Recycler recycler) {
+        final int start = mOrientationHelper.getStartAfterPadding() - recycleOffset;
+        final int end = mOrientationHelper.getEndAfterPadding() + recycleOffset;
+        final int childCount = getChildCount();
+        int first = 0;
+        while (first < childCount && mOrientationHelper.getDecoratedEnd(getChildAt(first)) < start) {
+            first++;
+        }
+        int last = childCount;
+        while (last > first && mOrientationHelper.getDecoratedStart(getChildAt(last - 1)) > end) {
+            last--;
+        }
+        // 先从末尾向前回收尾部，保证头部的下标不变
+        recycleChildren(recycler, childCount - 1, last - 1);
+        recycleChildren(recycler, 0, first);
+    }
+
     @Override
     public void offsetChildrenHorizontal(int dx) {
         super.offsetChildrenHorizontal(dx);
 
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-        Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-        LayoutHelper layoutHelper = null;
-        while (iterator.hasNext()) {
-            layoutHelper = iterator.next();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
             layoutHelper.onOffsetChildrenHorizontal(dx, this);
 
         }
@@ -646,10 +1015,8 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
     public void offsetChildrenVertical(int dy) {
         super.offsetChildrenVertical(dy);
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-        Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-        LayoutHelper layoutHelper = null;
-        while (iterator.hasNext()) {
-            layoutHelper = iterator.next();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
             layoutHelper.onOffsetChildrenVertical(dy, this);
         }
 
@@ -672,126 +1039,438 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     private LayoutStateWrapper mTempLayoutStateWrapper = new LayoutStateWrapper();
 
-    private List<Pair<Range<Integer>, Integer>> mRangeLengths = new ArrayList<>();
-
-    @Nullable
-    private int findRangeLength(@NonNull final Range<Integer> range) {
-        final int count = mRangeLengths.size();
-        if (count == 0) {
-            return -1;
-        }
+    /**
+     * 每个布局块消耗的长度，按起始位置升序保存，使用基本类型数组避免滚动时装箱和创建对象
+     */
+    private int[] mRangeStarts = new int[16];
+    private int[] mRangeEnds = new int[16];
+    private int[] mRangeConsumed = new int[16];
+    private int mRangeCount = 0;
 
-        int s = 0, e = count - 1, m = -1;
-        Pair<Range<Integer>, Integer> rs = null;
+    private int findRangeLength(final int lower, final int upper) {
+        int s = 0, e = mRangeCount - 1;
 
         // 二进制搜索范围
         while (s <= e) {
-            m = (s + e) / 2;
-            rs = mRangeLengths.get(m);
-
-            Range<Integer> r = rs.first;
-            if (r == null) {
-                rs = null;
-                break;
-            }
+            final int m = (s + e) >>> 1;
+            final int rl = mRangeStarts[m];
+            final int ru = mRangeEnds[m];
 
-            if (r.contains(range.getLower()) || r.contains(range.getUpper()) || range.contains(r)) {
-                break;
-            } else if (r.getLower() > range.getUpper()) {
+            if (rl > upper) {
                 e = m - 1;
-            } else if (r.getUpper() < range.getLower()) {
+            } else if (ru < lower) {
                 s = m + 1;
+            } else {
+                return m;
             }
-
-            rs = null;
         }
 
-        return rs == null ? -1 : m;
+        return -1;
     }
 
-
-    @Override
-    protected void layoutChunk(RecyclerView.Recycler recycler, RecyclerView.State state, LayoutState layoutState, com.ashlikun.vlayout.layout.LayoutChunkResult result) {
-        final int position = layoutState.mCurrentPosition;
-        mTempLayoutStateWrapper.mLayoutState = layoutState;
-        LayoutHelper layoutHelper = mHelperFinder == null ? null : mHelperFinder.getLayoutHelper(position);
-        if (layoutHelper == null) {
-            layoutHelper = mDefaultLayoutHelper;
+    private void insertRangeLength(final int lower, final int upper, final int consumed) {
+        if (mRangeCount == mRangeStarts.length) {
+            final int newLength = mRangeCount * 2;
+            mRangeStarts = Arrays.copyOf(mRangeStarts, newLength);
+            mRangeEnds = Arrays.copyOf(mRangeEnds, newLength);
+            mRangeConsumed = Arrays.copyOf(mRangeConsumed, newLength);
         }
-
-        layoutHelper.doLayout(recycler, state, mTempLayoutStateWrapper, result, this);
-
-
-        mTempLayoutStateWrapper.mLayoutState = null;
-
-
-        // no item consumed
-        if (layoutState.mCurrentPosition == position) {
-            if (VLayoutUtils.isDebug) {
-                Log.w(TAG, "layoutHelper[" + layoutHelper.getClass().getSimpleName() + "@" + layoutHelper.toString() + "] consumes no item!");
-            }
-            // 因未消耗项目而中断
-            result.mFinished = true;
-        } else {
-            // 更新每个布局Chuck通道中消耗的高度
-            final int positionAfterLayout = layoutState.mCurrentPosition - layoutState.mItemDirection;
-            final int consumed = result.mIgnoreConsumed ? 0 : result.mConsumed;
-
-            // TODO: 支持reverseLayout时发生更改
-            Range<Integer> range = new Range<>(Math.min(position, positionAfterLayout), Math.max(position, positionAfterLayout));
-
-            final int idx = findRangeLength(range);
-            if (idx >= 0) {
-                Pair<Range<Integer>, Integer> pair = mRangeLengths.get(idx);
-                if (pair != null && pair.first.equals(range) && pair.second == consumed) {
-                    return;
-                }
-
-                mRangeLengths.remove(idx);
-            }
-
-            mRangeLengths.add(Pair.create(range, consumed));
-            Collections.sort(mRangeLengths, mRangeComparator);
+        int idx = mRangeCount;
+        while (idx > 0 && mRangeStarts[idx - 1] > lower) {
+            idx--;
+        }
+        final int moved = mRangeCount - idx;
+        if (moved > 0) {
+            System.arraycopy(mRangeStarts, idx, mRangeStarts, idx + 1, moved);
+            System.arraycopy(mRangeEnds, idx, mRangeEnds, idx + 1, moved);
+            System.arraycopy(mRangeConsumed, idx, mRangeConsumed, idx + 1, moved);
         }
+        mRangeStarts[idx] = lower;
+        mRangeEnds[idx] = upper;
+        mRangeConsumed[idx] = consumed;
+        mRangeCount++;
     }
 
-
     /**
-     * 返回与顶部相关的当前位置，仅在从顶部滚动时有效
+     * 插入或删除项目后平移之后的块，跨过变化位置的块先拆开，删除的部分按项目数扣除消耗的长度
      *
-     * @return 从当前位置到RecycledView原始顶部的偏移
+     * @param removed true为删除，false为插入
      */
-    public int getOffsetToStart() {
-        if (getChildCount() == 0) {
-            return -1;
+    private void offsetRangeLengths(int positionStart, int itemCount, boolean removed) {
+        if (removed) {
+            dropRangeLengths(positionStart, positionStart + itemCount - 1);
+        } else {
+            splitRangeLength(positionStart);
         }
+        final int delta = removed ? -itemCount : itemCount;
+        for (int i = 0; i < mRangeCount; i++) {
+            if (mRangeStarts[i] >= positionStart) {
+                mRangeStarts[i] += delta;
+                mRangeEnds[i] += delta;
+            }
+        }
+    }
 
-        final View view = getChildAt(0);
-
-        if (view == null) {
-            //例如，在某些情况下，在结束活动破坏时调用此方法可能会导致npe
-            return -1;
+    /**
+     * 丢弃[lower, upper]内的块，只有一部分在区间内的块（包括合并过的块）拆开后保留区间外的部分
+     */
+    private void dropRangeLengths(int lower, int upper) {
+        splitRangeLength(lower);
+        splitRangeLength(upper + 1);
+        int count = 0;
+        for (int i = 0; i < mRangeCount; i++) {
+            if (mRangeStarts[i] >= lower && mRangeEnds[i] <= upper) {
+                continue;
+            }
+            mRangeStarts[count] = mRangeStarts[i];
+            mRangeEnds[count] = mRangeEnds[i];
+            mRangeConsumed[count] = mRangeConsumed[i];
+            count++;
         }
+        mRangeCount = count;
+    }
 
-        int position = getPosition(view);
-        final int idx = findRangeLength(Range.create(position, position));
-        if (idx < 0 || idx >= mRangeLengths.size()) {
-            return -1;
+    /**
+     * 把包含position但不从position开始的块拆成两块，消耗的长度按项目数分配
+     */
+    private void splitRangeLength(int position) {
+        final int idx = findRangeLength(position, position);
+        if (idx < 0 || mRangeStarts[idx] == position) {
+            return;
         }
+        final int start = mRangeStarts[idx];
+        final int end = mRangeEnds[idx];
+        final int consumed = mRangeConsumed[idx];
+        final int leftConsumed = (int) ((long) consumed * (position - start) / (end - start + 1));
+        mRangeEnds[idx] = position - 1;
+        mRangeConsumed[idx] = leftConsumed;
+        insertRangeLength(position, end, consumed - leftConsumed);
+    }
 
-        int offset = -mOrientationHelper.getDecoratedStart(view);
-        for (int i = 0; i < idx; i++) {
-            Pair<Range<Integer>, Integer> pair = mRangeLengths.get(i);
-            if (pair != null) {
-                offset += pair.second;
+    /**
+     * 合并[keepLower, keepUpper]之外首尾相连的块，总长度不变，计算偏移的结果不受影响。
+     * 之后重新布局或修改其中一部分时由{@link #dropRangeLengths(int, int)}拆开，其余部分按项目数保留估算的长度
+     *
+     * @return 减少的块数
+     */
+    private int compactRangeLengths(int keepLower, int keepUpper) {
+        if (mRangeCount < 2) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 1; i < mRangeCount; i++) {
+            final int last = count - 1;
+            final boolean lastFar = mRangeEnds[last] < keepLower || mRangeStarts[last] > keepUpper;
+            final boolean far = mRangeEnds[i] < keepLower || mRangeStarts[i] > keepUpper;
+            if (lastFar && far && mRangeEnds[last] + 1 == mRangeStarts[i]) {
+                mRangeEnds[last] = mRangeEnds[i];
+                mRangeConsumed[last] += mRangeConsumed[i];
+            } else {
+                mRangeStarts[count] = mRangeStarts[i];
+                mRangeEnds[count] = mRangeEnds[i];
+                mRangeConsumed[count] = mRangeConsumed[i];
+                count++;
             }
         }
+        final int removed = mRangeCount - count;
+        mRangeCount = count;
+        return removed;
+    }
 
-        return offset;
+    /**
+     * 数组容量远大于块数时缩小
+     *
+     * @return 释放的字节数
+     */
+    private long shrinkRangeLengths() {
+        final int capacity = mRangeStarts.length;
+        final int newCapacity = Math.max(16, mRangeCount + (mRangeCount >> 1));
+        if (newCapacity >= capacity) {
+            return 0;
+        }
+        mRangeStarts = Arrays.copyOf(mRangeStarts, newCapacity);
+        mRangeEnds = Arrays.copyOf(mRangeEnds, newCapacity);
+        mRangeConsumed = Arrays.copyOf(mRangeConsumed, newCapacity);
+        return (long) (capacity - newCapacity) * 3 * 4;
     }
 
+    private boolean mAutoTrimMemory = false;
 
-    private static LayoutHelper DEFAULT_LAYOUT_HELPER = new DefaultLayoutHelper();
+    private ComponentCallbacks2 mTrimMemoryCallbacks;
+
+    /**
+     * 开启后附加到窗口时注册{@link ComponentCallbacks2}，收到系统通知时自动调用{@link #trimMemory(int)}
+     */
+    public void setAutoTrimMemory(boolean autoTrimMemory) {
+        if (mAutoTrimMemory == autoTrimMemory) {
+            return;
+        }
+        mAutoTrimMemory = autoTrimMemory;
+        if (mRecyclerView != null) {
+            updateTrimMemoryCallbacks(mRecyclerView.getContext(), autoTrimMemory);
+        }
+    }
+
+    private void updateTrimMemoryCallbacks(Context context, boolean register) {
+        final Context appContext = context.getApplicationContext();
+        if (register && mTrimMemoryCallbacks == null) {
+            mTrimMemoryCallbacks = new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    trimMemory(level);
+                }
+
+                @Override
+                public void onConfigurationChanged(@NonNull Configuration newConfig) {
+                }
+
+                @Override
+                public void onLowMemory() {
+                    trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+                }
+            };
+            appContext.registerComponentCallbacks(mTrimMemoryCallbacks);
+        } else if (!register && mTrimMemoryCallbacks != null) {
+            appContext.unregisterComponentCallbacks(mTrimMemoryCallbacks);
+            mTrimMemoryCallbacks = null;
+        }
+    }
+
+    /**
+     * 内存紧张时释放离可见区域较远的缓存：压缩块长度记录、缩小临时数组、
+     * 通知所有LayoutHelper，并按level销毁{@link InnerRecycledViewPool}或{@link MultiFeedViewPool}中的ViewHolder
+     *
+     * @param level {@link ComponentCallbacks2}中的TRIM_MEMORY_*
+     * @return 估算释放的字节数，不包括销毁的ViewHolder占用的内存
+     */
+    public long trimMemory(int level) {
+        final int childCount = getChildCount();
+        final int startPosition = childCount == 0 ? RecyclerView.NO_POSITION : findFirstVisibleItemPosition();
+        final int endPosition = childCount == 0 ? RecyclerView.NO_POSITION : findLastVisibleItemPosition();
+        long reclaimed = 0;
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // 保留可见区域前后各两屏的块，其余合并
+            final int visibleCount = Math.max(endPosition - startPosition + 1, 1);
+            compactRangeLengths(startPosition - visibleCount * 2, endPosition + visibleCount * 2);
+        }
+        reclaimed += shrinkRangeLengths();
+
+        if (mPositionTable.length > 64) {
+            reclaimed += (long) (mPositionTable.length - 64) * 4;
+            mPositionTable = new int[64];
+            invalidatePositionTable();
+        }
+        if (mChildPositions.length > 32) {
+            reclaimed += (long) (mChildPositions.length - 32) * 4;
+            mChildPositions = new int[32];
+        }
+
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            reclaimed += layoutHelpers.get(i).trimMemory(level, startPosition, endPosition, this);
+        }
+
+        if (mViewLifeCycleHelper != null) {
+            // HashMap每条记录按32字节估算
+            reclaimed += mViewLifeCycleHelper.trim() * 32L;
+        }
+
+        if (mRecyclerView != null) {
+            final RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+            if (pool instanceof InnerRecycledViewPool) {
+                ((InnerRecycledViewPool) pool).trimMemory(level);
+            } else if (pool instanceof MultiFeedViewPool.HostPool) {
+                ((MultiFeedViewPool.HostPool) pool).trimMemory(level);
+            }
+        }
+        return reclaimed;
+    }
+
+
+    @Override
+    protected void layoutChunk(RecyclerView.Recycler recycler, RecyclerView.State state, LayoutState layoutState, com.ashlikun.vlayout.layout.LayoutChunkResult result) {
+        final int position = layoutState.mCurrentPosition;
+        mTempLayoutStateWrapper.mLayoutState = layoutState;
+        LayoutHelper layoutHelper = getLayoutHelper(position);
+        if (layoutHelper == null) {
+            layoutHelper = mDefaultLayoutHelper;
+        }
+
+        if (mLayoutTracer != null) {
+            mTraceChunkCount++;
+            mLayoutTracer.beginHelperSection(layoutHelper, LayoutTracer.PHASE_DO_LAYOUT);
+            try {
+                layoutHelper.doLayout(recycler, state, mTempLayoutStateWrapper, result, this);
+            } finally {
+                mLayoutTracer.endSection();
+            }
+        } else {
+            layoutHelper.doLayout(recycler, state, mTempLayoutStateWrapper, result, this);
+        }
+
+
+        mTempLayoutStateWrapper.mLayoutState = null;
+
+
+        // no item consumed
+        if (layoutState.mCurrentPosition == position) {
+            if (VLayoutUtils.isDebug) {
+                Log.w(TAG, "layoutHelper[" + layoutHelper.getClass().getSimpleName() + "@" + layoutHelper.toString() + "] consumes no item!");
+            }
+            // 因未消耗项目而中断
+            result.mFinished = true;
+        } else if (!mInPreLayout) {
+            // 预布局中的位置是旧位置，不记录块长度
+            // 更新每个布局Chuck通道中消耗的高度
+            final int positionAfterLayout = layoutState.mCurrentPosition - layoutState.mItemDirection;
+            final int consumed = result.mIgnoreConsumed ? 0 : result.mConsumed;
+
+            // TODO: 支持reverseLayout时发生更改
+            final int lower = Math.min(position, positionAfterLayout);
+            final int upper = Math.max(position, positionAfterLayout);
+
+            if (lower == 0 && mVirtualLayouting) {
+                mVirtualFirstChunkStart = layoutState.mLayoutDirection == LayoutState.LAYOUT_END
+                        ? layoutState.mOffset : layoutState.mOffset - consumed;
+            }
+
+            final int idx = findRangeLength(lower, upper);
+            if (idx >= 0) {
+                if (mRangeStarts[idx] == lower && mRangeEnds[idx] == upper && mRangeConsumed[idx] == consumed) {
+                    return;
+                }
+
+                // 只替换重叠的部分，合并过的块其余部分仍然保留
+                dropRangeLengths(lower, upper);
+            }
+
+            insertRangeLength(lower, upper, consumed);
+        }
+    }
+
+
+    /**
+     * 返回与顶部相关的当前位置，仅在从顶部滚动时有效
+     *
+     * @return 从当前位置到RecycledView原始顶部的偏移
+     */
+    public int getOffsetToStart() {
+        if (getChildCount() == 0) {
+            return -1;
+        }
+
+        final View view = getChildAt(0);
+
+        if (view == null) {
+            //例如，在某些情况下，在结束活动破坏时调用此方法可能会导致npe
+            return -1;
+        }
+
+        int position = getPosition(view);
+        final int idx = findRangeLength(position, position);
+        if (idx < 0 || idx >= mRangeCount) {
+            return -1;
+        }
+
+        int offset = -mOrientationHelper.getDecoratedStart(view);
+        for (int i = 0; i < idx; i++) {
+            offset += mRangeConsumed[i];
+        }
+
+        return offset;
+    }
+
+    /**
+     * 双缓冲：主线程只写入没有发布的一份，写完后替换mPublishedState
+     */
+    private final LayoutStateSnapshot[] mStateBuffers = new LayoutStateSnapshot[2];
+
+    private volatile LayoutStateSnapshot mPublishedState;
+
+    private boolean mPublishLayoutState = false;
+
+    private long mPublishedFrame = 0;
+
+    /**
+     * 开启后每次布局和滚动结束时发布布局状态，后台线程通过{@link #readLayoutState(LayoutStateSnapshot)}读取
+     */
+    public void setPublishLayoutState(boolean publishLayoutState) {
+        mPublishLayoutState = publishLayoutState;
+        if (publishLayoutState) {
+            if (mStateBuffers[0] == null) {
+                mStateBuffers[0] = new LayoutStateSnapshot();
+                mStateBuffers[1] = new LayoutStateSnapshot();
+            }
+            publishLayoutState();
+        } else {
+            mPublishedState = null;
+        }
+    }
+
+    /**
+     * 复制最新发布的布局状态，可以在任意线程调用，不加锁
+     *
+     * @param out 调用方持有的快照
+     * @return 没有开启{@link #setPublishLayoutState(boolean)}时返回false
+     */
+    public boolean readLayoutState(@NonNull LayoutStateSnapshot out) {
+        while (true) {
+            final LayoutStateSnapshot published = mPublishedState;
+            if (published == null) {
+                return false;
+            }
+            final int sequence = published.mSequence.get();
+            if ((sequence & 1) != 0) {
+                // 读到的是正在被覆盖的旧缓冲，重新读取mPublishedState
+                continue;
+            }
+            out.copyFrom(published);
+            // compareAndSet保证复制的读取不会被重排到校验之后
+            if (published.mSequence.compareAndSet(sequence, sequence)) {
+                return true;
+            }
+        }
+    }
+
+    private void publishLayoutState() {
+        if (!mPublishLayoutState) {
+            return;
+        }
+        final LayoutStateSnapshot target = mPublishedState == mStateBuffers[0] ? mStateBuffers[1] : mStateBuffers[0];
+        final List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        final int helperCount = layoutHelpers.size();
+        final int childCount = getChildCount();
+
+        target.mSequence.incrementAndGet();
+        target.ensureCapacity(helperCount, childCount);
+        target.mFrame = ++mPublishedFrame;
+        target.mFirstVisiblePosition = findFirstVisibleItemPosition();
+        target.mLastVisiblePosition = findLastVisibleItemPosition();
+        target.mOffsetToStart = getOffsetToStart();
+        for (int i = 0; i < helperCount; i++) {
+            final Range<Integer> range = layoutHelpers.get(i).getRange();
+            target.mHelperLowers[i] = range.getLower();
+            target.mHelperUppers[i] = range.getUpper();
+        }
+        target.mHelperCount = helperCount;
+        final int[] bounds = target.mChildBounds;
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            target.mChildPositions[i] = getPosition(child);
+            bounds[i * 4] = getDecoratedLeft(child);
+            bounds[i * 4 + 1] = getDecoratedTop(child);
+            bounds[i * 4 + 2] = getDecoratedRight(child);
+            bounds[i * 4 + 3] = getDecoratedBottom(child);
+        }
+        target.mChildCount = childCount;
+        target.mSequence.incrementAndGet();
+
+        mPublishedState = target;
+    }
+
+
+    private static LayoutHelper DEFAULT_LAYOUT_HELPER = new DefaultLayoutHelper();
 
     private LayoutHelper mDefaultLayoutHelper = DEFAULT_LAYOUT_HELPER;
 
@@ -826,9 +1505,21 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
     }
 
 
+    /**
+     * 所有layoutHelper都遵守{@link LayoutHelper#isInPreLayout()}中的预布局约定时才支持预测动画
+     */
     @Override
     public boolean supportsPredictiveItemAnimations() {
-        return mCurrentPendingSavedState == null;
+        if (mCurrentPendingSavedState != null) {
+            return false;
+        }
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            if (!layoutHelpers.get(i).supportsPredictiveItemAnimations()) {
+                return false;
+            }
+        }
+        return true;
     }
 
 
@@ -841,31 +1532,69 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
      */
     @Override
     public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
-        onItemsChanged(recyclerView);
+        invalidatePositionTable();
+        offsetRangeLengths(positionStart, itemCount, false);
+        // 只通知插入位置之后的LayoutHelper，之前的和空范围的不受影响
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
+            if (layoutHelper.getRange().getUpper() >= positionStart) {
+                layoutHelper.onItemsAdded(positionStart, itemCount, this);
+            }
+        }
     }
 
     @Override
     public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
-        onItemsChanged(recyclerView);
+        invalidatePositionTable();
+        offsetRangeLengths(positionStart, itemCount, true);
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
+            if (layoutHelper.getRange().getUpper() >= positionStart) {
+                layoutHelper.onItemsRemoved(positionStart, itemCount, this);
+            }
+        }
     }
 
     @Override
     public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
-        onItemsChanged(recyclerView);
+        // 位置不变，块长度仍然可以作为估算
+        final int positionEnd = positionStart + itemCount - 1;
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
+            if (intersects(layoutHelper.getRange(), positionStart, positionEnd)) {
+                layoutHelper.onItemsUpdated(positionStart, itemCount, this);
+            }
+        }
     }
 
     @Override
     public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
-        onItemsChanged(recyclerView);
+        invalidatePositionTable();
+        final int lower = Math.min(from, to);
+        final int upper = Math.max(from, to) + itemCount - 1;
+        dropRangeLengths(lower, upper);
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
+            if (intersects(layoutHelper.getRange(), lower, upper)) {
+                layoutHelper.onItemsMoved(from, to, itemCount, this);
+            }
+        }
+    }
+
+    private static boolean intersects(Range<Integer> range, int lower, int upper) {
+        return range.getUpper() >= lower && range.getLower() <= upper;
     }
 
     @Override
     public void onItemsChanged(RecyclerView recyclerView) {
+        invalidatePositionTable();
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-        Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-        LayoutHelper layoutHelper = null;
-        while (iterator.hasNext()) {
-            layoutHelper = iterator.next();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
             layoutHelper.onItemsChanged(this);
         }
 
@@ -912,20 +1641,33 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
     public void onAttachedToWindow(RecyclerView view) {
         super.onAttachedToWindow(view);
         mRecyclerView = view;
+        updateAncestorScrollListener(view);
+        mLaneTouchSlop = ViewConfiguration.get(view.getContext()).getScaledTouchSlop();
+        view.addOnItemTouchListener(mLaneTouchListener);
+        if (mAutoTrimMemory) {
+            updateTrimMemoryCallbacks(view.getContext(), true);
+        }
     }
 
     @Override
     public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
         super.onDetachedFromWindow(view, recycler);
+        view.removeCallbacks(mRecycleRetainedRunnable);
+        mRetainedRecycler = null;
+        cancelProgressiveFill();
 
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-        Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-        LayoutHelper layoutHelper = null;
-        while (iterator.hasNext()) {
-            layoutHelper = iterator.next();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
             layoutHelper.clear(this);
         }
 
+        mOverlayFixedViews.clear();
+        updateAncestorScrollListener(null);
+        view.removeOnItemTouchListener(mLaneTouchListener);
+        mLaneTouching = false;
+        resetActiveLane();
+        updateTrimMemoryCallbacks(view.getContext(), false);
         mRecyclerView = null;
     }
 
@@ -1148,10 +1890,8 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         // TODO: support zIndex?
         List<View> views = new LinkedList<>();
         List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
-        Iterator<LayoutHelper> iterator = layoutHelpers.iterator();
-        LayoutHelper layoutHelper = null;
-        while (iterator.hasNext()) {
-            layoutHelper = iterator.next();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
             View fixedView = layoutHelper.getFixedView();
             if (fixedView != null) {
                 views.add(fixedView);
@@ -1196,6 +1936,7 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     @Override
     public void addChildView(View view, int index) {
+        invalidatePositionTable();
         super.addView(view, index);
     }
 
@@ -1239,18 +1980,31 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     @Override
     public void addFixedView(View view) {
-        //removeChildView(view);
-        //mFixedContainer.addView(view);
+        if (mFixViewOverlayEnabled) {
+            if (isFixedViewHosted(view)) {
+                // 已经在浮层中，无需重复添加
+                return;
+            }
+            addOffFlowView(view, false);
+            mOverlayFixedViews.add(view);
+            return;
+        }
         addOffFlowView(view, false);
     }
 
     @Override
     public void hideView(View view) {
+        invalidatePositionTable();
         super.hideView(view);
     }
 
     @Override
     public void showView(View view) {
+        if (!mOverlayFixedViews.isEmpty()) {
+            // 回到正常流中，不再由浮层托管
+            mOverlayFixedViews.remove(view);
+        }
+        invalidatePositionTable();
         super.showView(view);
     }
 
@@ -1276,6 +2030,9 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     @Override
     public void removeChildView(View child) {
+        if (!mOverlayFixedViews.isEmpty()) {
+            mOverlayFixedViews.remove(child);
+        }
         removeView(child);
     }
 
@@ -1311,7 +2068,8 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         if (layoutManagerCanScrollListener != null) {
             ret = ret && layoutManagerCanScrollListener.canScrollHorizontally();
         }
-        return mCanScrollHorizontally && !mNoScrolling && ret;
+        final boolean laneScrolling = mActiveLane != null && mLaneAxis != LANE_AXIS_VERTICAL;
+        return (mCanScrollHorizontally || laneScrolling) && !mNoScrolling && ret;
     }
 
     @Override
@@ -1320,7 +2078,98 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         if (layoutManagerCanScrollListener != null) {
             ret = ret && layoutManagerCanScrollListener.canScrollVertically();
         }
-        return mCanScrollVertically && !mNoScrolling && ret;
+        return mCanScrollVertically && !mNoScrolling && !isVirtualizedNestedScrolling()
+                && mLaneAxis != LANE_AXIS_HORIZONTAL && ret;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (getOrientation() == VERTICAL) {
+            return mActiveLane == null ? 0 : mActiveLane.scrollHorizontallyBy(dx, recycler, this);
+        }
+        return super.scrollHorizontallyBy(dx, recycler, state);
+    }
+
+    /*
+     * 横向滚动的行：按下时选中手指下方的行，滑动超过阈值后锁定方向，横向滚动和惯性滑动都交给选中的行
+     */
+
+    private static final int LANE_AXIS_NONE = 0;
+
+    private static final int LANE_AXIS_HORIZONTAL = 1;
+
+    private static final int LANE_AXIS_VERTICAL = 2;
+
+    private HorizontalLaneLayoutHelper mActiveLane = null;
+
+    private int mLaneAxis = LANE_AXIS_NONE;
+
+    private boolean mLaneTouching = false;
+
+    private int mLaneTouchSlop;
+
+    private float mLaneDownX;
+
+    private float mLaneDownY;
+
+    private final RecyclerView.OnItemTouchListener mLaneTouchListener = new RecyclerView.SimpleOnItemTouchListener() {
+        @Override
+        public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+            onLaneTouchEvent(rv, e);
+            // 只记录状态，拖动仍然由RecyclerView处理
+            return false;
+        }
+    };
+
+    private void onLaneTouchEvent(RecyclerView rv, MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mLaneTouching = true;
+                mLaneAxis = LANE_AXIS_NONE;
+                mLaneDownX = e.getX();
+                mLaneDownY = e.getY();
+                mActiveLane = getOrientation() == VERTICAL ? findLaneUnder((int) mLaneDownY) : null;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mActiveLane != null && mLaneAxis == LANE_AXIS_NONE) {
+                    final float dx = Math.abs(e.getX() - mLaneDownX);
+                    final float dy = Math.abs(e.getY() - mLaneDownY);
+                    if (dx > mLaneTouchSlop || dy > mLaneTouchSlop) {
+                        mLaneAxis = dx > dy ? LANE_AXIS_HORIZONTAL : LANE_AXIS_VERTICAL;
+                    }
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mLaneTouching = false;
+                // 惯性滑动结束后在onScrollStateChanged中重置
+                if (rv.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+                    resetActiveLane();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Nullable
+    private HorizontalLaneLayoutHelper findLaneUnder(int y) {
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            View child = getChildAt(i);
+            if (child == null || y < getDecoratedTop(child) || y >= getDecoratedBottom(child)) {
+                continue;
+            }
+            LayoutHelper layoutHelper = getLayoutHelper(getPosition(child));
+            if (layoutHelper instanceof HorizontalLaneLayoutHelper) {
+                return (HorizontalLaneLayoutHelper) layoutHelper;
+            }
+        }
+        return null;
+    }
+
+    private void resetActiveLane() {
+        mActiveLane = null;
+        mLaneAxis = LANE_AXIS_NONE;
     }
 
     @Override
@@ -1348,6 +2197,12 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
         }
     }
 
+    /**
+     * recycleChildren时按回收顺序保存的子项和位置
+     */
+    private View[] mRecycleViews = new View[16];
+    private int[] mRecyclePositions = new int[16];
+
     @Override
     protected void recycleChildren(RecyclerView.Recycler recycler, int startIndex, int endIndex) {
         if (startIndex == endIndex) {
@@ -1358,57 +2213,76 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             Log.d(TAG, "Recycling " + Math.abs(startIndex - endIndex) + " items");
         }
 
-        if (endIndex > startIndex) {
+        final boolean fromStart = endIndex > startIndex;
+        final int count = Math.abs(startIndex - endIndex);
+        final int step = fromStart ? 1 : -1;
 
-            View endView = getChildAt(endIndex - 1);
-            View startView = getChildAt(startIndex);
+        View startView = getChildAt(fromStart ? startIndex : endIndex + 1);
+        View endView = getChildAt(fromStart ? endIndex - 1 : startIndex);
 
-            int startPos = getPosition(startView);
-            int endPos = getPosition(endView);
+        int startPos = getPosition(startView);
+        int endPos = getPosition(endView);
 
-            int idx = startIndex;
+        // 先按回收顺序取出子项和位置，删除过程中不再查找
+        if (mRecycleViews.length < count) {
+            final int capacity = Math.max(count, mRecycleViews.length * 2);
+            mRecycleViews = new View[capacity];
+            mRecyclePositions = new int[capacity];
+        }
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(startIndex + i * step);
+            mRecycleViews[i] = child;
+            mRecyclePositions[i] = getPosition(child);
+        }
 
-            for (int i = startIndex; i < endIndex; i++) {
-                View v = getChildAt(idx);
-                int pos = getPosition(v);
-                if (pos != RecyclerView.NO_POSITION) {
-                    LayoutHelper layoutHelper = mHelperFinder.getLayoutHelper(pos);
-                    if (layoutHelper == null || layoutHelper.isRecyclable(pos, startPos, endPos, this, true)) {
-                        removeAndRecycleViewAt(idx, recycler);
-                    } else {
-                        idx++;
+        // 从开始回收时删除后后面的子项前移，idx指向下一个要处理的子项；从结尾回收时删除不影响前面的子项
+        int idx = startIndex;
+        int i = 0;
+        while (i < count) {
+            final int pos = mRecyclePositions[i];
+            final LayoutHelper layoutHelper = pos == RecyclerView.NO_POSITION ? null : getLayoutHelper(pos);
+            int sliceCount = 1;
+            if (layoutHelper != null) {
+                // 同一个layoutHelper的连续子项只查找一次
+                final int lower = layoutHelper.getRange().getLower();
+                final int upper = layoutHelper.getRange().getUpper();
+                while (i + sliceCount < count) {
+                    final int next = mRecyclePositions[i + sliceCount];
+                    if (next == RecyclerView.NO_POSITION || next < lower || next > upper) {
+                        break;
                     }
-                } else {
-                    removeAndRecycleViewAt(idx, recycler);
+                    sliceCount++;
                 }
             }
-        } else {
-
-            View endView = getChildAt(startIndex);
-            View startView = getChildAt(endIndex + 1);
 
-            int startPos = getPosition(startView);
-            int endPos = getPosition(endView);
-
-            for (int i = startIndex; i > endIndex; i--) {
-                View v = getChildAt(i);
-                int pos = getPosition(v);
-                if (pos != RecyclerView.NO_POSITION) {
-                    LayoutHelper layoutHelper = mHelperFinder.getLayoutHelper(pos);
-                    if (layoutHelper == null || layoutHelper.isRecyclable(pos, startPos, endPos, this, false)) {
-                        removeAndRecycleViewAt(i, recycler);
+            while (sliceCount > 0) {
+                final int recyclable = layoutHelper == null ? sliceCount
+                        : layoutHelper.getRecyclableCount(mRecycleViews, mRecyclePositions, i, sliceCount,
+                        startPos, endPos, this, fromStart);
+                for (int r = 0; r < recyclable; r++) {
+                    removeAndRecycleViewAt(idx, recycler);
+                    if (!fromStart) {
+                        idx--;
                     }
-                } else {
-                    removeAndRecycleViewAt(i, recycler);
+                }
+                i += recyclable;
+                sliceCount -= recyclable;
+                if (sliceCount > 0) {
+                    // 保留不可回收的子项，继续判断剩余部分
+                    idx += step;
+                    i++;
+                    sliceCount--;
                 }
             }
         }
+        Arrays.fill(mRecycleViews, 0, count, null);
     }
 
-
     @Override
     public void detachAndScrapAttachedViews(RecyclerView.Recycler recycler) {
         int childCount = this.getChildCount();
+        final RecyclerView.Adapter adapter = mRecyclerView == null ? null : mRecyclerView.getAdapter();
+        final DelegateAdapter delegateAdapter = adapter instanceof DelegateAdapter ? (DelegateAdapter) adapter : null;
 
         for (int i = childCount - 1; i >= 0; --i) {
             View v = this.getChildAt(i);
@@ -1416,6 +2290,10 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
             if (holder instanceof CacheViewHolder && ((CacheViewHolder) holder).needCached()) {
                 // 标记不无效，忽略DataSetChange（），使ViewHolder自身保持数据
                 ViewHolderWrapper.setFlags(holder, 0, FLAG_INVALID | FLAG_UPDATED);
+            } else if (delegateAdapter != null && ViewHolderWrapper.isInvalid(holder)
+                    && delegateAdapter.isContentUnchanged(holder)) {
+                // 数据刷新后内容版本未变，保留绑定和测量结果；先判断无效标记，没有刷新时不需要比较版本
+                ViewHolderWrapper.setFlags(holder, 0, FLAG_INVALID | FLAG_UPDATED);
             }
         }
 
@@ -1518,58 +2396,851 @@ public class VirtualLayoutManager extends ExposeLinearLayoutManagerEx implements
 
     @Override
     public View findViewByPosition(int position) {
-        View view = super.findViewByPosition(position);
-        if (view != null && getPosition(view) == position) {
-            return view;
-        }
-
-        for (int i = 0; i < getChildCount(); i++) {
-            view = getChildAt(i);
-            if (view != null && getPosition(view) == position) {
-                return view;
-            }
-        }
-
-        return null;
+        final int index = findChildIndexByPosition(position);
+        return index >= 0 ? getChildAt(index) : null;
     }
 
-
     @Override
-    public void recycleView(View view) {
-        if (mRecyclerView != null) {
-            ViewParent parent = view.getParent();
-            if (parent != null && parent == mRecyclerView) {
-                RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
-                mRecyclerView.getRecycledViewPool().putRecycledView(holder);
-            }
+    public void ignoreView(@NonNull View view) {
+        super.ignoreView(view);
+        if (!mIgnoredViews.contains(view)) {
+            mIgnoredViews.add(view);
         }
+        invalidatePositionTable();
     }
 
     @Override
-    public LayoutHelper findLayoutHelperByPosition(int position) {
-        return mHelperFinder.getLayoutHelper(position);
+    public void stopIgnoringView(@NonNull View view) {
+        super.stopIgnoringView(view);
+        mIgnoredViews.remove(view);
+        invalidatePositionTable();
     }
 
-
-
-
     /*
-     * 扩展到完整显示视图
+     * 位置到子视图下标的映射，按需构建，子视图增删时失效，追加到末尾时直接更新
      */
 
+    /**
+     * 位置跨度超过子视图数量的这个倍数时不建表，直接遍历
+     */
+    private static final int POSITION_TABLE_MAX_SPARSITY = 4;
 
-    // 当设置为不滚动时，最大大小应该有限制
-    private static final int MAX_NO_SCROLLING_SIZE = Integer.MAX_VALUE >> 4;
+    private int[] mPositionTable = new int[64];
 
-    private boolean mSpaceMeasured = false;
+    private int mPositionTableBase = 0;
+
+    private int mPositionTableSize = 0;
+
+    private int mPositionTableChildCount = -1;
+
+    private boolean mPositionTableValid = false;
+
+    /**
+     * 建表时是否在预布局中，预布局可以找到已删除的子视图，正式布局不能
+     */
+    private boolean mPositionTablePreLayout = false;
+
+    /**
+     * 通过{@link #ignoreView(View)}忽略的子视图，与{@link RecyclerView.LayoutManager#findViewByPosition(int)}一样不参与查找
+     */
+    private final ArrayList<View> mIgnoredViews = new ArrayList<>();
+
+    private void invalidatePositionTable() {
+        mPositionTableValid = false;
+    }
+
+    /**
+     * 与{@link RecyclerView.LayoutManager#findViewByPosition(int)}的过滤一致：跳过忽略的子视图，正式布局中跳过已删除的子视图
+     */
+    private boolean isPositionCandidate(View child) {
+        if (!mInPreLayout && ((RecyclerView.LayoutParams) child.getLayoutParams()).isItemRemoved()) {
+            return false;
+        }
+        return mIgnoredViews.isEmpty() || !mIgnoredViews.contains(child);
+    }
+
+    private boolean matchesChildIndex(int index, int position) {
+        if (index < 0 || index >= getChildCount()) {
+            return false;
+        }
+        final View child = getChildAt(index);
+        return child != null && getPosition(child) == position && isPositionCandidate(child);
+    }
+
+    /**
+     * @return 是否成功建表，位置过于稀疏时返回false
+     */
+    private boolean buildPositionTable() {
+        final int childCount = getChildCount();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < childCount; i++) {
+            final int position = getPosition(getChildAt(i));
+            if (position < 0) {
+                continue;
+            }
+            if (position < min) {
+                min = position;
+            }
+            if (position > max) {
+                max = position;
+            }
+        }
+
+        mPositionTableChildCount = childCount;
+        mPositionTablePreLayout = mInPreLayout;
+        if (min > max) {
+            mPositionTableBase = 0;
+            mPositionTableSize = 0;
+            mPositionTableValid = true;
+            return true;
+        }
+
+        final int span = max - min + 1;
+        if (span > childCount * POSITION_TABLE_MAX_SPARSITY + 16) {
+            mPositionTableValid = false;
+            return false;
+        }
+        if (mPositionTable.length < span) {
+            mPositionTable = new int[Math.max(span, mPositionTable.length * 2)];
+        }
+        Arrays.fill(mPositionTable, 0, span, -1);
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            final int position = getPosition(child);
+            if (position >= 0 && isPositionCandidate(child)) {
+                mPositionTable[position - min] = i;
+            }
+        }
+        mPositionTableBase = min;
+        mPositionTableSize = span;
+        mPositionTableValid = true;
+        return true;
+    }
+
+    /**
+     * 子视图追加到末尾时更新表，下标不变的情况下不需要重建
+     */
+    private void appendPositionTable(View child, int index) {
+        if (!mPositionTableValid || mPositionTableChildCount != index || mPositionTablePreLayout != mInPreLayout) {
+            invalidatePositionTable();
+            return;
+        }
+        mPositionTableChildCount = index + 1;
+        final int position = getPosition(child);
+        if (position < 0 || !isPositionCandidate(child)) {
+            return;
+        }
+        final int offset = position - mPositionTableBase;
+        if (mPositionTableSize == 0) {
+            mPositionTableBase = position;
+            mPositionTableSize = 1;
+            mPositionTable[0] = index;
+        } else if (offset >= 0 && offset < mPositionTableSize && mPositionTable[offset] < 0) {
+            mPositionTable[offset] = index;
+        } else if (offset == mPositionTableSize && offset < mPositionTable.length) {
+            mPositionTable[offset] = index;
+            mPositionTableSize++;
+        } else {
+            invalidatePositionTable();
+        }
+    }
+
+    private int lookupPositionTable(int position) {
+        final int offset = position - mPositionTableBase;
+        if (offset < 0 || offset >= mPositionTableSize) {
+            return -1;
+        }
+        return mPositionTable[offset];
+    }
+
+    private int scanChildIndex(int position) {
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            if (matchesChildIndex(i, position)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int findChildIndexByPosition(int position) {
+        final int childCount = getChildCount();
+        if (childCount == 0) {
+            return -1;
+        }
+        if (mPositionTableValid && mPositionTableChildCount == childCount && mPositionTablePreLayout == mInPreLayout) {
+            final int index = lookupPositionTable(position);
+            if (index < 0) {
+                return -1;
+            }
+            if (matchesChildIndex(index, position)) {
+                return index;
+            }
+        } else {
+            // 表失效时先按LinearLayoutManager的方式猜测下标，填充过程中连续的子视图通常能直接命中，不需要重建
+            final int guess = position - getPosition(getChildAt(0));
+            if (matchesChildIndex(guess, position)) {
+                return guess;
+            }
+        }
+        if (!buildPositionTable()) {
+            return scanChildIndex(position);
+        }
+        final int index = lookupPositionTable(position);
+        return matchesChildIndex(index, position) ? index : -1;
+    }
+
+    @Override
+    public void addView(View child, int index) {
+        final int childCount = getChildCount();
+        super.addView(child, index);
+        if ((index == -1 || index == childCount) && getChildCount() == childCount + 1 && getChildAt(childCount) == child) {
+            appendPositionTable(child, childCount);
+        } else {
+            invalidatePositionTable();
+        }
+    }
+
+    @Override
+    public void addDisappearingView(View child, int index) {
+        invalidatePositionTable();
+        super.addDisappearingView(child, index);
+    }
+
+    @Override
+    public void removeView(View child) {
+        invalidatePositionTable();
+        super.removeView(child);
+    }
+
+    @Override
+    public void removeViewAt(int index) {
+        invalidatePositionTable();
+        super.removeViewAt(index);
+    }
+
+    @Override
+    public void detachView(@NonNull View child) {
+        invalidatePositionTable();
+        super.detachView(child);
+    }
+
+    @Override
+    public void detachViewAt(int index) {
+        invalidatePositionTable();
+        super.detachViewAt(index);
+    }
+
+    @Override
+    public void attachView(@NonNull View child, int index, RecyclerView.LayoutParams lp) {
+        invalidatePositionTable();
+        super.attachView(child, index, lp);
+    }
+
+
+    @Override
+    public void recycleView(View view) {
+        if (mRecyclerView != null) {
+            ViewParent parent = view.getParent();
+            if (parent != null && parent == mRecyclerView) {
+                RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(view);
+                mRecyclerView.getRecycledViewPool().putRecycledView(holder);
+            }
+        }
+    }
+
+    @Override
+    public LayoutHelper findLayoutHelperByPosition(int position) {
+        return getLayoutHelper(position);
+    }
+
+    /**
+     * 按当前布局过程查找layoutHelper，预布局中的位置是旧位置
+     */
+    @Nullable
+    private LayoutHelper getLayoutHelper(int position) {
+        if (mInPreLayout) {
+            return mPreLayoutHelperFinder.getLayoutHelper(position);
+        }
+        return mHelperFinder == null ? null : mHelperFinder.getLayoutHelper(position);
+    }
+
+    /**
+     * 切换到上一次布局的范围，没有参与上一次布局的layoutHelper不参与预布局
+     */
+    private void enterPreLayout() {
+        mPreLayoutHelpers.clear();
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            LayoutHelper layoutHelper = layoutHelpers.get(i);
+            layoutHelper.enterPreLayout();
+            if (layoutHelper.getRange().getLower() >= 0) {
+                mPreLayoutHelpers.add(layoutHelper);
+            }
+        }
+        mPreLayoutHelperFinder.setLayouts(mPreLayoutHelpers);
+        mInPreLayout = true;
+    }
+
+    private void exitPreLayout() {
+        mInPreLayout = false;
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            layoutHelpers.get(i).exitPreLayout();
+        }
+        mPreLayoutHelpers.clear();
+        mPreLayoutHelperFinder.setLayouts(mPreLayoutHelpers);
+    }
+
+    private void commitLayoutRanges() {
+        List<LayoutHelper> layoutHelpers = mHelperFinder.getLayoutHelpers();
+        for (int i = 0, size = layoutHelpers.size(); i < size; i++) {
+            layoutHelpers.get(i).commitLayoutRange();
+        }
+    }
+
+
+
+
+    /*
+     * 扩展到完整显示视图
+     */
+
+
+    // 当设置为不滚动时，最大大小应该有限制
+    private static final int MAX_NO_SCROLLING_SIZE = Integer.MAX_VALUE >> 4;
+
+    /*
+     * 分帧填充
+     */
+
+    private static final int PROGRESSIVE_NONE = 0;
+
+    /**
+     * 首次布局，只同步填充可见区域
+     */
+    private static final int PROGRESSIVE_VIEWPORT = 1;
+
+    /**
+     * 后续帧，在时间预算内填充额外区域
+     */
+    private static final int PROGRESSIVE_BUDGET = 2;
+
+    private static final long DEFAULT_FRAME_INTERVAL_NS = 16_666_667L;
+
+    private boolean mProgressiveFillEnabled = false;
+
+    private long mProgressiveBudgetNs = 4_000_000L;
+
+    private int mProgressiveMode = PROGRESSIVE_NONE;
+
+    private boolean mProgressivePending = false;
+
+    private boolean mProgressiveClamped = false;
+
+    private boolean mProgressiveInterrupted = false;
+
+    private long mProgressiveDeadlineNs = 0;
+
+    private long mProgressiveFrameTimeNs = 0;
+
+    private final Choreographer.FrameCallback mProgressiveFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mProgressiveFrameTimeNs = frameTimeNanos;
+            if (mRecyclerView != null && mProgressivePending) {
+                mRecyclerView.requestLayout();
+            }
+        }
+    };
+
+    /**
+     * 分帧填充：首次布局只同步填充可见区域，额外布局空间和回收偏移对应的区域在之后的帧里按时间预算继续填充。
+     * 一个LayoutHelper的块总是完整布局，不会被拆到两帧。不适用于noScrolling、nestedScrolling和虚拟化嵌套滚动
+     *
+     * @param enabled      是否开启
+     * @param budgetMillis 每帧用于填充的时间
+     */
+    public void setProgressiveFillEnabled(boolean enabled, long budgetMillis) {
+        mProgressiveFillEnabled = enabled;
+        mProgressiveBudgetNs = Math.max(1, budgetMillis) * 1_000_000L;
+        if (!enabled) {
+            cancelProgressiveFill();
+        }
+    }
+
+    private void cancelProgressiveFill() {
+        mProgressivePending = false;
+        Choreographer.getInstance().removeFrameCallback(mProgressiveFrameCallback);
+    }
+
+    private void prepareProgressiveFill(RecyclerView.State state) {
+        mProgressiveMode = PROGRESSIVE_NONE;
+        if (!mProgressiveFillEnabled || state.isPreLayout() || mNoScrolling || mNestedScrolling
+                || isVirtualizedNestedScrolling() || state.getItemCount() == 0) {
+            return;
+        }
+        mProgressiveClamped = false;
+        mProgressiveInterrupted = false;
+        if (mProgressivePending) {
+            mProgressiveMode = PROGRESSIVE_BUDGET;
+            final long now = System.nanoTime();
+            long deadline = now + mProgressiveBudgetNs;
+            if (mProgressiveFrameTimeNs > 0) {
+                // 不超过当前帧的截止时间
+                deadline = Math.min(deadline, mProgressiveFrameTimeNs + getFrameIntervalNs());
+            }
+            mProgressiveDeadlineNs = Math.max(deadline, now);
+        } else if (getChildCount() == 0) {
+            mProgressiveMode = PROGRESSIVE_VIEWPORT;
+        }
+    }
+
+    private void finishProgressiveFill() {
+        if (mProgressiveMode == PROGRESSIVE_NONE) {
+            return;
+        }
+        final boolean pending = mProgressiveMode == PROGRESSIVE_VIEWPORT ? mProgressiveClamped : mProgressiveInterrupted;
+        mProgressiveMode = PROGRESSIVE_NONE;
+        mProgressiveFrameTimeNs = 0;
+        mProgressivePending = pending;
+        if (pending) {
+            Choreographer.getInstance().postFrameCallback(mProgressiveFrameCallback);
+        }
+    }
+
+    private long getFrameIntervalNs() {
+        if (mRecyclerView != null && mRecyclerView.getDisplay() != null) {
+            final float refreshRate = mRecyclerView.getDisplay().getRefreshRate();
+            if (refreshRate >= 30) {
+                return (long) (1_000_000_000L / refreshRate);
+            }
+        }
+        return DEFAULT_FRAME_INTERVAL_NS;
+    }
+
+    /*
+     * 虚拟化的嵌套滚动
+     */
+
+    private boolean mVirtualizedNestedScrolling = false;
+
+    private boolean mVirtualLayouting = false;
+
+    /**
+     * 需要布局的区域，RecyclerView坐标，已经包含额外空间
+     */
+    private int mVirtualWindowStart = 0;
+    private int mVirtualWindowEnd = 0;
+
+    private int mVirtualFirstChunkStart = Integer.MIN_VALUE;
+
+    private final Rect mVirtualVisibleRect = new Rect();
+
+    /**
+     * 上一次onMeasure是否使用了估算的高度
+     */
+    private boolean mVirtualMeasuredWithEstimate = false;
+
+    /**
+     * 上一次请求重新测量时估算的高度
+     */
+    private int mVirtualRequestedSize = -1;
+
+    private boolean mVirtualRemeasurePending = false;
+
+    private final Runnable mVirtualRemeasureRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mVirtualRemeasurePending = false;
+            if (mRecyclerView != null) {
+                mRecyclerView.requestLayout();
+            }
+        }
+    };
+
+    private final int[] mEstimateStart = new int[1];
+
+    private ViewTreeObserver mObservedTreeObserver;
+
+    private final ViewTreeObserver.OnScrollChangedListener mAncestorScrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            if (!isVirtualizedNestedScrolling() || mRecyclerView.isLayoutRequested()) {
+                return;
+            }
+            if (needVirtualRelayout()) {
+                mRecyclerView.requestLayout();
+            }
+        }
+    };
+
+    /**
+     * 外部容器需要同步滚动的距离。布局过程中不能滚动其他View，布局结束后在绘制前执行，和移动后的子视图在同一帧显示
+     */
+    private int mVirtualAncestorDelta = 0;
+
+    private final ViewTreeObserver.OnPreDrawListener mAncestorScrollSync = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mObservedTreeObserver != null && mObservedTreeObserver.isAlive()) {
+                mObservedTreeObserver.removeOnPreDrawListener(this);
+            }
+            final int delta = mVirtualAncestorDelta;
+            mVirtualAncestorDelta = 0;
+            final View ancestor = findScrollAncestor();
+            if (ancestor != null && delta != 0) {
+                ancestor.scrollBy(0, delta);
+            }
+            return true;
+        }
+    };
+
+    private void updateAncestorScrollListener(RecyclerView view) {
+        if (mObservedTreeObserver != null) {
+            if (mObservedTreeObserver.isAlive()) {
+                mObservedTreeObserver.removeOnScrollChangedListener(mAncestorScrollListener);
+                mObservedTreeObserver.removeOnPreDrawListener(mAncestorScrollSync);
+            }
+            mObservedTreeObserver = null;
+        }
+        mVirtualAncestorDelta = 0;
+        if (view != null && mVirtualizedNestedScrolling) {
+            mObservedTreeObserver = view.getViewTreeObserver();
+            mObservedTreeObserver.addOnScrollChangedListener(mAncestorScrollListener);
+        }
+    }
+
+    /**
+     * @return 可见区域上下各自额外布局的空间
+     */
+    private int getVirtualExtraSpace() {
+        return mRecyclerView.getResources().getDisplayMetrics().heightPixels / 2;
+    }
+
+    /**
+     * 根据外部滚动容器计算需要布局的区域
+     */
+    private void computeVirtualWindow() {
+        final int extra = getVirtualExtraSpace();
+        if (mRecyclerView.getLocalVisibleRect(mVirtualVisibleRect)) {
+            mVirtualWindowStart = mVirtualVisibleRect.top - extra;
+            mVirtualWindowEnd = mVirtualVisibleRect.bottom + extra;
+        } else {
+            // 不可见时只保留头部
+            mVirtualWindowStart = 0;
+            mVirtualWindowEnd = extra;
+        }
+    }
+
+    private boolean needVirtualRelayout() {
+        final int childCount = getChildCount();
+        final int itemCount = getItemCount();
+        if (childCount == 0) {
+            return itemCount > 0;
+        }
+        computeVirtualWindow();
+        final View first = getChildAt(0);
+        final View last = getChildAt(childCount - 1);
+        final int firstStart = mOrientationHelper.getDecoratedStart(first);
+        final int lastEnd = mOrientationHelper.getDecoratedEnd(last);
+        final int extra = getVirtualExtraSpace();
+        // 可见区域超出已布局的范围
+        if (getPosition(first) > 0 && firstStart > mVirtualWindowStart + extra) {
+            return true;
+        }
+        if (getPosition(last) < itemCount - 1 && lastEnd < mVirtualWindowEnd - extra) {
+            return true;
+        }
+        // 已布局的范围离可见区域太远，需要回收
+        return mOrientationHelper.getDecoratedEnd(first) < mVirtualWindowStart - extra
+                || mOrientationHelper.getDecoratedStart(last) > mVirtualWindowEnd + extra;
+    }
+
+    private void prepareVirtualLayout(RecyclerView.State state) {
+        mVirtualLayouting = true;
+        mVirtualFirstChunkStart = Integer.MIN_VALUE;
+        computeVirtualWindow();
+        if (state.getItemCount() == 0) {
+            return;
+        }
+        final int visibleStart = mVirtualWindowStart + getVirtualExtraSpace();
+        // 优先使用已经存在且可见的子视图作为锚点，保持位置稳定
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (mOrientationHelper.getDecoratedEnd(child) > visibleStart) {
+                final int position = getPosition(child);
+                if (position >= 0 && position < state.getItemCount()) {
+                    setPendingScrollPositionWithOffsetExpose(position,
+                            mOrientationHelper.getDecoratedStart(child) - mOrientationHelper.getStartAfterPadding());
+                    return;
+                }
+                break;
+            }
+        }
+        final int position = estimatePositionAt(Math.max(0, visibleStart - getPaddingTop()), state.getItemCount(), mEstimateStart);
+        setPendingScrollPositionWithOffsetExpose(position, mEstimateStart[0]);
+    }
+
+    private void finishVirtualLayout(RecyclerView.State state) {
+        if (mVirtualFirstChunkStart != Integer.MIN_VALUE) {
+            // 第一项的实际位置和估算的不一致，移动子视图并让外部容器同步滚动，保持画面不动
+            final int delta = mOrientationHelper.getStartAfterPadding() - mVirtualFirstChunkStart;
+            mVirtualFirstChunkStart = Integer.MIN_VALUE;
+            if (delta != 0) {
+                offsetChildrenVertical(delta);
+                scheduleAncestorScroll(delta);
+            }
+        }
+
+        if (!mVirtualMeasuredWithEstimate || mRecyclerView == null) {
+            // 高度由外部确定时估算值不影响测量
+            return;
+        }
+        final int size = getPaddingTop() + getPaddingBottom() + estimateContentSize(state.getItemCount());
+        // 只有估算值与上次请求时不同才重新测量，避免每次布局都触发下一次布局
+        if (size != getHeight() && size != mVirtualRequestedSize && !mVirtualRemeasurePending) {
+            mVirtualRequestedSize = size;
+            mVirtualRemeasurePending = true;
+            mRecyclerView.post(mVirtualRemeasureRunnable);
+        }
+    }
+
+    private void scheduleAncestorScroll(int delta) {
+        if (mObservedTreeObserver == null || !mObservedTreeObserver.isAlive()) {
+            return;
+        }
+        if (mVirtualAncestorDelta == 0) {
+            mObservedTreeObserver.addOnPreDrawListener(mAncestorScrollSync);
+        }
+        mVirtualAncestorDelta += delta;
+        if (mVirtualAncestorDelta == 0) {
+            // 两次布局的修正互相抵消
+            mObservedTreeObserver.removeOnPreDrawListener(mAncestorScrollSync);
+        }
+    }
+
+    @Nullable
+    private View findScrollAncestor() {
+        if (mRecyclerView == null) {
+            return null;
+        }
+        ViewParent parent = mRecyclerView.getParent();
+        while (parent instanceof View) {
+            final View view = (View) parent;
+            if (view.canScrollVertically(1) || view.canScrollVertically(-1)) {
+                return view;
+            }
+            parent = parent.getParent();
+        }
+        return null;
+    }
+
+    @Override
+    protected int clampFillSpace(LayoutState layoutState, int remainingSpace) {
+        if (mVirtualLayouting) {
+            final int limit = layoutState.mLayoutDirection == LayoutState.LAYOUT_END
+                    ? mVirtualWindowEnd - layoutState.mOffset
+                    : layoutState.mOffset - mVirtualWindowStart;
+            remainingSpace = Math.min(remainingSpace, Math.max(0, limit));
+        }
+        if (mProgressiveMode == PROGRESSIVE_VIEWPORT) {
+            // 首次布局只填充可见区域
+            final int limit = Math.max(0, getViewportRemaining(layoutState));
+            if (limit < remainingSpace) {
+                mProgressiveClamped = true;
+                remainingSpace = limit;
+            }
+        }
+        return remainingSpace;
+    }
+
+    @Override
+    protected boolean shouldStopFill(LayoutState layoutState) {
+        if (mProgressiveMode != PROGRESSIVE_BUDGET || getViewportRemaining(layoutState) > 0) {
+            return false;
+        }
+        if (System.nanoTime() >= mProgressiveDeadlineNs) {
+            mProgressiveInterrupted = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 当前布局方向上距离可见区域边缘还有多少空间
+     */
+    private int getViewportRemaining(LayoutState layoutState) {
+        return layoutState.mLayoutDirection == LayoutState.LAYOUT_END
+                ? mOrientationHelper.getEndAfterPadding() - layoutState.mOffset
+                : layoutState.mOffset - mOrientationHelper.getStartAfterPadding();
+    }
+
+    @Override
+    protected boolean shouldFixLayoutGaps() {
+        return !mVirtualLayouting;
+    }
+
+    @Override
+    protected void onFixLayoutGap(int gap) {
+        mTraceGapFixCount++;
+    }
+
+    /**
+     * 一次布局或滚动结束后输出Trace计数
+     */
+    private void traceCounters() {
+        if (mLayoutTracer == null) {
+            return;
+        }
+        mLayoutTracer.setCounter(LayoutTracer.COUNTER_CHILD_COUNT, getChildCount());
+        mLayoutTracer.setCounter(LayoutTracer.COUNTER_CHUNK_COUNT, mTraceChunkCount);
+        mLayoutTracer.setCounter(LayoutTracer.COUNTER_GAP_FIX, mTraceGapFixCount);
+        if (mRecyclerView != null) {
+            final RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+            if (pool instanceof InnerRecycledViewPool) {
+                mLayoutTracer.setCounter(LayoutTracer.COUNTER_POOL_SIZE, ((InnerRecycledViewPool) pool).size());
+            }
+        }
+    }
+
+    /**
+     * @return 已布局块的平均每项大小，没有数据时返回0
+     */
+    private int averageItemSize() {
+        long consumed = 0;
+        int items = 0;
+        for (int i = 0; i < mRangeCount; i++) {
+            consumed += mRangeConsumed[i];
+            items += mRangeEnds[i] - mRangeStarts[i] + 1;
+        }
+        return items == 0 ? 0 : (int) Math.max(1, consumed / items);
+    }
+
+    /**
+     * 按已布局块的大小估算内容的总长度，不包括padding
+     */
+    private int estimateContentSize(int itemCount) {
+        if (itemCount == 0) {
+            return 0;
+        }
+        final int avg = averageItemSize();
+        if (avg == 0) {
+            // 还没有布局过，先按可见高度测量
+            return mRecyclerView.getResources().getDisplayMetrics().heightPixels;
+        }
+        long size = 0;
+        int next = 0;
+        for (int i = 0; i < mRangeCount && next < itemCount; i++) {
+            if (mRangeStarts[i] < next) {
+                continue;
+            }
+            size += (long) (mRangeStarts[i] - next) * avg + mRangeConsumed[i];
+            next = mRangeEnds[i] + 1;
+        }
+        if (next < itemCount) {
+            size += (long) (itemCount - next) * avg;
+        }
+        return (int) Math.min(size, MAX_NO_SCROLLING_SIZE);
+    }
+
+    /**
+     * 估算内容中offset处的位置
+     *
+     * @param outStart 返回该位置的起始偏移
+     */
+    private int estimatePositionAt(int offset, int itemCount, int[] outStart) {
+        final int avg = Math.max(1, averageItemSize());
+        long start = 0;
+        int next = 0;
+        for (int i = 0; i < mRangeCount && next < itemCount; i++) {
+            if (mRangeStarts[i] < next) {
+                continue;
+            }
+            final long gap = (long) (mRangeStarts[i] - next) * avg;
+            if (start + gap > offset) {
+                break;
+            }
+            start += gap;
+            if (start + mRangeConsumed[i] > offset) {
+                outStart[0] = (int) start;
+                return mRangeStarts[i];
+            }
+            start += mRangeConsumed[i];
+            next = mRangeEnds[i] + 1;
+        }
+        final int position = (int) Math.min(itemCount - 1, next + Math.max(0, (offset - start) / avg));
+        outStart[0] = (int) (start + (long) (position - next) * avg);
+        return position;
+    }
+
+    /**
+     * 估算可见区域末端到position项目末端的距离，用于提前加载下一页
+     *
+     * @return 像素，position已经在可见区域内或之前时小于等于0
+     */
+    public int estimateDistanceToEnd(int position) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        final int endAfterPadding = mOrientationHelper.getEndAfterPadding();
+        final View target = findViewByPosition(position);
+        if (target != null) {
+            return mOrientationHelper.getDecoratedEnd(target) - endAfterPadding;
+        }
+        final int lastPosition = findLastVisibleItemPosition();
+        if (lastPosition < 0 || position <= lastPosition) {
+            return 0;
+        }
+        final View last = findViewByPosition(lastPosition);
+        final long base = last == null ? 0 : mOrientationHelper.getDecoratedEnd(last) - endAfterPadding;
+        return (int) Math.min(base + estimateRangeSize(lastPosition + 1, position), MAX_NO_SCROLLING_SIZE);
+    }
+
+    /**
+     * 按已布局块的长度估算[from, to]的总长度，没有记录的项目按平均大小计算
+     */
+    private long estimateRangeSize(int from, int to) {
+        long size = 0;
+        int covered = 0;
+        for (int i = 0; i < mRangeCount; i++) {
+            if (mRangeStarts[i] > to) {
+                break;
+            }
+            if (mRangeStarts[i] >= from && mRangeEnds[i] <= to) {
+                size += mRangeConsumed[i];
+                covered += mRangeEnds[i] - mRangeStarts[i] + 1;
+            }
+        }
+        return size + (long) (to - from + 1 - covered) * averageItemSize();
+    }
+
+    private boolean mSpaceMeasured = false;
 
     private int mMeasuredFullSpace = 0;
 
     private boolean mSpaceMeasuring = false;
 
 
+    @Override
+    public boolean isAutoMeasureEnabled() {
+        // 虚拟化时高度由估算决定，不能按子视图包裹
+        return !isVirtualizedNestedScrolling() && super.isAutoMeasureEnabled();
+    }
+
     @Override
     public void onMeasure(RecyclerView.Recycler recycler, RecyclerView.State state, int widthSpec, int heightSpec) {
+        if (isVirtualizedNestedScrolling()) {
+            mVirtualMeasuredWithEstimate = View.MeasureSpec.getMode(heightSpec) != View.MeasureSpec.EXACTLY;
+            if (mVirtualMeasuredWithEstimate) {
+                final int size = getPaddingTop() + getPaddingBottom() + estimateContentSize(state.getItemCount());
+                heightSpec = View.MeasureSpec.makeMeasureSpec(size, View.MeasureSpec.EXACTLY);
+            }
+            super.onMeasure(recycler, state, widthSpec, heightSpec);
+            return;
+        }
+
         if (!mNoScrolling && !mNestedScrolling) {
 
             super.onMeasure(recycler, state, widthSpec, heightSpec);
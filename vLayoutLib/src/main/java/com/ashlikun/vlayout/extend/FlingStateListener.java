@@ -0,0 +1,10 @@
+package com.ashlikun.vlayout.extend;
+
+public interface FlingStateListener {
+    /**
+     * 滚动速度越过阈值时回调
+     *
+     * @param flinging true表示开始快速滑动，false表示停止或速度降到阈值以下
+     */
+    void onFlingStateChanged(boolean flinging);
+}
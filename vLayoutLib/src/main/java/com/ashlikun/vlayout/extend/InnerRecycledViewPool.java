@@ -24,6 +24,7 @@
 
 package com.ashlikun.vlayout.extend;
 
+import android.content.ComponentCallbacks2;
 import android.util.Log;
 import android.util.SparseIntArray;
 import android.view.View;
@@ -126,6 +127,18 @@ public final class InnerRecycledViewPool extends RecyclerView.RecycledViewPool {
         return count;
     }
 
+    @Override
+    public int getRecycledViewCount(int viewType) {
+        return mScrapLength.indexOfKey(viewType) >= 0 ? mScrapLength.get(viewType) : 0;
+    }
+
+    /**
+     * @return viewType允许缓存的最大数量，未设置时为默认值
+     */
+    public int getMaxRecycledViews(int viewType) {
+        return mMaxScrap.indexOfKey(viewType) >= 0 ? mMaxScrap.get(viewType) : DEFAULT_MAX_SIZE;
+    }
+
     /**
      * 这将仅在UI线程中运行
      *
@@ -155,7 +168,7 @@ public final class InnerRecycledViewPool extends RecyclerView.RecycledViewPool {
     }
 
 
-    private void destroyViewHolder(RecyclerView.ViewHolder holder) {
+    void destroyViewHolder(RecyclerView.ViewHolder holder) {
         View view = holder.itemView;
         // if view inherits {@link Closeable}, cal close method
         if (view instanceof Closeable) {
@@ -175,6 +188,42 @@ public final class InnerRecycledViewPool extends RecyclerView.RecycledViewPool {
         }
     }
 
+    /**
+     * 按内存紧张程度销毁缓存的ViewHolder：TRIM_MEMORY_RUNNING_CRITICAL和TRIM_MEMORY_MODERATE及以上全部销毁，
+     * 其他不低于TRIM_MEMORY_RUNNING_LOW的级别（包括切到后台的TRIM_MEMORY_UI_HIDDEN）每种类型保留一半
+     *
+     * @param level {@link ComponentCallbacks2}中的TRIM_MEMORY_*
+     * @return 销毁的ViewHolder数量
+     */
+    public int trimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0;
+        }
+        final boolean clearAll = isClearAllLevel(level);
+        int destroyed = 0;
+        for (int i = 0, size = mScrapLength.size(); i < size; i++) {
+            final int viewType = mScrapLength.keyAt(i);
+            final int keep = clearAll ? 0 : mScrapLength.valueAt(i) / 2;
+            while (mScrapLength.get(viewType) > keep) {
+                RecyclerView.ViewHolder holder = getRecycledView(viewType);
+                if (holder == null) {
+                    mScrapLength.put(viewType, 0);
+                    break;
+                }
+                destroyViewHolder(holder);
+                destroyed++;
+            }
+        }
+        return destroyed;
+    }
+
+    /**
+     * @return level是否需要销毁所有缓存
+     */
+    static boolean isClearAllLevel(int level) {
+        return level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+    }
+
     public void setDefaultMaxSize(int maxSize) {
         DEFAULT_MAX_SIZE = maxSize;
     }
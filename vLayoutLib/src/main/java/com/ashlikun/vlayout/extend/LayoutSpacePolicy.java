@@ -0,0 +1,141 @@
+package com.ashlikun.vlayout.extend;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 根据滚动速度调整额外布局空间和回收偏移：快速滑动时在运动方向上多布局一些，
+ * 并保留刚滑过的视图以便快速反向时直接复用，停止滚动后恢复。
+ * 同时统计每秒创建的ViewHolder数量，用于观察策略的效果。设计为类而不是接口能够在将来扩展api。
+ */
+public class LayoutSpacePolicy {
+
+    private static final long STATS_WINDOW_MS = 1000;
+
+    /**
+     * 快速滑动的速度阈值，像素/秒
+     */
+    private float mFlingVelocity = 3000;
+
+    /**
+     * 额外布局空间的预测时间
+     */
+    private long mLookAheadMs = 150;
+
+    /**
+     * 额外布局空间最多为可见区域的倍数
+     */
+    private float mMaxExtraRatio = 1.0f;
+
+    /**
+     * 快速滑动时保留已经滑出视图的区域，为可见区域的倍数
+     */
+    private float mRetainRatio = 0.5f;
+
+    /**
+     * 布局管理器的速度统计，设置到布局管理器时关联，不重复统计
+     */
+    private ScrollVelocityTracker mVelocityTracker;
+
+    private int mCreatedCount = 0;
+
+    private int mWindowCreatedCount = 0;
+
+    private long mWindowStartTime = 0;
+
+    private float mCreatedPerSecond = 0;
+
+    public void setFlingVelocity(float pixelsPerSecond) {
+        this.mFlingVelocity = pixelsPerSecond;
+    }
+
+    public void setLookAheadMs(long lookAheadMs) {
+        this.mLookAheadMs = lookAheadMs;
+    }
+
+    public void setMaxExtraRatio(float maxExtraRatio) {
+        this.mMaxExtraRatio = maxExtraRatio;
+    }
+
+    public void setRetainRatio(float retainRatio) {
+        this.mRetainRatio = retainRatio;
+    }
+
+    /**
+     * 由{@link com.ashlikun.vlayout.VirtualLayoutManager#setLayoutSpacePolicy(LayoutSpacePolicy)}调用
+     */
+    public void setVelocityTracker(@Nullable ScrollVelocityTracker tracker) {
+        this.mVelocityTracker = tracker;
+    }
+
+    /**
+     * @return 平滑后的速度，像素/秒，带方向，没有关联布局管理器时为0
+     */
+    public float getVelocity() {
+        return mVelocityTracker == null ? 0 : mVelocityTracker.getVelocity();
+    }
+
+    public boolean isFlinging() {
+        return mVelocityTracker != null && mVelocityTracker.isFlinging(mFlingVelocity);
+    }
+
+    /**
+     * @param totalSpace 可见区域的大小
+     * @return 运动方向上额外布局的空间
+     */
+    public int getExtraLayoutSpace(int totalSpace) {
+        if (!isFlinging()) {
+            return 0;
+        }
+        final int extra = (int) (Math.abs(getVelocity()) * mLookAheadMs / 1000);
+        return Math.min(extra, (int) (totalSpace * mMaxExtraRatio));
+    }
+
+    /**
+     * @param totalSpace 可见区域的大小
+     * @return 在基础回收偏移之上额外保留的空间
+     */
+    public int getRecycleOffset(int totalSpace) {
+        if (!isFlinging()) {
+            return 0;
+        }
+        return (int) (totalSpace * mRetainRatio);
+    }
+
+    /**
+     * 创建ViewHolder时调用
+     */
+    public void onViewHolderCreated() {
+        mCreatedCount++;
+        final long now = SystemClock.uptimeMillis();
+        if (mWindowStartTime == 0) {
+            mWindowStartTime = now;
+        }
+        final long elapsed = now - mWindowStartTime;
+        if (elapsed >= STATS_WINDOW_MS) {
+            mCreatedPerSecond = mWindowCreatedCount * 1000f / elapsed;
+            mWindowCreatedCount = 0;
+            mWindowStartTime = now;
+        }
+        mWindowCreatedCount++;
+    }
+
+    /**
+     * @return 上一个统计窗口内每秒创建的ViewHolder数量
+     */
+    public float getCreatedPerSecond() {
+        return mCreatedPerSecond;
+    }
+
+    public int getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    public void resetStats() {
+        mCreatedCount = 0;
+        mWindowCreatedCount = 0;
+        mWindowStartTime = 0;
+        mCreatedPerSecond = 0;
+    }
+}
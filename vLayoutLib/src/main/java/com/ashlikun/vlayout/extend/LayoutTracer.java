@@ -0,0 +1,120 @@
+package com.ashlikun.vlayout.extend;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.ashlikun.vlayout.LayoutHelper;
+import com.ashlikun.vlayout.Range;
+
+import java.util.HashMap;
+
+/**
+ * 输出到Systrace/Perfetto的分段和计数，按LayoutHelper和布局阶段细分。
+ * 设置到{@link com.ashlikun.vlayout.VirtualLayoutManager#setLayoutTracer}后生效，未设置时调用方不做任何处理。
+ * 分段名按LayoutHelper和适配器类缓存，只在第一次或区间变化时拼接。此类只能在UI线程使用。
+ */
+public class LayoutTracer {
+
+    public static final int PHASE_BEFORE_LAYOUT = 0;
+
+    public static final int PHASE_DO_LAYOUT = 1;
+
+    public static final int PHASE_AFTER_LAYOUT = 2;
+
+    public static final int PHASE_ADJUST_LAYOUT = 3;
+
+    private static final String[] PHASE_NAMES = {"beforeLayout", "doLayout", "afterLayout", "adjustLayout"};
+
+    public static final String COUNTER_CHILD_COUNT = "VLM childCount";
+
+    public static final String COUNTER_POOL_SIZE = "VLM poolSize";
+
+    public static final String COUNTER_CHUNK_COUNT = "VLM chunkCount";
+
+    public static final String COUNTER_GAP_FIX = "VLM gapFixRelayouts";
+
+    /**
+     * Trace分段名的最大长度
+     */
+    private static final int MAX_SECTION_LENGTH = 127;
+
+    private final HashMap<LayoutHelper, HelperSections> mHelperSections = new HashMap<>();
+
+    private final HashMap<Class<?>, String[]> mAdapterSections = new HashMap<>();
+
+    public void beginHelperSection(LayoutHelper helper, int phase) {
+        Trace.beginSection(getHelperSection(helper, phase));
+    }
+
+    /**
+     * @param adapter 子适配器
+     * @param bind    true为绑定，false为创建
+     */
+    public void beginAdapterSection(Object adapter, boolean bind) {
+        final Class<?> clazz = adapter.getClass();
+        String[] names = mAdapterSections.get(clazz);
+        if (names == null) {
+            names = new String[]{
+                    truncate("DA create " + clazz.getSimpleName()),
+                    truncate("DA bind " + clazz.getSimpleName())
+            };
+            mAdapterSections.put(clazz, names);
+        }
+        Trace.beginSection(names[bind ? 1 : 0]);
+    }
+
+    public void endSection() {
+        Trace.endSection();
+    }
+
+    /**
+     * 计数需要API 29，低版本忽略
+     */
+    public void setCounter(String name, long value) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.setCounter(name, value);
+        }
+    }
+
+    /**
+     * LayoutHelper变化后释放缓存的分段名
+     */
+    public void clear() {
+        mHelperSections.clear();
+        mAdapterSections.clear();
+    }
+
+    private String getHelperSection(LayoutHelper helper, int phase) {
+        final Range<Integer> range = helper.getRange();
+        final int lower = range == null ? -1 : range.getLower();
+        final int upper = range == null ? -1 : range.getUpper();
+        HelperSections sections = mHelperSections.get(helper);
+        if (sections == null) {
+            sections = new HelperSections();
+            mHelperSections.put(helper, sections);
+        }
+        if (sections.mNames == null || sections.mLower != lower || sections.mUpper != upper) {
+            final String prefix = helper.getClass().getSimpleName() + "[" + lower + "," + upper + "] ";
+            sections.mNames = new String[PHASE_NAMES.length];
+            for (int i = 0; i < PHASE_NAMES.length; i++) {
+                sections.mNames[i] = truncate(prefix + PHASE_NAMES[i]);
+            }
+            sections.mLower = lower;
+            sections.mUpper = upper;
+        }
+        return sections.mNames[phase];
+    }
+
+    private static String truncate(String name) {
+        return name.length() > MAX_SECTION_LENGTH ? name.substring(0, MAX_SECTION_LENGTH) : name;
+    }
+
+    private static final class HelperSections {
+
+        private int mLower;
+
+        private int mUpper;
+
+        private String[] mNames;
+    }
+}
@@ -0,0 +1,521 @@
+package com.ashlikun.vlayout.extend;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 多个列表（例如ViewPager中的多个feed）共享的缓存池，基于{@link InnerRecycledViewPool}。
+ * 每个列表通过{@link #attachHost(Object, RecyclerView)}使用自己的{@link HostPool}，所有池共用同一份缓存，
+ * 切换到某个tab时可以直接取到其他tab回收的ViewHolder，不需要重新创建。
+ * <p>
+ * 共享池按逻辑类型存放：列表使用{@link DelegateAdapter}时，和适配器下标相关的编码类型由
+ * {@link DelegateAdapter#getLogicalItemType(int)}换算，同一个子适配器类的同一个itemType在所有列表之间共享，
+ * 不需要开启hasConsistItemType；其他适配器的类型直接作为逻辑类型。ViewHolder取出时改回列表自己的类型。
+ * <p>
+ * 每个列表和全局都限制缓存的数量和估算的内存，超出时当前激活的列表优先。
+ * 切换激活的列表时，其他列表RecyclerView缓存中闲置的ViewHolder交给新激活的列表。此类不支持多线程。
+ */
+public class MultiFeedViewPool {
+
+    private static final String TAG = "MultiFeedViewPool";
+
+    public static final int DEFAULT_HOST_QUOTA = 40;
+
+    public static final int DEFAULT_GLOBAL_QUOTA = 120;
+
+    /**
+     * RecyclerView默认的缓存数量
+     */
+    private static final int DEFAULT_VIEW_CACHE_SIZE = 2;
+
+    /**
+     * 估算缓存中一个ViewHolder占用的内存，同一个ViewHolder在缓存中时结果应该不变
+     */
+    public interface SizeEstimator {
+
+        long estimate(@NonNull RecyclerView.ViewHolder holder);
+    }
+
+    /**
+     * 按itemView的像素面积估算，每个像素4字节，绘制缓存和图片通常与面积成正比；没有测量过的按1个像素
+     */
+    public static final SizeEstimator AREA_ESTIMATOR = holder ->
+            Math.max(1L, (long) holder.itemView.getWidth() * holder.itemView.getHeight()) * 4;
+
+    /**
+     * ViewHolder的类型没有公开的修改方法，不能修改时按原始类型共享
+     */
+    private static Field sItemViewType;
+
+    static {
+        try {
+            sItemViewType = RecyclerView.ViewHolder.class.getDeclaredField("mItemViewType");
+            sItemViewType.setAccessible(true);
+        } catch (Exception e) {
+            sItemViewType = null;
+            Log.w(TAG, "Share view holders by raw view type: " + e);
+        }
+    }
+
+    private final InnerRecycledViewPool mSharedPool = new InnerRecycledViewPool();
+
+    /**
+     * 记录缓存中的ViewHolder是哪个列表放入的
+     */
+    private final IdentityHashMap<RecyclerView.ViewHolder, HostPool> mOwners = new IdentityHashMap<>();
+
+    private final ArrayList<HostPool> mHosts = new ArrayList<>();
+
+    private int mHostQuota = DEFAULT_HOST_QUOTA;
+
+    private int mGlobalQuota = DEFAULT_GLOBAL_QUOTA;
+
+    private long mHostMemoryQuota;
+
+    private long mGlobalMemoryQuota;
+
+    private long mBytes = 0;
+
+    private SizeEstimator mSizeEstimator = AREA_ESTIMATOR;
+
+    private HostPool mActiveHost;
+
+    /**
+     * 上次trimMemory处理的级别，之后有新的ViewHolder放入时重置
+     */
+    private int mTrimmedLevel = -1;
+
+    /**
+     * 交接闲置的ViewHolder时放入的归属于激活的列表
+     */
+    private boolean mHandingOff = false;
+
+    public MultiFeedViewPool() {
+        // 默认全局最多使用八分之一的堆，单个列表三分之一
+        mGlobalMemoryQuota = Runtime.getRuntime().maxMemory() / 8;
+        mHostMemoryQuota = mGlobalMemoryQuota / 3;
+    }
+
+    /**
+     * @param quota 每个列表最多放入缓存的ViewHolder数量
+     */
+    public void setHostQuota(int quota) {
+        mHostQuota = quota;
+    }
+
+    /**
+     * @param quota 所有列表合计最多缓存的ViewHolder数量
+     */
+    public void setGlobalQuota(int quota) {
+        mGlobalQuota = quota;
+    }
+
+    /**
+     * @param bytes 每个列表放入缓存的ViewHolder最多占用的估算内存
+     */
+    public void setHostMemoryQuota(long bytes) {
+        mHostMemoryQuota = bytes;
+    }
+
+    /**
+     * @param bytes 所有列表缓存的ViewHolder最多占用的估算内存
+     */
+    public void setGlobalMemoryQuota(long bytes) {
+        mGlobalMemoryQuota = bytes;
+    }
+
+    /**
+     * 在缓存为空时设置
+     */
+    public void setSizeEstimator(@NonNull SizeEstimator sizeEstimator) {
+        mSizeEstimator = sizeEstimator;
+    }
+
+    /**
+     * 获取列表使用的池，不存在时创建。没有关联RecyclerView时按原始类型共享，也不参与闲置ViewHolder的交接
+     *
+     * @param hostKey 列表的唯一标识
+     */
+    @NonNull
+    public HostPool obtainHostPool(@NonNull Object hostKey) {
+        for (int i = 0, size = mHosts.size(); i < size; i++) {
+            HostPool host = mHosts.get(i);
+            if (host.mKey.equals(hostKey)) {
+                return host;
+            }
+        }
+        HostPool host = new HostPool(hostKey);
+        mHosts.add(host);
+        return host;
+    }
+
+    /**
+     * 获取列表使用的池并设置给RecyclerView，类型按RecyclerView当前的适配器换算
+     *
+     * @param hostKey 列表的唯一标识
+     */
+    @NonNull
+    public HostPool attachHost(@NonNull Object hostKey, @NonNull RecyclerView recyclerView) {
+        final HostPool host = obtainHostPool(hostKey);
+        host.mRecyclerView = recyclerView;
+        recyclerView.setRecycledViewPool(host);
+        recyclerView.setItemViewCacheSize(host.mViewCacheSize);
+        return host;
+    }
+
+    /**
+     * 列表销毁时调用，释放对RecyclerView的引用，它放入的ViewHolder留在缓存中
+     */
+    public void removeHost(@NonNull Object hostKey) {
+        for (int i = 0, size = mHosts.size(); i < size; i++) {
+            HostPool host = mHosts.get(i);
+            if (host.mKey.equals(hostKey)) {
+                host.mRecyclerView = null;
+                if (host == mActiveHost) {
+                    mActiveHost = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 切换到某个列表时调用，超出配额时优先保留放入该列表的ViewHolder。
+     * 其他列表RecyclerView缓存中闲置的ViewHolder放回共享池并归属于这个列表，切换后可以直接取用
+     */
+    public void setActiveHost(@NonNull Object hostKey) {
+        mActiveHost = obtainHostPool(hostKey);
+        mHandingOff = true;
+        try {
+            for (int i = 0, size = mHosts.size(); i < size; i++) {
+                HostPool host = mHosts.get(i);
+                if (host != mActiveHost) {
+                    host.releaseCachedViews();
+                }
+            }
+        } finally {
+            mHandingOff = false;
+        }
+    }
+
+    /**
+     * @param poolType 共享池中的类型，即{@link DelegateAdapter#getLogicalItemType(int)}换算后的逻辑类型
+     */
+    public void setMaxRecycledViews(int poolType, int max) {
+        // InnerRecycledViewPool会销毁该类型所有的缓存
+        releaseOwners(poolType);
+        mSharedPool.setMaxRecycledViews(poolType, max);
+    }
+
+    /**
+     * @return 所有列表缓存的ViewHolder数量
+     */
+    public int size() {
+        return mOwners.size();
+    }
+
+    /**
+     * @return 所有列表缓存的ViewHolder估算占用的内存
+     */
+    public long getBytes() {
+        return mBytes;
+    }
+
+    public void clear() {
+        mOwners.clear();
+        mBytes = 0;
+        for (int i = 0, size = mHosts.size(); i < size; i++) {
+            HostPool host = mHosts.get(i);
+            host.mCount = 0;
+            host.mBytes = 0;
+        }
+        mSharedPool.clear();
+    }
+
+    /**
+     * 按内存紧张程度销毁缓存的ViewHolder，级别和{@link InnerRecycledViewPool#trimMemory(int)}相同，
+     * 每种类型保留一半时优先销毁其他列表放入的。多个列表收到同一次通知时只处理一次
+     *
+     * @param level {@link ComponentCallbacks2}中的TRIM_MEMORY_*
+     * @return 销毁的ViewHolder数量
+     */
+    public int trimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level <= mTrimmedLevel) {
+            return 0;
+        }
+        mTrimmedLevel = level;
+        final int size = mOwners.size();
+        if (InnerRecycledViewPool.isClearAllLevel(level)) {
+            clear();
+            return size;
+        }
+        // 每种类型的数量
+        final SparseIntArray counts = new SparseIntArray();
+        for (RecyclerView.ViewHolder holder : mOwners.keySet()) {
+            counts.put(holder.getItemViewType(), counts.get(holder.getItemViewType()) + 1);
+        }
+        final ArrayList<RecyclerView.ViewHolder> holders = new ArrayList<>();
+        int destroyed = 0;
+        for (int i = 0, typeCount = counts.size(); i < typeCount; i++) {
+            final int poolType = counts.keyAt(i);
+            int remove = counts.valueAt(i) - counts.valueAt(i) / 2;
+            holders.clear();
+            RecyclerView.ViewHolder holder;
+            while ((holder = mSharedPool.getRecycledView(poolType)) != null) {
+                holders.add(holder);
+            }
+            // 从最早放入的开始，第一遍只销毁其他列表放入的，第二遍再销毁激活的列表放入的
+            for (int pass = 0; pass < 2 && remove > 0; pass++) {
+                for (int j = holders.size() - 1; j >= 0 && remove > 0; j--) {
+                    holder = holders.get(j);
+                    if (holder == null) {
+                        continue;
+                    }
+                    final HostPool owner = mOwners.get(holder);
+                    if (pass == 0 && owner == mActiveHost) {
+                        continue;
+                    }
+                    if (owner != null) {
+                        release(owner, holder);
+                        mOwners.remove(holder);
+                    }
+                    mSharedPool.destroyViewHolder(holder);
+                    holders.set(j, null);
+                    remove--;
+                    destroyed++;
+                }
+            }
+            // 剩下的按原来的顺序放回
+            for (int j = holders.size() - 1; j >= 0; j--) {
+                if (holders.get(j) != null) {
+                    mSharedPool.putRecycledView(holders.get(j));
+                }
+            }
+        }
+        return destroyed;
+    }
+
+    private void releaseOwners(int poolType) {
+        Iterator<Map.Entry<RecyclerView.ViewHolder, HostPool>> it = mOwners.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<RecyclerView.ViewHolder, HostPool> entry = it.next();
+            if (entry.getKey().getItemViewType() == poolType) {
+                release(entry.getValue(), entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    private void release(HostPool owner, RecyclerView.ViewHolder holder) {
+        final long bytes = mSizeEstimator.estimate(holder);
+        owner.mCount--;
+        owner.mBytes -= bytes;
+        mBytes -= bytes;
+    }
+
+    /**
+     * @return 共享池中存放的类型
+     */
+    private int toPoolType(HostPool host, int viewType) {
+        if (sItemViewType == null) {
+            return viewType;
+        }
+        final RecyclerView.Adapter adapter = host.mRecyclerView == null ? null : host.mRecyclerView.getAdapter();
+        if (adapter instanceof DelegateAdapter) {
+            return ((DelegateAdapter) adapter).getLogicalItemType(viewType);
+        }
+        return DelegateAdapter.obtainLogicalItemType(RecyclerView.Adapter.class, viewType);
+    }
+
+    /**
+     * 创建时记录了逻辑类型的按记录的类型，不受之后适配器下标变化的影响
+     */
+    private int toPoolType(HostPool host, RecyclerView.ViewHolder holder) {
+        if (sItemViewType != null) {
+            final int logicalType = DelegateAdapter.getLogicalItemType(holder);
+            if (logicalType != RecyclerView.INVALID_TYPE) {
+                return logicalType;
+            }
+        }
+        return toPoolType(host, holder.getItemViewType());
+    }
+
+    private static boolean setItemViewType(RecyclerView.ViewHolder holder, int viewType) {
+        try {
+            sItemViewType.setInt(holder, viewType);
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, Log.getStackTraceString(e), e);
+            return false;
+        }
+    }
+
+    private RecyclerView.ViewHolder take(int poolType) {
+        RecyclerView.ViewHolder holder = mSharedPool.getRecycledView(poolType);
+        if (holder != null) {
+            HostPool owner = mOwners.remove(holder);
+            if (owner != null) {
+                release(owner, holder);
+            }
+        }
+        return holder;
+    }
+
+    private RecyclerView.ViewHolder take(HostPool host, int viewType) {
+        final int poolType = toPoolType(host, viewType);
+        if (poolType == RecyclerView.INVALID_TYPE) {
+            return null;
+        }
+        final RecyclerView.ViewHolder holder = take(poolType);
+        if (holder != null && poolType != viewType && !setItemViewType(holder, viewType)) {
+            mSharedPool.destroyViewHolder(holder);
+            return null;
+        }
+        return holder;
+    }
+
+    private boolean overGlobalQuota(int poolType, long bytes) {
+        return mSharedPool.getRecycledViewCount(poolType) >= mSharedPool.getMaxRecycledViews(poolType)
+                || mOwners.size() >= mGlobalQuota || mBytes + bytes > mGlobalMemoryQuota;
+    }
+
+    private void put(HostPool host, RecyclerView.ViewHolder holder) {
+        final HostPool owner = mHandingOff && mActiveHost != null ? mActiveHost : host;
+        final int poolType = toPoolType(host, holder);
+        final long bytes = mSizeEstimator.estimate(holder);
+        if (poolType == RecyclerView.INVALID_TYPE
+                || owner.mCount >= mHostQuota || owner.mBytes + bytes > mHostMemoryQuota) {
+            mSharedPool.destroyViewHolder(holder);
+            return;
+        }
+        while (overGlobalQuota(poolType, bytes)) {
+            if (owner != mActiveHost) {
+                mSharedPool.destroyViewHolder(holder);
+                return;
+            }
+            // 激活的列表优先，挤掉同类型的缓存直到放得下
+            RecyclerView.ViewHolder evicted = take(poolType);
+            if (evicted == null) {
+                mSharedPool.destroyViewHolder(holder);
+                return;
+            }
+            mSharedPool.destroyViewHolder(evicted);
+        }
+        if (poolType != holder.getItemViewType() && !setItemViewType(holder, poolType)) {
+            mSharedPool.destroyViewHolder(holder);
+            return;
+        }
+        mSharedPool.putRecycledView(holder);
+        mTrimmedLevel = -1;
+        mOwners.put(holder, owner);
+        owner.mCount++;
+        owner.mBytes += bytes;
+        mBytes += bytes;
+    }
+
+    /**
+     * 单个列表使用的池，缓存实际存放在共享池中
+     */
+    public final class HostPool extends RecyclerView.RecycledViewPool {
+
+        private final Object mKey;
+
+        @Nullable
+        private RecyclerView mRecyclerView;
+
+        private int mViewCacheSize = DEFAULT_VIEW_CACHE_SIZE;
+
+        private int mCount = 0;
+
+        private long mBytes = 0;
+
+        private HostPool(Object key) {
+            mKey = key;
+        }
+
+        /**
+         * @return 该列表放入且还在缓存中的ViewHolder数量
+         */
+        public int getHostCount() {
+            return mCount;
+        }
+
+        /**
+         * @return 该列表放入且还在缓存中的ViewHolder估算占用的内存
+         */
+        public long getHostBytes() {
+            return mBytes;
+        }
+
+        /**
+         * 代替{@link RecyclerView#setItemViewCacheSize(int)}，交接闲置的ViewHolder后恢复这个数量
+         */
+        public void setItemViewCacheSize(int size) {
+            mViewCacheSize = size;
+            if (mRecyclerView != null) {
+                mRecyclerView.setItemViewCacheSize(size);
+            }
+        }
+
+        /**
+         * 把RecyclerView缓存中的ViewHolder放回共享池
+         */
+        private void releaseCachedViews() {
+            if (mRecyclerView != null && !mRecyclerView.isComputingLayout()) {
+                mRecyclerView.setItemViewCacheSize(0);
+                mRecyclerView.setItemViewCacheSize(mViewCacheSize);
+            }
+        }
+
+        @Override
+        public RecyclerView.ViewHolder getRecycledView(int viewType) {
+            return take(this, viewType);
+        }
+
+        @Override
+        public void putRecycledView(RecyclerView.ViewHolder scrap) {
+            put(this, scrap);
+        }
+
+        @Override
+        public int getRecycledViewCount(int viewType) {
+            final int poolType = toPoolType(this, viewType);
+            return poolType == RecyclerView.INVALID_TYPE ? 0 : mSharedPool.getRecycledViewCount(poolType);
+        }
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            final int poolType = toPoolType(this, viewType);
+            if (poolType != RecyclerView.INVALID_TYPE) {
+                MultiFeedViewPool.this.setMaxRecycledViews(poolType, max);
+            }
+        }
+
+        /**
+         * 按内存紧张程度销毁共享池中的ViewHolder，见{@link MultiFeedViewPool#trimMemory(int)}
+         */
+        public int trimMemory(int level) {
+            return MultiFeedViewPool.this.trimMemory(level);
+        }
+
+        /**
+         * 缓存由所有列表共享，单个列表清空时不影响其他列表
+         */
+        @Override
+        public void clear() {
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ashlikun.vlayout.extend;
+
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+
+/**
+ * 嵌套横向列表（轮播、Banner）的辅助类：
+ * 1. 同一类型的嵌套列表共享一个{@link InnerRecycledViewPool}，外层holder被回收后卡片可以直接复用；
+ * 2. 按section保存和恢复嵌套列表的滚动状态；
+ * 3. 设置初始预取数量，外层列表空闲预取时提前创建轮播的前N个卡片。
+ * <p>
+ * 一般在外层ViewHolder绑定时调用{@link #attach}，回收时调用{@link #detach}。
+ * {@link com.ashlikun.vlayout.RecyclablePagerAdapter}也可以通过{@link #getSharedPool(Object)}获取共享池。
+ * 此类不支持多线程。
+ */
+public class NestedListHelper {
+
+    public static final int DEFAULT_INITIAL_PREFETCH_COUNT = 4;
+
+    private final HashMap<Object, InnerRecycledViewPool> mSharedPools = new HashMap<>();
+
+    private final HashMap<Object, Parcelable> mSavedStates = new HashMap<>();
+
+    private int mInitialPrefetchCount = DEFAULT_INITIAL_PREFETCH_COUNT;
+
+    /**
+     * 设置嵌套列表的初始预取数量，只对{@link LinearLayoutManager}生效
+     *
+     * @param count 预取的卡片数量，0表示不预取
+     */
+    public void setInitialPrefetchCount(int count) {
+        mInitialPrefetchCount = Math.max(0, count);
+    }
+
+    public int getInitialPrefetchCount() {
+        return mInitialPrefetchCount;
+    }
+
+    /**
+     * 获取某一类型嵌套列表共享的缓存池，不存在时创建
+     *
+     * @param type 嵌套列表的类型，相同类型的列表共享同一个池
+     */
+    @NonNull
+    public InnerRecycledViewPool getSharedPool(@NonNull Object type) {
+        InnerRecycledViewPool pool = mSharedPools.get(type);
+        if (pool == null) {
+            pool = new InnerRecycledViewPool();
+            mSharedPools.put(type, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * 绑定嵌套列表：设置共享池、预取数量，并恢复该section之前的滚动状态
+     *
+     * @param sectionKey section的唯一标识
+     * @param type       嵌套列表的类型
+     * @param nested     嵌套的RecyclerView
+     */
+    public void attach(@NonNull Object sectionKey, @NonNull Object type, @NonNull RecyclerView nested) {
+        InnerRecycledViewPool pool = getSharedPool(type);
+        if (nested.getRecycledViewPool() != pool) {
+            nested.setRecycledViewPool(pool);
+        }
+
+        RecyclerView.LayoutManager layoutManager = nested.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+            // 嵌套列表被移出窗口时，把卡片还给共享池
+            linearLayoutManager.setRecycleChildrenOnDetach(true);
+            if (mInitialPrefetchCount > 0) {
+                linearLayoutManager.setInitialPrefetchItemCount(mInitialPrefetchCount);
+            }
+        }
+
+        restoreState(sectionKey, nested);
+    }
+
+    /**
+     * 解绑嵌套列表，保存该section的滚动状态
+     */
+    public void detach(@NonNull Object sectionKey, @NonNull RecyclerView nested) {
+        saveState(sectionKey, nested);
+    }
+
+    public void saveState(@NonNull Object sectionKey, @NonNull RecyclerView nested) {
+        RecyclerView.LayoutManager layoutManager = nested.getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+        Parcelable state = layoutManager.onSaveInstanceState();
+        if (state != null) {
+            mSavedStates.put(sectionKey, state);
+        } else {
+            mSavedStates.remove(sectionKey);
+        }
+    }
+
+    /**
+     * @return 是否恢复了之前保存的状态
+     */
+    public boolean restoreState(@NonNull Object sectionKey, @NonNull RecyclerView nested) {
+        RecyclerView.LayoutManager layoutManager = nested.getLayoutManager();
+        Parcelable state = mSavedStates.get(sectionKey);
+        if (layoutManager == null) {
+            return false;
+        }
+        if (state == null) {
+            // 新section从头开始，避免沿用上一个section的滚动位置
+            layoutManager.scrollToPosition(0);
+            return false;
+        }
+        layoutManager.onRestoreInstanceState(state);
+        return true;
+    }
+
+    @Nullable
+    public Parcelable getSavedState(@NonNull Object sectionKey) {
+        return mSavedStates.get(sectionKey);
+    }
+
+    public void removeSavedState(@NonNull Object sectionKey) {
+        mSavedStates.remove(sectionKey);
+    }
+
+    /**
+     * 清空滚动状态和所有共享池
+     */
+    public void clear() {
+        mSavedStates.clear();
+        for (InnerRecycledViewPool pool : mSharedPools.values()) {
+            pool.clear();
+        }
+        mSharedPools.clear();
+    }
+}
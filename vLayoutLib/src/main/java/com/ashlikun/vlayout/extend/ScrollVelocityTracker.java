@@ -0,0 +1,73 @@
+package com.ashlikun.vlayout.extend;
+
+import android.os.SystemClock;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 根据每次滚动的距离估算滚动速度，不分配对象
+ */
+public class ScrollVelocityTracker {
+
+    /**
+     * 速度的平滑系数
+     */
+    private static final float VELOCITY_SMOOTHING = 0.3f;
+
+    /**
+     * 超过这个时间没有滚动，速度视为0
+     */
+    private static final long VELOCITY_TIMEOUT_MS = 100;
+
+    private float mVelocity = 0;
+
+    private long mLastScrollTime = 0;
+
+    private int mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+
+    /**
+     * 每次滚动时调用
+     *
+     * @param delta 本次滚动的距离
+     */
+    public void onScroll(int delta) {
+        final long now = SystemClock.uptimeMillis();
+        final long dt = now - mLastScrollTime;
+        mLastScrollTime = now;
+        if (dt <= 0 || dt > VELOCITY_TIMEOUT_MS) {
+            mVelocity = 0;
+            return;
+        }
+        final float velocity = delta * 1000f / dt;
+        mVelocity = mVelocity + (velocity - mVelocity) * VELOCITY_SMOOTHING;
+    }
+
+    public void onScrollStateChanged(int state) {
+        mScrollState = state;
+        if (state == RecyclerView.SCROLL_STATE_IDLE) {
+            mVelocity = 0;
+        }
+    }
+
+    public int getScrollState() {
+        return mScrollState;
+    }
+
+    /**
+     * @return 平滑后的速度，像素/秒，带方向
+     */
+    public float getVelocity() {
+        if (SystemClock.uptimeMillis() - mLastScrollTime > VELOCITY_TIMEOUT_MS) {
+            return 0;
+        }
+        return mVelocity;
+    }
+
+    /**
+     * @param threshold 速度阈值，像素/秒
+     * @return 正在滚动且速度超过阈值
+     */
+    public boolean isFlinging(float threshold) {
+        return mScrollState != RecyclerView.SCROLL_STATE_IDLE && Math.abs(getVelocity()) >= threshold;
+    }
+}
@@ -7,6 +7,8 @@ import androidx.annotation.NonNull;
 import com.ashlikun.vlayout.VirtualLayoutManager;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 public class ViewLifeCycleHelper {
     public enum STATUS {
@@ -72,6 +74,23 @@ public class ViewLifeCycleHelper {
         }
     }
 
+    /**
+     * 移除状态为DISAPPEARED的记录，缺少记录时默认就是DISAPPEARED
+     *
+     * @return 移除的记录数
+     */
+    public int trim() {
+        int removed = 0;
+        Iterator<Map.Entry<View, STATUS>> it = mViewStatusMap.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() == STATUS.DISAPPEARED) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
     private STATUS getViewStatus(View view) {
         if (!mViewStatusMap.containsKey(view)) {
             mViewStatusMap.put(view, STATUS.DISAPPEARED);
@@ -29,8 +29,10 @@ import static com.ashlikun.vlayout.VirtualLayoutManager.VERTICAL;
 import android.graphics.Rect;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
 
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.Recycler;
 import androidx.recyclerview.widget.RecyclerView.State;
@@ -40,6 +42,8 @@ import com.ashlikun.vlayout.Range;
 import com.ashlikun.vlayout.VirtualLayoutManager;
 import com.ashlikun.vlayout.VirtualLayoutManager.LayoutStateWrapper;
 
+import java.util.Arrays;
+
 
 /**
  * “FullFill”意味着它负责的所有子视图都应立即进行布局或回收。否则，内部布局状态将进入混乱。
@@ -54,6 +58,34 @@ public abstract class AbstractFullFillLayoutHelper extends BaseLayoutHelper {
 
     protected boolean mLayoutWithAnchor = false;
 
+    /**
+     * 内容子视图的尺寸只由参数决定时，缓存计算好的测量和位置，相同参数再次布局时直接摆放
+     */
+    private boolean mGeometryCacheEnabled = true;
+
+    /**
+     * 按布局方向分别缓存，两个方向计算位置的方式不同
+     */
+    private final GeometryCache[] mGeometryCaches = {new GeometryCache(), new GeometryCache()};
+
+    private GeometryCache mRecordingCache;
+
+    private View[] mRecordingViews;
+
+    private int mGeometryVersion = 0;
+
+    private int mGeometryCacheHits = 0;
+
+    private int mGeometryCacheMisses = 0;
+
+    /**
+     * 当前布局过程中的项目数量，预布局时是上一次布局的数量
+     */
+    protected int getLayoutItemCount() {
+        final Range<Integer> range = getRange();
+        return range.getLower() < 0 ? 0 : range.getUpper() - range.getLower() + 1;
+    }
+
     protected int getAllChildren(View[] toFill,
                                  RecyclerView.Recycler recycler, LayoutStateWrapper layoutState,
                                  com.ashlikun.vlayout.layout.LayoutChunkResult result, LayoutManagerHelper helper) {
@@ -190,23 +222,45 @@ public abstract class AbstractFullFillLayoutHelper extends BaseLayoutHelper {
 
     @Override
     public boolean isRecyclable(int childPos, int startIndex, int endIndex, LayoutManagerHelper helper, boolean fromStart) {
-        Range<Integer> range = getRange();
-        if (range.contains(childPos)) {
-            if (hasHeader && childPos == getRange().getLower()) {
+        final int lower = getRange().getLower();
+        final int upper = getRange().getUpper();
+        if (childPos >= lower && childPos <= upper) {
+            if (hasHeader && childPos == lower) {
                 return true;
             }
-            if (hasFooter && childPos == getRange().getUpper()) {
+            if (hasFooter && childPos == upper) {
                 return true;
             }
-            Range<Integer> childRange = Range.create(range.getLower() + (hasHeader ? 1 : 0),
-                    range.getUpper() - (hasFooter ? 1 : 0));
-            return Range.create(startIndex, endIndex).contains(childRange);
+            // 内容区间完全处于回收区间内时才可回收，直接比较避免创建Range
+            final int childLower = lower + (hasHeader ? 1 : 0);
+            final int childUpper = upper - (hasFooter ? 1 : 0);
+            return startIndex <= childLower && childUpper <= endIndex;
         } else {
             Log.w(TAG, "Child item not match");
             return true;
         }
     }
 
+    @Override
+    public int getRecyclableCount(View[] children, int[] positions, int offset, int count,
+                                  int startIndex, int endIndex, LayoutManagerHelper helper, boolean fromStart) {
+        final int lower = getRange().getLower();
+        final int upper = getRange().getUpper();
+        final int childLower = lower + (hasHeader ? 1 : 0);
+        final int childUpper = upper - (hasFooter ? 1 : 0);
+        // 内容区间是否可回收对整段相同，只有头尾需要逐个判断
+        if (startIndex <= childLower && childUpper <= endIndex) {
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            final int childPos = positions[offset + i];
+            if (childPos >= childLower && childPos <= childUpper) {
+                return i;
+            }
+        }
+        return count;
+    }
+
     public void setHasHeader(boolean hasHeader) {
         this.hasHeader = hasHeader;
     }
@@ -215,6 +269,315 @@ public abstract class AbstractFullFillLayoutHelper extends BaseLayoutHelper {
         this.hasFooter = hasFooter;
     }
 
+    public void setGeometryCacheEnabled(boolean enabled) {
+        this.mGeometryCacheEnabled = enabled;
+        if (!enabled) {
+            invalidateGeometryCache();
+        }
+    }
+
+    public boolean isGeometryCacheEnabled() {
+        return mGeometryCacheEnabled;
+    }
+
+    /**
+     * 权重等影响布局但不在缓存键中的参数变化时调用
+     */
+    protected void invalidateGeometryCache() {
+        mGeometryVersion++;
+        mGeometryCaches[0].mValid = false;
+        mGeometryCaches[1].mValid = false;
+    }
+
+    public int getGeometryCacheHitCount() {
+        return mGeometryCacheHits;
+    }
+
+    public int getGeometryCacheMissCount() {
+        return mGeometryCacheMisses;
+    }
+
+    public void resetGeometryCacheStats() {
+        mGeometryCacheHits = 0;
+        mGeometryCacheMisses = 0;
+    }
+
+    /**
+     * 尝试用缓存的几何信息布局内容子视图，命中时只用精确的尺寸测量并摆放，不再走计算流程；
+     * 未命中时开始记录，计算布局完成后需要调用{@link #saveGeometryCache(int, LayoutStateWrapper, LayoutManagerHelper)}
+     *
+     * @param views 内容子视图
+     * @param count 子视图数量
+     * @return 命中时返回消耗的主轴空间，未命中返回-1
+     */
+    protected int layoutFromGeometryCache(View[] views, int count, LayoutStateWrapper layoutState, LayoutManagerHelper helper) {
+        mRecordingCache = null;
+        mRecordingViews = null;
+        if (!mGeometryCacheEnabled || count <= 0 || layoutState.isPreLayout()) {
+            // 预布局是旧的排列，不读写缓存
+            return -1;
+        }
+        final GeometryCache cache = mGeometryCaches[layoutState.getLayoutDirection() == LayoutStateWrapper.LAYOUT_START ? 0 : 1];
+        final int[] key = cache.mTempKey;
+        buildGeometryKey(key, count, helper);
+        if (cache.mValid && cache.matches(key, views, count)) {
+            mGeometryCacheHits++;
+            final boolean layoutInVertical = helper.getOrientation() == VERTICAL;
+            final int origin = layoutState.getLayoutDirection() == LayoutStateWrapper.LAYOUT_START
+                    ? layoutState.getOffset() - cache.mConsumed : layoutState.getOffset();
+            for (int i = 0; i < count; i++) {
+                final View view = views[i];
+                // 计算流程会修改LayoutParams，保持和计算后一致
+                cache.applyParams(i, (RecyclerView.LayoutParams) view.getLayoutParams());
+                // 测量规格不变时View内部会跳过onMeasure
+                helper.measureChild(view,
+                        View.MeasureSpec.makeMeasureSpec(cache.mMeasures[i * 2], View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(cache.mMeasures[i * 2 + 1], View.MeasureSpec.EXACTLY));
+                final int base = i * 4;
+                if (layoutInVertical) {
+                    layoutChildWithMargin(view, cache.mRects[base], origin + cache.mRects[base + 1],
+                            cache.mRects[base + 2], origin + cache.mRects[base + 3], helper);
+                } else {
+                    layoutChildWithMargin(view, origin + cache.mRects[base], cache.mRects[base + 1],
+                            origin + cache.mRects[base + 2], cache.mRects[base + 3], helper);
+                }
+            }
+            return cache.mConsumed;
+        }
+        mGeometryCacheMisses++;
+        cache.mValid = false;
+        if (isGeometryCacheable(views, count, helper)) {
+            cache.begin(key, views, count);
+            mRecordingCache = cache;
+            mRecordingViews = views;
+        }
+        return -1;
+    }
+
+    /**
+     * 计算布局完成后保存几何信息
+     *
+     * @param consumed 消耗的主轴空间
+     */
+    protected void saveGeometryCache(int consumed, LayoutStateWrapper layoutState, LayoutManagerHelper helper) {
+        final GeometryCache cache = mRecordingCache;
+        mRecordingCache = null;
+        mRecordingViews = null;
+        if (cache == null || consumed < 0 || cache.mRecorded != cache.mCount) {
+            return;
+        }
+        final boolean layoutInVertical = helper.getOrientation() == VERTICAL;
+        final int origin = layoutState.getLayoutDirection() == LayoutStateWrapper.LAYOUT_START
+                ? layoutState.getOffset() - consumed : layoutState.getOffset();
+        cache.finish(consumed, origin, layoutInVertical);
+    }
+
+    @Override
+    protected void layoutChildWithMargin(View child, int left, int top, int right, int bottom, @NonNull LayoutManagerHelper helper, boolean addLayoutRegionWithMargin) {
+        super.layoutChildWithMargin(child, left, top, right, bottom, helper, addLayoutRegionWithMargin);
+        if (mRecordingCache != null) {
+            mRecordingCache.record(mRecordingViews, child, left, top, right, bottom);
+        }
+    }
+
+    /**
+     * 每个子视图主轴方向的尺寸都由宽高比或固定值决定时，布局结果和内容无关，可以缓存
+     */
+    private boolean isGeometryCacheable(View[] views, int count, LayoutManagerHelper helper) {
+        if (!Float.isNaN(mAspectRatio)) {
+            return true;
+        }
+        final boolean layoutInVertical = helper.getOrientation() == VERTICAL;
+        for (int i = 0; i < count; i++) {
+            LayoutParams lp = views[i].getLayoutParams();
+            if (lp instanceof VirtualLayoutManager.LayoutParams
+                    && !Float.isNaN(((VirtualLayoutManager.LayoutParams) lp).mAspectRatio)) {
+                continue;
+            }
+            if ((layoutInVertical ? lp.height : lp.width) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void buildGeometryKey(int[] key, int count, LayoutManagerHelper helper) {
+        key[0] = count;
+        key[1] = helper.getOrientation();
+        key[2] = helper.getContentWidth();
+        key[3] = helper.getContentHeight();
+        key[4] = helper.getPaddingLeft();
+        key[5] = helper.getPaddingTop();
+        key[6] = helper.getPaddingRight();
+        key[7] = helper.getPaddingBottom();
+        key[8] = mMarginLeft;
+        key[9] = mMarginTop;
+        key[10] = mMarginRight;
+        key[11] = mMarginBottom;
+        key[12] = mPaddingLeft;
+        key[13] = mPaddingTop;
+        key[14] = mPaddingRight;
+        key[15] = mPaddingBottom;
+        key[16] = Float.floatToIntBits(mAspectRatio);
+        key[17] = (hasHeader ? 1 : 0) | (hasFooter ? 2 : 0) | (mLayoutWithAnchor ? 4 : 0);
+        key[18] = mGeometryVersion;
+    }
+
+    /**
+     * 一组内容子视图的测量和位置，主轴方向的位置相对于区域起点
+     */
+    private static final class GeometryCache {
+
+        private static final int KEY_SIZE = 19;
+
+        /**
+         * 每个子视图记录的LayoutParams：宽、高、四个边距、宽高比
+         */
+        private static final int PARAMS_SIZE = 7;
+
+        private final int[] mKey = new int[KEY_SIZE];
+
+        private final int[] mTempKey = new int[KEY_SIZE];
+
+        private boolean mValid = false;
+
+        private int mCount = 0;
+
+        private int mRecorded = 0;
+
+        private int mConsumed = 0;
+
+        private int[] mRects = new int[0];
+
+        private int[] mMeasures = new int[0];
+
+        /**
+         * 计算前后的LayoutParams，计算流程会修改LayoutParams，两者之一相同即可命中
+         */
+        private float[] mParamsBefore = new float[0];
+
+        private float[] mParamsAfter = new float[0];
+
+        void begin(int[] key, View[] views, int count) {
+            System.arraycopy(key, 0, mKey, 0, KEY_SIZE);
+            mCount = count;
+            mRecorded = 0;
+            if (mRects.length < count * 4) {
+                mRects = new int[count * 4];
+                mMeasures = new int[count * 2];
+                mParamsBefore = new float[count * PARAMS_SIZE];
+                mParamsAfter = new float[count * PARAMS_SIZE];
+            }
+            Arrays.fill(mRects, Integer.MIN_VALUE);
+            for (int i = 0; i < count; i++) {
+                readParams(mParamsBefore, i, views[i].getLayoutParams());
+            }
+        }
+
+        void record(View[] views, View child, int left, int top, int right, int bottom) {
+            for (int i = 0; i < mCount; i++) {
+                if (views[i] == child) {
+                    final int base = i * 4;
+                    if (mRects[base] == Integer.MIN_VALUE) {
+                        mRecorded++;
+                    }
+                    mRects[base] = left;
+                    mRects[base + 1] = top;
+                    mRects[base + 2] = right;
+                    mRects[base + 3] = bottom;
+                    // 记录测量时使用的尺寸，包含装饰
+                    mMeasures[i * 2] = child.getMeasuredWidth() + (right - left) - getHorizontalMargins(child) - child.getWidth();
+                    mMeasures[i * 2 + 1] = child.getMeasuredHeight() + (bottom - top) - getVerticalMargins(child) - child.getHeight();
+                    readParams(mParamsAfter, i, child.getLayoutParams());
+                    return;
+                }
+            }
+        }
+
+        void finish(int consumed, int origin, boolean layoutInVertical) {
+            mConsumed = consumed;
+            final int offset = layoutInVertical ? 1 : 0;
+            for (int i = 0; i < mCount; i++) {
+                mRects[i * 4 + offset] -= origin;
+                mRects[i * 4 + offset + 2] -= origin;
+            }
+            mValid = true;
+        }
+
+        boolean matches(int[] key, View[] views, int count) {
+            if (count != mCount || !Arrays.equals(key, mKey)) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                LayoutParams lp = views[i].getLayoutParams();
+                if (!sameParams(mParamsAfter, i, lp) && !sameParams(mParamsBefore, i, lp)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void applyParams(int index, RecyclerView.LayoutParams lp) {
+            final int base = index * PARAMS_SIZE;
+            lp.width = (int) mParamsAfter[base];
+            lp.height = (int) mParamsAfter[base + 1];
+            lp.leftMargin = (int) mParamsAfter[base + 2];
+            lp.topMargin = (int) mParamsAfter[base + 3];
+            lp.rightMargin = (int) mParamsAfter[base + 4];
+            lp.bottomMargin = (int) mParamsAfter[base + 5];
+        }
+
+        private static void readParams(float[] out, int index, LayoutParams lp) {
+            final int base = index * PARAMS_SIZE;
+            out[base] = lp.width;
+            out[base + 1] = lp.height;
+            if (lp instanceof ViewGroup.MarginLayoutParams) {
+                ViewGroup.MarginLayoutParams mlp = (ViewGroup.MarginLayoutParams) lp;
+                out[base + 2] = mlp.leftMargin;
+                out[base + 3] = mlp.topMargin;
+                out[base + 4] = mlp.rightMargin;
+                out[base + 5] = mlp.bottomMargin;
+            } else {
+                out[base + 2] = out[base + 3] = out[base + 4] = out[base + 5] = 0;
+            }
+            out[base + 6] = lp instanceof VirtualLayoutManager.LayoutParams
+                    ? ((VirtualLayoutManager.LayoutParams) lp).mAspectRatio : Float.NaN;
+        }
+
+        private static boolean sameParams(float[] params, int index, LayoutParams lp) {
+            final int base = index * PARAMS_SIZE;
+            if (params[base] != lp.width || params[base + 1] != lp.height) {
+                return false;
+            }
+            if (lp instanceof ViewGroup.MarginLayoutParams) {
+                ViewGroup.MarginLayoutParams mlp = (ViewGroup.MarginLayoutParams) lp;
+                if (params[base + 2] != mlp.leftMargin || params[base + 3] != mlp.topMargin
+                        || params[base + 4] != mlp.rightMargin || params[base + 5] != mlp.bottomMargin) {
+                    return false;
+                }
+            }
+            final float aspectRatio = lp instanceof VirtualLayoutManager.LayoutParams
+                    ? ((VirtualLayoutManager.LayoutParams) lp).mAspectRatio : Float.NaN;
+            return Float.floatToIntBits(params[base + 6]) == Float.floatToIntBits(aspectRatio);
+        }
+
+        private static int getHorizontalMargins(View child) {
+            LayoutParams lp = child.getLayoutParams();
+            if (lp instanceof ViewGroup.MarginLayoutParams) {
+                return ((ViewGroup.MarginLayoutParams) lp).leftMargin + ((ViewGroup.MarginLayoutParams) lp).rightMargin;
+            }
+            return 0;
+        }
+
+        private static int getVerticalMargins(View child) {
+            LayoutParams lp = child.getLayoutParams();
+            if (lp instanceof ViewGroup.MarginLayoutParams) {
+                return ((ViewGroup.MarginLayoutParams) lp).topMargin + ((ViewGroup.MarginLayoutParams) lp).bottomMargin;
+            }
+            return 0;
+        }
+    }
+
     protected void calculateRect(int mainAxisSize, Rect areaRect, LayoutStateWrapper layoutState, LayoutManagerHelper helper) {
         if (helper.getOrientation() == VirtualLayoutManager.VERTICAL) {
             areaRect.left = helper.getPaddingLeft() + mMarginLeft + mPaddingLeft;
@@ -52,6 +52,8 @@ public abstract class BaseLayoutHelper extends MarginLayoutHelper {
 
     protected Rect mLayoutRegion = new Rect();
 
+    private final Rect mTempRect = new Rect();
+
     View mLayoutView;
 
     Drawable mBackground;
@@ -180,6 +182,11 @@ public abstract class BaseLayoutHelper extends MarginLayoutHelper {
             Log.d(TAG, "call afterLayout() on " + this.getClass().getSimpleName());
         }
 
+        if (state.isPreLayout()) {
+            // 背景视图只在正式布局中更新，预布局的区域不保留
+            mLayoutRegion.setEmpty();
+            return;
+        }
 
         if (requireLayoutView()) {
             if (isValidScrolled(scrolled) && mLayoutView != null) {
@@ -240,12 +247,14 @@ public abstract class BaseLayoutHelper extends MarginLayoutHelper {
     public void adjustLayout(int startPosition, int endPosition, LayoutManagerHelper helper) {
         if (requireLayoutView()) {
             View refer = null;
-            Rect tempRect = new Rect();
+            final Rect tempRect = mTempRect;
+            tempRect.setEmpty();
             final OrientationHelperEx orientationHelper = helper.getMainOrientationHelper();
-            for (int i = 0; i < helper.getChildCount(); i++) {
+            // 切片只包含本区间的子视图，逐个合并区域，getPosition只读取LayoutParams，不需要按位置查找
+            for (int i = helper.getChildSliceStart(), end = helper.getChildSliceEnd(); i < end; i++) {
                 refer = helper.getChildAt(i);
                 int anchorPos = helper.getPosition(refer);
-                if (getRange().contains(anchorPos)) {
+                if (!isOutOfRange(anchorPos)) {
                     if (refer.getVisibility() == View.GONE) {
                         tempRect.setEmpty();
                     } else {
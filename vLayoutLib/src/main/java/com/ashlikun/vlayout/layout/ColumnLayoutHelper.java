@@ -88,6 +88,7 @@ public class ColumnLayoutHelper extends AbstractFullFillLayoutHelper {
         } else {
             this.mWeights = new float[0];
         }
+        invalidateGeometryCache();
     }
 
     @Override
@@ -100,7 +101,7 @@ public class ColumnLayoutHelper extends AbstractFullFillLayoutHelper {
         final boolean layoutInVertical = helper.getOrientation() == VERTICAL;
         final OrientationHelperEx orientationHelper = helper.getMainOrientationHelper();
 
-        final int itemCount = getItemCount();
+        final int itemCount = getLayoutItemCount();
 
         if (mViews == null || mViews.length != itemCount) {
             mViews = new View[itemCount];
@@ -115,7 +116,10 @@ public class ColumnLayoutHelper extends AbstractFullFillLayoutHelper {
 
         final int count = getAllChildren(mViews, recycler, layoutState, result, helper);
 
-        if (layoutInVertical) {
+        final int cachedConsumed = layoutInVertical ? layoutFromGeometryCache(mViews, count, layoutState, helper) : -1;
+        if (cachedConsumed >= 0) {
+            result.mConsumed = cachedConsumed;
+        } else if (layoutInVertical) {
             // TODO: 现在只处理垂直布局
             int maxVMargin = 0;
             int lastHMargin = 0;
@@ -238,6 +242,7 @@ public class ColumnLayoutHelper extends AbstractFullFillLayoutHelper {
                 left = right;
             }
 
+            saveGeometryCache(result.mConsumed, layoutState, helper);
         }
 
         Arrays.fill(mViews, null);
@@ -37,8 +37,24 @@ public abstract class FixAreaLayoutHelper extends BaseLayoutHelper {
 
     protected FixViewAnimatorHelper mFixViewAnimatorHelper;
 
+    /**
+     * 浮层模式下固定视图上次测量时的容器尺寸和边距，任意一个变化都需要重新测量和布局
+     */
+    private int mOverlayContentWidth = -1;
+
+    private int mOverlayContentHeight = -1;
+
+    private int mOverlayMarginLeft;
+
+    private int mOverlayMarginTop;
+
+    private int mOverlayMarginRight;
+
+    private int mOverlayMarginBottom;
+
     public void setAdjuster(FixAreaAdjuster adjuster) {
         this.mAdjuster = adjuster;
+        invalidateOverlayMeasure();
     }
 
     public void setFixViewAnimatorHelper(
@@ -46,6 +62,46 @@ public abstract class FixAreaLayoutHelper extends BaseLayoutHelper {
         mFixViewAnimatorHelper = fixViewAnimatorHelper;
     }
 
+    /**
+     * 浮层模式下，视图已托管且容器尺寸、边距和位置参数都没有变化时可以跳过测量和布局，只保留已有位置
+     *
+     * @param view   固定视图
+     * @param helper LayoutManagerHelper
+     * @return 可以跳过测量时为true
+     */
+    protected boolean canSkipOverlayMeasure(View view, LayoutManagerHelper helper) {
+        return helper.isFixedViewHosted(view)
+                && !view.isLayoutRequested()
+                && mOverlayContentWidth == helper.getContentWidth()
+                && mOverlayContentHeight == helper.getContentHeight()
+                && mOverlayMarginLeft == mMarginLeft
+                && mOverlayMarginTop == mMarginTop
+                && mOverlayMarginRight == mMarginRight
+                && mOverlayMarginBottom == mMarginBottom;
+    }
+
+    /**
+     * 记录固定视图测量时的容器尺寸
+     *
+     * @param helper LayoutManagerHelper
+     */
+    protected void markOverlayMeasured(LayoutManagerHelper helper) {
+        mOverlayContentWidth = helper.getContentWidth();
+        mOverlayContentHeight = helper.getContentHeight();
+        mOverlayMarginLeft = mMarginLeft;
+        mOverlayMarginTop = mMarginTop;
+        mOverlayMarginRight = mMarginRight;
+        mOverlayMarginBottom = mMarginBottom;
+    }
+
+    /**
+     * 位置参数变化后调用，下次布局时重新测量和布局固定视图
+     */
+    protected void invalidateOverlayMeasure() {
+        mOverlayContentWidth = -1;
+        mOverlayContentHeight = -1;
+    }
+
     @Override
     public void adjustLayout(int startPosition, int endPosition, LayoutManagerHelper helper) {
 
@@ -133,14 +133,17 @@ public class FixLayoutHelper extends FixAreaLayoutHelper {
 
     public void setX(int x) {
         this.mX = x;
+        invalidateOverlayMeasure();
     }
 
     public void setY(int y) {
         this.mY = y;
+        invalidateOverlayMeasure();
     }
 
     public void setAlignType(int alignType) {
         this.mAlignType = alignType;
+        invalidateOverlayMeasure();
     }
 
 
@@ -173,6 +176,13 @@ public class FixLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
+        if (state.isPreLayout() && mFixView != null) {
+            // 预布局中浮动视图保持不变
+            layoutState.skipCurrentPosition();
+            result.mIgnoreConsumed = true;
+            return;
+        }
+
         // 在当前位置查找视图
         View view = mFixView;
         if (view == null) {
@@ -189,13 +199,16 @@ public class FixLayoutHelper extends FixAreaLayoutHelper {
         mDoNormalHandle = state.isPreLayout();
 
         if (mDoNormalHandle) {
-            // in PreLayout do normal layout
+            // 预布局中按正常子视图布局，由RecyclerView统一回收，不作为浮动视图保存
             helper.addChildView(layoutState, view);
+        } else {
+            mFixView = view;
         }
 
-        mFixView = view;
-
-        doMeasureAndLayout(view, helper);
+        if (!canSkipOverlayMeasure(view, helper)) {
+            // 浮层模式下尺寸未变化时保留已有的测量和位置
+            doMeasureAndLayout(view, helper);
+        }
 
         result.mConsumed = 0;
         result.mIgnoreConsumed = true;
@@ -214,8 +227,8 @@ public class FixLayoutHelper extends FixAreaLayoutHelper {
             LayoutManagerHelper helper) {
         super.beforeLayout(recycler, state, helper);
 
-        if (mFixView != null && helper.isViewHolderUpdated(mFixView)) {
-            // 回收视图以供以后使用
+        if (!state.isPreLayout() && mFixView != null && helper.isViewHolderUpdated(mFixView)) {
+            // 回收视图以供以后使用，预布局中保持不变，留到正式布局处理
             helper.removeChildView(mFixView);
             recycler.recycleView(mFixView);
             mFixView = null;
@@ -236,15 +249,8 @@ public class FixLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
-        if (mDoNormalHandle && state.isPreLayout()) {
-            if (mFixView != null) {
-//                Log.d(TAG, "after layout doNormal removeView");
-                helper.removeChildView(mFixView);
-                recycler.recycleView(mFixView);
-                isAddFixViewImmediately = false;
-            }
-
-            mFixView = null;
+        if (state.isPreLayout()) {
+            // 预布局添加的视图由RecyclerView统一回收
             return;
         }
 
@@ -466,6 +472,7 @@ public class FixLayoutHelper extends FixAreaLayoutHelper {
         }
 
         layoutChildWithMargin(view, left, top, right, bottom, helper);
+        markOverlayMeasured(helper);
     }
 
     private static class FixViewAppearAnimatorListener extends AnimatorListenerAdapter {
@@ -75,18 +75,22 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
     public void setDefaultLocation(int x, int y) {
         this.mX = x;
         this.mY = y;
+        invalidateOverlayMeasure();
     }
 
     public void setX(int x) {
         this.mX = x;
+        invalidateOverlayMeasure();
     }
 
     public void setY(int y) {
         this.mY = y;
+        invalidateOverlayMeasure();
     }
 
     public void setAlignType(int alignType) {
         this.mAlignType = alignType;
+        invalidateOverlayMeasure();
     }
 
     @Override
@@ -118,6 +122,12 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
+        if (state.isPreLayout() && mFixView != null) {
+            // 预布局中浮动视图保持不变
+            layoutState.skipCurrentPosition();
+            result.mIgnoreConsumed = true;
+            return;
+        }
 
         // 在当前位置查找视图
         View view = mFixView;
@@ -132,19 +142,21 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
-        helper.getChildViewHolder(view).setIsRecyclable(false);
-
         mDoNormalHandle = state.isPreLayout();
 
         if (mDoNormalHandle) {
-            // in PreLayout do normal layout
+            // 预布局中按正常子视图布局，由RecyclerView统一回收，不作为浮动视图保存
             helper.addChildView(layoutState, view);
+        } else {
+            helper.getChildViewHolder(view).setIsRecyclable(false);
+            mFixView = view;
+            mFixView.setClickable(true);
         }
 
-        mFixView = view;
-        mFixView.setClickable(true);
-
-        doMeasureAndLayout(view, helper);
+        if (!canSkipOverlayMeasure(view, helper)) {
+            // 浮层模式下尺寸未变化时保留已有的测量和位置
+            doMeasureAndLayout(view, helper);
+        }
 
 
         result.mConsumed = 0;
@@ -168,7 +180,7 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
     public void beforeLayout(RecyclerView.Recycler recycler, RecyclerView.State state, LayoutManagerHelper helper) {
         super.beforeLayout(recycler, state, helper);
 
-        if (mFixView != null && helper.isViewHolderUpdated(mFixView)) {
+        if (!state.isPreLayout() && mFixView != null && helper.isViewHolderUpdated(mFixView)) {
             // remove view, not recycle
             helper.removeChildView(mFixView);
             helper.recycleView(mFixView);
@@ -190,8 +202,8 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
-        if (mDoNormalHandle) {
-            mFixView = null;
+        if (state.isPreLayout()) {
+            // 预布局添加的视图由RecyclerView统一回收
             return;
         }
 
@@ -207,7 +219,7 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
                     }
                     mFixView.setTranslationX(mTransitionX);
                     mFixView.setTranslationY(mTransitionY);
-                } else {
+                } else if (!helper.isFixedViewHosted(mFixView)) {
                     helper.showView(mFixView);
                     // helper.removeChildView(mFixView);
                     if (dragEnable) {
@@ -347,6 +359,7 @@ public class FloatLayoutHelper extends FixAreaLayoutHelper {
         }
 
         layoutChildWithMargin(view, left, top, right, bottom, helper);
+        markOverlayMeasured(helper);
     }
 
 
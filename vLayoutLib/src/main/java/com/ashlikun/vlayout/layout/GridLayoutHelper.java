@@ -185,8 +185,10 @@ public class GridLayoutHelper extends BaseLayoutHelper {
      */
     @Override
     public void onRangeChange(int start, int end) {
+        final int delta = start - mSpanSizeLookup.getStartPosition();
         mSpanSizeLookup.setStartPosition(start);
-        mSpanSizeLookup.invalidateSpanIndexCache();
+        // 只是整体平移时跨度索引不变，范围内的变化由onItemsAdded等按位置失效
+        mSpanSizeLookup.offsetSpanIndexCache(delta);
     }
 
 
@@ -596,6 +598,38 @@ public class GridLayoutHelper extends BaseLayoutHelper {
         mSpanSizeLookup.invalidateSpanIndexCache();
     }
 
+    @Override
+    public void onItemsAdded(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        // 在范围之前插入时只是平移，已经在onRangeChange中处理
+        if (positionStart >= getRange().getLower()) {
+            mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        if (positionStart >= getRange().getLower()) {
+            mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
+        }
+    }
+
+    @Override
+    public void onItemsUpdated(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        // 更新可能改变跨度大小，之后的索引都需要重新计算
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(Math.max(positionStart, getRange().getLower()));
+    }
+
+    @Override
+    public void onItemsMoved(int from, int to, int itemCount, LayoutManagerHelper helper) {
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(Math.max(Math.min(from, to), getRange().getLower()));
+    }
+
+    @Override
+    public long trimMemory(int level, int startPosition, int endPosition, LayoutManagerHelper helper) {
+        // 跨度索引可以随时重新计算
+        return mSpanSizeLookup.trimSpanIndexCache();
+    }
+
     private static final int MAIN_DIR_SPEC =
             View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
 
@@ -742,7 +776,7 @@ public class GridLayoutHelper extends BaseLayoutHelper {
 
     public static abstract class SpanSizeLookup {
 
-        final SparseIntArray mSpanIndexCache = new SparseIntArray();
+        SparseIntArray mSpanIndexCache = new SparseIntArray();
 
         private boolean mCacheSpanIndices = false;
 
@@ -781,6 +815,45 @@ public class GridLayoutHelper extends BaseLayoutHelper {
             mSpanIndexCache.clear();
         }
 
+        /**
+         * 使position及之后的跨度索引缓存失效，之前的缓存仍然有效
+         */
+        public void invalidateSpanIndexCacheFrom(int position) {
+            for (int i = mSpanIndexCache.size() - 1; i >= 0 && mSpanIndexCache.keyAt(i) >= position; i--) {
+                mSpanIndexCache.delete(mSpanIndexCache.keyAt(i));
+            }
+        }
+
+        /**
+         * 起始位置平移后同步平移缓存的位置
+         */
+        void offsetSpanIndexCache(int delta) {
+            final int size = mSpanIndexCache.size();
+            if (delta == 0 || size == 0) {
+                return;
+            }
+            final SparseIntArray shifted = new SparseIntArray(size);
+            for (int i = 0; i < size; i++) {
+                shifted.append(mSpanIndexCache.keyAt(i) + delta, mSpanIndexCache.valueAt(i));
+            }
+            mSpanIndexCache = shifted;
+        }
+
+        /**
+         * 丢弃跨度索引缓存并释放其占用的数组
+         *
+         * @return 估算释放的字节数
+         */
+        long trimSpanIndexCache() {
+            final int size = mSpanIndexCache.size();
+            if (size == 0) {
+                return 0;
+            }
+            mSpanIndexCache = new SparseIntArray();
+            // key和value各一个int
+            return size * 8L;
+        }
+
         /**
          * 返回的结果 {@link #getSpanIndex(int, int)} 方法是否缓存。
          *
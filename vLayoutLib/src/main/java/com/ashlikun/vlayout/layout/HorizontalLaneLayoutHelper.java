@@ -0,0 +1,393 @@
+package com.ashlikun.vlayout.layout;
+
+import static com.ashlikun.vlayout.VirtualLayoutManager.VERTICAL;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.LayoutManagerHelper;
+import com.ashlikun.vlayout.OrientationHelperEx;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+import com.ashlikun.vlayout.VirtualLayoutManager.LayoutStateWrapper;
+
+import java.util.ArrayList;
+
+/**
+ * 可以横向滚动的一行，代替放在{@link SingleLayoutHelper}中的嵌套RecyclerView。
+ * 卡片和外层列表共用Recycler和缓存池，只添加横向可见的卡片，每个实例保存自己的横向滚动位置。
+ * 横向拖动和惯性滑动由{@link VirtualLayoutManager}按按下的位置分发到对应的行，只支持垂直方向。
+ * <pre>
+ * -------------------------
+ * | ---   ---   ---   --- |  ->
+ * | | |   | |   | |   | | |
+ * | ---   ---   ---   --- |
+ * -------------------------
+ * </pre>
+ * 行高为{@link #setLaneHeight(int)}设置的高度，未设置时取测量过的卡片中最高的；
+ * 横向滚动时出现更高的卡片会在下一次布局时更新行高，需要高度稳定时应设置行高或固定卡片高度。
+ */
+public class HorizontalLaneLayoutHelper extends BaseLayoutHelper {
+
+    /**
+     * 卡片之间的横向间隔
+     */
+    private int mHGap = 0;
+
+    /**
+     * 固定的卡片宽度（包含左右margin），0时按卡片的LayoutParams测量
+     */
+    private int mItemWidth = 0;
+
+    /**
+     * 固定的行高，0时取测量过的卡片中最高的
+     */
+    private int mLaneHeight = 0;
+
+    private int mMeasuredLaneHeight = 0;
+
+    /**
+     * 第一个可见卡片在行内的下标
+     */
+    private int mFirstIndex = 0;
+
+    /**
+     * 第一个可见卡片左边相对行左边的偏移，一般小于等于0
+     */
+    private int mFirstOffset = 0;
+
+    private final ArrayList<View> mLaneViews = new ArrayList<>();
+
+    public HorizontalLaneLayoutHelper() {
+        this(0);
+    }
+
+    public HorizontalLaneLayoutHelper(int itemCount) {
+        setItemCount(itemCount);
+    }
+
+    public void setHGap(int hGap) {
+        this.mHGap = Math.max(0, hGap);
+    }
+
+    public int getHGap() {
+        return mHGap;
+    }
+
+    public void setItemWidth(int itemWidth) {
+        this.mItemWidth = Math.max(0, itemWidth);
+    }
+
+    public int getItemWidth() {
+        return mItemWidth;
+    }
+
+    public void setLaneHeight(int laneHeight) {
+        this.mLaneHeight = Math.max(0, laneHeight);
+    }
+
+    public int getLaneHeight() {
+        return mLaneHeight;
+    }
+
+    /**
+     * 横向滚动到指定卡片，下一次布局时生效
+     *
+     * @param index  卡片在行内的下标
+     * @param offset 卡片左边相对行左边的偏移
+     */
+    public void scrollToIndex(int index, int offset) {
+        mFirstIndex = Math.max(0, index);
+        mFirstOffset = offset;
+    }
+
+    public int getFirstIndex() {
+        return mFirstIndex;
+    }
+
+    public int getFirstOffset() {
+        return mFirstOffset;
+    }
+
+    @Override
+    public void onItemsChanged(LayoutManagerHelper helper) {
+        super.onItemsChanged(helper);
+        mMeasuredLaneHeight = 0;
+    }
+
+    @Override
+    public void layoutViews(RecyclerView.Recycler recycler, RecyclerView.State state, LayoutStateWrapper layoutState, LayoutChunkResult result, LayoutManagerHelper helper) {
+        // 到达此布局的结尾
+        if (isOutOfRange(layoutState.getCurrentPosition())) {
+            return;
+        }
+        if (helper.getOrientation() != VERTICAL) {
+            throw new IllegalStateException("HorizontalLaneLayoutHelper only supports vertical orientation");
+        }
+
+        // 滚动时从屏幕上的卡片之后继续填充，这时整行已经添加过，偏移已经由computeAlignOffset对齐到行的边界
+        final boolean fromBoundary = layoutState.getItemDirection() == LayoutStateWrapper.ITEM_DIRECTION_TAIL
+                ? layoutState.getCurrentPosition() == getRange().getLower()
+                : layoutState.getCurrentPosition() == getRange().getUpper();
+
+        // 整行作为一个块，跳过所有位置，只取横向可见的卡片
+        while (!isOutOfRange(layoutState.getCurrentPosition())) {
+            layoutState.skipCurrentPosition();
+        }
+        // 预测动画的消失阶段不处理行内卡片，预布局按上一次布局的数量
+        final int itemCount = getRange().getLower() < 0 ? 0 : getRange().getUpper() - getRange().getLower() + 1;
+        if (!fromBoundary || layoutState.hasScrapList() || itemCount == 0) {
+            return;
+        }
+
+        final OrientationHelperEx mainHelper = helper.getMainOrientationHelper();
+        final OrientationHelperEx secondHelper = helper.getSecondaryOrientationHelper();
+        final int lower = getRange().getLower();
+        final int laneLeft = getLaneLeft(helper);
+        final int laneRight = getLaneRight(helper);
+
+        int index = Math.min(mFirstIndex, itemCount - 1);
+        int left = laneLeft + (index == mFirstIndex ? mFirstOffset : 0);
+
+        // 从锚点向右填充
+        int right = left - mHGap;
+        int next = index;
+        while (next < itemCount && right < laneRight) {
+            View view = obtainLaneView(recycler, layoutState, lower + next, helper);
+            mLaneViews.add(view);
+            right += mHGap + secondHelper.getDecoratedMeasurement(view);
+            next++;
+        }
+        // 到达末尾时右对齐
+        if (next == itemCount && right < laneRight) {
+            left += laneRight - right;
+        }
+        // 向左补齐
+        while (index > 0 && left > laneLeft) {
+            index--;
+            View view = obtainLaneView(recycler, layoutState, lower + index, helper);
+            mLaneViews.add(0, view);
+            left -= secondHelper.getDecoratedMeasurement(view) + mHGap;
+        }
+        if (index == 0 && left > laneLeft) {
+            left = laneLeft;
+        }
+        if (!layoutState.isPreLayout()) {
+            mFirstIndex = index;
+            mFirstOffset = left - laneLeft;
+        }
+
+        final int size = mLaneViews.size();
+        int laneHeight = mLaneHeight;
+        if (laneHeight <= 0) {
+            laneHeight = mMeasuredLaneHeight;
+            for (int i = 0; i < size; i++) {
+                laneHeight = Math.max(laneHeight, mainHelper.getDecoratedMeasurement(mLaneViews.get(i)));
+            }
+            mMeasuredLaneHeight = laneHeight;
+        }
+
+        // 子视图按位置升序排列
+        if (layoutState.getItemDirection() == LayoutStateWrapper.ITEM_DIRECTION_TAIL) {
+            for (int i = 0; i < size; i++) {
+                helper.addChildView(layoutState, mLaneViews.get(i));
+            }
+        } else {
+            for (int i = size - 1; i >= 0; i--) {
+                helper.addChildView(layoutState, mLaneViews.get(i));
+            }
+        }
+
+        final int top;
+        if (layoutState.getLayoutDirection() == LayoutStateWrapper.LAYOUT_START) {
+            top = layoutState.getOffset() - mMarginBottom - mPaddingBottom - laneHeight;
+        } else {
+            top = layoutState.getOffset() + mMarginTop + mPaddingTop;
+        }
+
+        int x = left;
+        for (int i = 0; i < size; i++) {
+            View view = mLaneViews.get(i);
+            final int width = secondHelper.getDecoratedMeasurement(view);
+            layoutChildWithMargin(view, x, top, x + width, top + mainHelper.getDecoratedMeasurement(view), helper);
+            handleStateOnResult(result, view);
+            x += width + mHGap;
+        }
+        mLaneViews.clear();
+
+        result.mConsumed = laneHeight + getVerticalMargin() + getVerticalPadding();
+    }
+
+    /**
+     * 横向滚动这一行，由{@link VirtualLayoutManager#scrollHorizontallyBy}调用。
+     * 添加滚入的卡片，回收完全滚出的卡片
+     *
+     * @param dx 滚动距离，大于0时内容向左移动
+     * @return 实际滚动的距离
+     */
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, LayoutManagerHelper helper) {
+        if (dx == 0 || getItemCount() == 0) {
+            return 0;
+        }
+
+        // 行内卡片在子视图中是连续的
+        int firstChild = -1;
+        int lastChild = -1;
+        for (int i = 0, count = helper.getChildCount(); i < count; i++) {
+            View child = helper.getChildAt(i);
+            if (child != null && !isOutOfRange(helper.getPosition(child))) {
+                if (firstChild < 0) {
+                    firstChild = i;
+                }
+                lastChild = i;
+            }
+        }
+        if (firstChild < 0) {
+            // 行不在屏幕上
+            return 0;
+        }
+
+        final OrientationHelperEx mainHelper = helper.getMainOrientationHelper();
+        final OrientationHelperEx secondHelper = helper.getSecondaryOrientationHelper();
+        final int laneLeft = getLaneLeft(helper);
+        final int laneRight = getLaneRight(helper);
+        final int top = mainHelper.getDecoratedStart(helper.getChildAt(firstChild));
+
+        int consumed;
+        if (dx > 0) {
+            View last = helper.getChildAt(lastChild);
+            int position = helper.getPosition(last);
+            int right = secondHelper.getDecoratedEnd(last);
+            while (right - dx < laneRight && position < getRange().getUpper()) {
+                position++;
+                View view = recycler.getViewForPosition(position);
+                helper.addChildView(view, ++lastChild);
+                measureLaneView(view, helper);
+                final int left = right + mHGap;
+                right = left + secondHelper.getDecoratedMeasurement(view);
+                layoutLaneView(view, left, right, top, mainHelper, helper);
+            }
+            consumed = Math.min(dx, Math.max(0, right - laneRight));
+        } else {
+            View first = helper.getChildAt(firstChild);
+            int position = helper.getPosition(first);
+            int left = secondHelper.getDecoratedStart(first);
+            while (left - dx > laneLeft && position > getRange().getLower()) {
+                position--;
+                View view = recycler.getViewForPosition(position);
+                helper.addChildView(view, firstChild);
+                lastChild++;
+                measureLaneView(view, helper);
+                final int right = left - mHGap;
+                left = right - secondHelper.getDecoratedMeasurement(view);
+                layoutLaneView(view, left, right, top, mainHelper, helper);
+            }
+            consumed = Math.max(dx, Math.min(0, left - laneLeft));
+        }
+
+        for (int i = lastChild; i >= firstChild; i--) {
+            View child = helper.getChildAt(i);
+            if (child == null) {
+                continue;
+            }
+            child.offsetLeftAndRight(-consumed);
+            if (secondHelper.getDecoratedEnd(child) <= laneLeft || secondHelper.getDecoratedStart(child) >= laneRight) {
+                helper.removeChildView(child);
+                recycler.recycleView(child);
+                lastChild--;
+            }
+        }
+
+        if (lastChild >= firstChild) {
+            View first = helper.getChildAt(firstChild);
+            mFirstIndex = helper.getPosition(first) - getRange().getLower();
+            mFirstOffset = secondHelper.getDecoratedStart(first) - laneLeft;
+        }
+        return consumed;
+    }
+
+    /**
+     * 卡片高度不同，先滚出的卡片不能单独回收，否则滚回来时从留下的卡片继续填充会缺少它们。
+     * 回收方向上还有留在屏幕上的卡片时整行都不回收
+     */
+    @Override
+    public int getRecyclableCount(View[] children, int[] positions, int offset, int count,
+                                  int startIndex, int endIndex, LayoutManagerHelper helper, boolean fromStart) {
+        final int next = positions[offset + count - 1] + (fromStart ? 1 : -1);
+        if (!isOutOfRange(next) && helper.findViewByPosition(next) != null) {
+            return 0;
+        }
+        return count;
+    }
+
+    /**
+     * 卡片的上边都在行内容的上边，高度可能不同，向下填充时按行高对齐到行的下边
+     */
+    @Override
+    public int computeAlignOffset(int offset, boolean isLayoutEnd, boolean useAnchor, LayoutManagerHelper helper) {
+        if (!isLayoutEnd) {
+            return -mMarginTop - mPaddingTop;
+        }
+        final View view = helper.findViewByPosition(getRange().getLower() + offset);
+        final int laneHeight = mLaneHeight > 0 ? mLaneHeight : mMeasuredLaneHeight;
+        if (view == null || laneHeight <= 0) {
+            return mMarginBottom + mPaddingBottom;
+        }
+        final OrientationHelperEx mainHelper = helper.getMainOrientationHelper();
+        return mainHelper.getDecoratedStart(view) + laneHeight - mainHelper.getDecoratedEnd(view)
+                + mMarginBottom + mPaddingBottom;
+    }
+
+    @Override
+    public void checkAnchorInfo(RecyclerView.State state, VirtualLayoutManager.AnchorInfoWrapper anchorInfo, LayoutManagerHelper helper) {
+        if (anchorInfo.layoutFromEnd) {
+            anchorInfo.position = getRange().getUpper();
+        } else {
+            anchorInfo.position = getRange().getLower();
+        }
+    }
+
+    private View obtainLaneView(RecyclerView.Recycler recycler, LayoutStateWrapper layoutState, int position, LayoutManagerHelper helper) {
+        View view = layoutState.retrieve(recycler, position);
+        measureLaneView(view, helper);
+        return view;
+    }
+
+    private void measureLaneView(View view, LayoutManagerHelper helper) {
+        final VirtualLayoutManager.LayoutParams params = (VirtualLayoutManager.LayoutParams) view.getLayoutParams();
+        final int horizontalMargin = params.leftMargin + params.rightMargin;
+        // 卡片宽度和行高都包含margin，这里自己扣除margin，只让measureChild扣除ItemDecoration，与布局方向无关
+        final int itemWidth = Math.max(0, mItemWidth - horizontalMargin);
+        final int widthSpec = mItemWidth > 0
+                ? View.MeasureSpec.makeMeasureSpec(itemWidth, View.MeasureSpec.EXACTLY)
+                : helper.getChildMeasureSpec(Math.max(0, getLaneRight(helper) - getLaneLeft(helper) - horizontalMargin),
+                params.width, true);
+        final int heightSpec;
+        if (mLaneHeight > 0) {
+            heightSpec = View.MeasureSpec.makeMeasureSpec(
+                    Math.max(0, mLaneHeight - params.topMargin - params.bottomMargin), View.MeasureSpec.EXACTLY);
+        } else if (mItemWidth > 0 && !Float.isNaN(params.mAspectRatio)) {
+            heightSpec = View.MeasureSpec.makeMeasureSpec((int) (itemWidth / params.mAspectRatio + 0.5f), View.MeasureSpec.EXACTLY);
+        } else {
+            heightSpec = helper.getChildMeasureSpec(helper.getContentHeight() - helper.getPaddingTop()
+                    - helper.getPaddingBottom(), params.height, true);
+        }
+        helper.measureChild(view, widthSpec, heightSpec);
+    }
+
+    private void layoutLaneView(View view, int left, int right, int top, OrientationHelperEx mainHelper, LayoutManagerHelper helper) {
+        final int height = mainHelper.getDecoratedMeasurement(view);
+        if (mLaneHeight <= 0 && height > mMeasuredLaneHeight) {
+            mMeasuredLaneHeight = height;
+        }
+        layoutChildWithMargin(view, left, top, right, top + height, helper);
+    }
+
+    private int getLaneLeft(LayoutManagerHelper helper) {
+        return helper.getPaddingLeft() + mMarginLeft + mPaddingLeft;
+    }
+
+    private int getLaneRight(LayoutManagerHelper helper) {
+        return helper.getContentWidth() - helper.getPaddingRight() - mMarginRight - mPaddingRight;
+    }
+}
@@ -150,10 +150,12 @@ public class OnePlusNLayoutHelper extends AbstractFullFillLayoutHelper {
         } else {
             this.mColWeights = new float[0];
         }
+        invalidateGeometryCache();
     }
 
     public void setRowWeight(float weight) {
         this.mRowWeight = weight;
+        invalidateGeometryCache();
     }
 
     @Override
@@ -237,7 +239,7 @@ public class OnePlusNLayoutHelper extends AbstractFullFillLayoutHelper {
             result.mConsumed = footerConsumed;
             handleStateOnResult(result, footer);
         } else {
-            int contentCount = getItemCount() - (hasHeader ? 1 : 0) - (hasFooter ? 1 : 0);
+            int contentCount = getLayoutItemCount() - (hasHeader ? 1 : 0) - (hasFooter ? 1 : 0);
             if (mChildrenViews == null || mChildrenViews.length != contentCount) {
                 mChildrenViews = new View[contentCount];
             }
@@ -245,7 +247,14 @@ public class OnePlusNLayoutHelper extends AbstractFullFillLayoutHelper {
             if (count == 0 || count < contentCount) {
                 return;
             }
-            int mainConsumed = 0;
+            int mainConsumed = layoutFromGeometryCache(mChildrenViews, count, layoutState, helper);
+            if (mainConsumed >= 0) {
+                handleStateOnResult(result, mChildrenViews);
+                result.mConsumed = mainConsumed;
+                Arrays.fill(mChildrenViews, null);
+                return;
+            }
+            mainConsumed = 0;
             if (contentCount == 1) {
                 mainConsumed = handleOne(layoutState, result, helper, layoutInVertical, parentWidth, parentHeight, parentHPadding, parentVPadding);
             } else if (contentCount == 2) {
@@ -257,6 +266,7 @@ public class OnePlusNLayoutHelper extends AbstractFullFillLayoutHelper {
             } else if (contentCount == 5) {
                 mainConsumed = handleFive(layoutState, result, helper, layoutInVertical, parentWidth, parentHeight, parentHPadding, parentVPadding);
             }
+            saveGeometryCache(mainConsumed, layoutState, helper);
             result.mConsumed = mainConsumed;
             Arrays.fill(mChildrenViews, null);
         }
@@ -123,10 +123,12 @@ public class OnePlusNLayoutHelperEx extends AbstractFullFillLayoutHelper {
         } else {
             this.mColWeights = new float[0];
         }
+        invalidateGeometryCache();
     }
 
     public void setRowWeight(float weight) {
         this.mRowWeight = weight;
+        invalidateGeometryCache();
     }
 
     @Override
@@ -138,13 +140,13 @@ public class OnePlusNLayoutHelperEx extends AbstractFullFillLayoutHelper {
             return;
         }
 
-        if (mChildrenViews == null || mChildrenViews.length != getItemCount()) {
-            mChildrenViews = new View[getItemCount()];
+        if (mChildrenViews == null || mChildrenViews.length != getLayoutItemCount()) {
+            mChildrenViews = new View[getLayoutItemCount()];
         }
 
         int count = getAllChildren(mChildrenViews, recycler, layoutState, result, helper);
 
-        if (count != getItemCount()) {
+        if (count != getLayoutItemCount()) {
             Log.w(TAG, "The real number of children is not match with range of LayoutHelper");
         }
 
@@ -157,7 +159,14 @@ public class OnePlusNLayoutHelperEx extends AbstractFullFillLayoutHelper {
         final int parentVPadding = helper.getPaddingTop() + helper.getPaddingBottom()
                 + getVerticalMargin() + getVerticalPadding();
 
-        int mainConsumed = 0;
+        int mainConsumed = layoutFromGeometryCache(mChildrenViews, count, layoutState, helper);
+        if (mainConsumed >= 0) {
+            handleStateOnResult(result, mChildrenViews);
+            result.mConsumed = mainConsumed;
+            Arrays.fill(mChildrenViews, null);
+            return;
+        }
+        mainConsumed = 0;
 
         if (count == 5) {
             mainConsumed = handleFive(layoutState, result, helper, layoutInVertical, parentWidth, parentHeight,
@@ -170,6 +179,7 @@ public class OnePlusNLayoutHelperEx extends AbstractFullFillLayoutHelper {
                 parentHPadding, parentVPadding);
         }
 
+        saveGeometryCache(mainConsumed, layoutState, helper);
         result.mConsumed = mainConsumed;
 
         Arrays.fill(mChildrenViews, null);
@@ -28,6 +28,7 @@ import static androidx.recyclerview.widget.LinearLayoutManager.VERTICAL;
 
 import android.graphics.drawable.Drawable;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.View;
 
 import androidx.annotation.NonNull;
@@ -224,7 +225,7 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
         boolean isStartLine = false, isEndLine = false;
         boolean isSecondStartLine = false, isSecondEndLine = false;
         final int currentPosition = layoutState.getCurrentPosition();
-        GridRangeStyle rangeStyle = mRangeStyle.findRangeStyleByPosition(currentPosition);
+        GridRangeStyle rangeStyle = findRangeStyleForLayout(recycler, state, currentPosition);
 
         final int itemDirection = layoutState.getItemDirection();
         final boolean layingOutInPrimaryDirection =
@@ -267,7 +268,7 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
                 while (count < rangeStyle.mSpanCount && revRemainingSpan > 0) {
                     // go reverse direction to find views fill current row
                     index -= itemDirection;
-                    if (rangeStyle.isOutOfRange(index)) {
+                    if (isOutOfStyleRange(rangeStyle, recycler, state, index)) {
                         break;
                     }
                     final int spanSize = getSpanSize(rangeStyle.mSpanSizeLookup, recycler, state, index);
@@ -321,7 +322,7 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
 
         while (count < rangeStyle.mSpanCount && layoutState.hasMore(state) && remainingSpan > 0) {
             int pos = layoutState.getCurrentPosition();
-            if (rangeStyle.isOutOfRange(pos)) {
+            if (isOutOfStyleRange(rangeStyle, recycler, state, pos)) {
                 if (VLayoutUtils.isDebug) {
                     Log.d(TAG, "pos [" + pos + "] is out of range");
                 }
@@ -728,6 +729,30 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
         mRangeStyle.onInvalidateSpanIndexCache();
     }
 
+    @Override
+    public void onItemsAdded(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        if (positionStart >= getRange().getLower()) {
+            mRangeStyle.onInvalidateSpanIndexCacheFrom(positionStart);
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        if (positionStart >= getRange().getLower()) {
+            mRangeStyle.onInvalidateSpanIndexCacheFrom(positionStart);
+        }
+    }
+
+    @Override
+    public void onItemsUpdated(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        mRangeStyle.onInvalidateSpanIndexCacheFrom(Math.max(positionStart, getRange().getLower()));
+    }
+
+    @Override
+    public void onItemsMoved(int from, int to, int itemCount, LayoutManagerHelper helper) {
+        mRangeStyle.onInvalidateSpanIndexCacheFrom(Math.max(Math.min(from, to), getRange().getLower()));
+    }
+
     private static final int MAIN_DIR_SPEC =
             View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
 
@@ -781,6 +806,34 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
     }
 
 
+    /**
+     * 子样式按新位置保存，预布局中先转换位置，已删除的项目使用根样式
+     */
+    private GridRangeStyle findRangeStyleForLayout(RecyclerView.Recycler recycler, RecyclerView.State state, int pos) {
+        if (!state.isPreLayout()) {
+            return mRangeStyle.findRangeStyleByPosition(pos);
+        }
+
+        final int adapterPosition = recycler.convertPreLayoutPositionToPostLayout(pos);
+        if (adapterPosition == -1) {
+            return mRangeStyle;
+        }
+        return mRangeStyle.findRangeStyleByPosition(adapterPosition);
+    }
+
+    private boolean isOutOfStyleRange(GridRangeStyle rangeStyle, RecyclerView.Recycler recycler, RecyclerView.State state, int pos) {
+        if (!state.isPreLayout()) {
+            return rangeStyle.isOutOfRange(pos);
+        }
+
+        if (isOutOfRange(pos)) {
+            return true;
+        }
+        final int adapterPosition = recycler.convertPreLayoutPositionToPostLayout(pos);
+        // 已删除的项目跟随当前行
+        return adapterPosition != -1 && rangeStyle.isOutOfRange(adapterPosition);
+    }
+
     private int getSpanIndex(SpanSizeLookup spanSizeLookup, int spanCount, RecyclerView.Recycler recycler, RecyclerView.State state, int pos) {
         if (!state.isPreLayout()) {
             return spanSizeLookup.getCachedSpanIndex(pos, spanCount);
@@ -894,6 +947,26 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
          */
         private int[] mSpanCols;
 
+        private static final int NO_ALIGN_OFFSET = Integer.MIN_VALUE;
+
+        private static final int ALIGN_START_VERTICAL = 0;
+
+        private static final int ALIGN_START_HORIZONTAL = 1;
+
+        private static final int ALIGN_END_VERTICAL = 2;
+
+        private static final int ALIGN_END_HORIZONTAL = 3;
+
+        /**
+         * 按位置缓存{@link #findRangeStyleByPosition(int)}的结果，样式树变化时清空
+         */
+        private final SparseArray<GridRangeStyle> mStyleByPosition = new SparseArray<>();
+
+        /**
+         * 缓存子树的首尾对齐偏移，按ALIGN_*保存
+         */
+        private final int[] mAlignOffsets = {NO_ALIGN_OFFSET, NO_ALIGN_OFFSET, NO_ALIGN_OFFSET, NO_ALIGN_OFFSET};
+
 
         public GridRangeStyle(RangeGridLayoutHelper layoutHelper) {
             super(layoutHelper);
@@ -907,7 +980,19 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
 
         //TODO 查找样式itr
         public GridRangeStyle findRangeStyleByPosition(int position) {
-            return findRangeStyle(this, position);
+            GridRangeStyle rangeStyle = mStyleByPosition.get(position);
+            if (rangeStyle == null) {
+                rangeStyle = findRangeStyle(this, position);
+                mStyleByPosition.put(position, rangeStyle);
+            }
+            return rangeStyle;
+        }
+
+        @Override
+        protected void onStyleChanged() {
+            super.onStyleChanged();
+            mStyleByPosition.clear();
+            Arrays.fill(mAlignOffsets, NO_ALIGN_OFFSET);
         }
 
         private GridRangeStyle findRangeStyle(GridRangeStyle rangeStyle, int position) {
@@ -949,7 +1034,24 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
             }
         }
 
+        public void onInvalidateSpanIndexCacheFrom(int position) {
+            mSpanSizeLookup.invalidateSpanIndexCacheFrom(position);
+            for (int i = 0, size = mChildList.size(); i < size; i++) {
+                mChildList.get(i).onInvalidateSpanIndexCacheFrom(position);
+            }
+        }
+
         public static int computeEndAlignOffset(GridRangeStyle rangeStyle, boolean layoutInVertical) {
+            final int index = layoutInVertical ? ALIGN_END_VERTICAL : ALIGN_END_HORIZONTAL;
+            int offset = rangeStyle.mAlignOffsets[index];
+            if (offset == NO_ALIGN_OFFSET) {
+                offset = calculateEndAlignOffset(rangeStyle, layoutInVertical);
+                rangeStyle.mAlignOffsets[index] = offset;
+            }
+            return offset;
+        }
+
+        private static int calculateEndAlignOffset(GridRangeStyle rangeStyle, boolean layoutInVertical) {
             int offset = layoutInVertical ? rangeStyle.mMarginBottom + rangeStyle.mPaddingBottom : rangeStyle.mMarginRight + rangeStyle.mPaddingRight;
             int endPosition = rangeStyle.getRange().getUpper().intValue();
             for (Map.Entry<Range<Integer>, GridRangeStyle> entry : rangeStyle.mChildren.entrySet()) {
@@ -966,6 +1068,16 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
         }
 
         public static int computeStartAlignOffset(GridRangeStyle rangeStyle, boolean layoutInVertical) {
+            final int index = layoutInVertical ? ALIGN_START_VERTICAL : ALIGN_START_HORIZONTAL;
+            int offset = rangeStyle.mAlignOffsets[index];
+            if (offset == NO_ALIGN_OFFSET) {
+                offset = calculateStartAlignOffset(rangeStyle, layoutInVertical);
+                rangeStyle.mAlignOffsets[index] = offset;
+            }
+            return offset;
+        }
+
+        private static int calculateStartAlignOffset(GridRangeStyle rangeStyle, boolean layoutInVertical) {
             int offset = layoutInVertical ? -rangeStyle.mMarginTop - rangeStyle.mPaddingTop : -rangeStyle.mMarginLeft - rangeStyle.mPaddingLeft;
             int startPosition = rangeStyle.getRange().getLower().intValue();
             for (Map.Entry<Range<Integer>, GridRangeStyle> entry : rangeStyle.mChildren.entrySet()) {
@@ -993,9 +1105,11 @@ public class RangeGridLayoutHelper extends BaseLayoutHelper {
 
         @Override
         public void setRange(int start, int end) {
+            final int delta = start - mSpanSizeLookup.getStartPosition();
             super.setRange(start, end);
             mSpanSizeLookup.setStartPosition(start);
-            mSpanSizeLookup.invalidateSpanIndexCache();
+            // 只是整体平移时跨度索引不变，范围内的变化由onInvalidateSpanIndexCacheFrom按位置失效
+            mSpanSizeLookup.offsetSpanIndexCache(delta);
         }
 
         public void setGap(int gap) {
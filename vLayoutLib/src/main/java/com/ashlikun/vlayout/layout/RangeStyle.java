@@ -19,6 +19,8 @@ import com.ashlikun.vlayout.layout.BaseLayoutHelper.LayoutViewBindListener;
 import com.ashlikun.vlayout.layout.BaseLayoutHelper.LayoutViewUnBindListener;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,6 +40,11 @@ public class RangeStyle<T extends RangeStyle> {
 
     protected HashMap<Range<Integer>, T> mChildren = new HashMap<>();
 
+    /**
+     * 与{@link #mChildren}内容一致，按下标遍历，避免布局和滚动过程中创建迭代器
+     */
+    protected final ArrayList<T> mChildList = new ArrayList<>();
+
     protected int mPaddingLeft;
 
     protected int mPaddingRight;
@@ -56,6 +63,8 @@ public class RangeStyle<T extends RangeStyle> {
 
     protected Rect mLayoutRegion = new Rect();
 
+    private final Rect mTempRect = new Rect();
+
     private View mLayoutView;
 
     private Drawable background;
@@ -64,6 +73,29 @@ public class RangeStyle<T extends RangeStyle> {
 
     private LayoutViewBindListener mLayoutViewBindListener;
 
+    private static final int ANCESTOR_PADDING_LEFT = 0;
+
+    private static final int ANCESTOR_PADDING_RIGHT = 1;
+
+    private static final int ANCESTOR_PADDING_TOP = 2;
+
+    private static final int ANCESTOR_PADDING_BOTTOM = 3;
+
+    private static final int ANCESTOR_MARGIN_LEFT = 4;
+
+    private static final int ANCESTOR_MARGIN_RIGHT = 5;
+
+    private static final int ANCESTOR_MARGIN_TOP = 6;
+
+    private static final int ANCESTOR_MARGIN_BOTTOM = 7;
+
+    /**
+     * 所有祖先的边距和填充之和，按ANCESTOR_*保存，祖先的样式或层级变化时失效
+     */
+    private final int[] mAncestorSums = new int[8];
+
+    private boolean mAncestorSumsValid = false;
+
     public RangeStyle(BaseLayoutHelper layoutHelper) {
         mLayoutHelper = layoutHelper;
     }
@@ -77,12 +109,72 @@ public class RangeStyle<T extends RangeStyle> {
             rangeStyle.setOriginStartOffset(start);
             rangeStyle.setOriginEndOffset(end);
             rangeStyle.setRange(start, end);
-            mChildren.put(rangeStyle.getRange(), rangeStyle);
+            // T的上界是原始类型，先取出范围避免put变成unchecked调用而返回擦除后的类型
+            final Range<Integer> range = rangeStyle.getRange();
+            T old = mChildren.put(range, rangeStyle);
+            if (old != null) {
+                mChildList.remove(old);
+            }
+            mChildList.add(rangeStyle);
+            notifyStyleChanged();
         }
     }
 
     public void setParent(T rangeStyle) {
         this.mParent = rangeStyle;
+        invalidateAncestorSums();
+    }
+
+    private int[] getAncestorSums() {
+        if (!mAncestorSumsValid) {
+            if (mParent == null) {
+                Arrays.fill(mAncestorSums, 0);
+            } else {
+                final RangeStyle<?> parent = mParent;
+                final int[] parentSums = parent.getAncestorSums();
+                mAncestorSums[ANCESTOR_PADDING_LEFT] = parentSums[ANCESTOR_PADDING_LEFT] + parent.mPaddingLeft;
+                mAncestorSums[ANCESTOR_PADDING_RIGHT] = parentSums[ANCESTOR_PADDING_RIGHT] + parent.mPaddingRight;
+                mAncestorSums[ANCESTOR_PADDING_TOP] = parentSums[ANCESTOR_PADDING_TOP] + parent.mPaddingTop;
+                mAncestorSums[ANCESTOR_PADDING_BOTTOM] = parentSums[ANCESTOR_PADDING_BOTTOM] + parent.mPaddingBottom;
+                mAncestorSums[ANCESTOR_MARGIN_LEFT] = parentSums[ANCESTOR_MARGIN_LEFT] + parent.mMarginLeft;
+                mAncestorSums[ANCESTOR_MARGIN_RIGHT] = parentSums[ANCESTOR_MARGIN_RIGHT] + parent.mMarginRight;
+                mAncestorSums[ANCESTOR_MARGIN_TOP] = parentSums[ANCESTOR_MARGIN_TOP] + parent.mMarginTop;
+                mAncestorSums[ANCESTOR_MARGIN_BOTTOM] = parentSums[ANCESTOR_MARGIN_BOTTOM] + parent.mMarginBottom;
+            }
+            mAncestorSumsValid = true;
+        }
+        return mAncestorSums;
+    }
+
+    /**
+     * 使自身和所有子样式的祖先缓存失效
+     */
+    private void invalidateAncestorSums() {
+        mAncestorSumsValid = false;
+        for (int i = 0, size = mChildList.size(); i < size; i++) {
+            ((RangeStyle<?>) mChildList.get(i)).invalidateAncestorSums();
+        }
+    }
+
+    /**
+     * 边距或填充变化后调用，子样式的祖先缓存失效，自身和祖先的派生缓存通过{@link #onStyleChanged()}失效
+     */
+    private void notifyStyleChanged() {
+        for (int i = 0, size = mChildList.size(); i < size; i++) {
+            ((RangeStyle<?>) mChildList.get(i)).invalidateAncestorSums();
+        }
+        RangeStyle<?> style = this;
+        while (style != null) {
+            style.onStyleChanged();
+            style = style.mParent;
+        }
+    }
+
+    /**
+     * 自身或子样式的边距、填充、范围或层级变化时调用，子类在这里清理依赖子树的缓存
+     */
+    protected void onStyleChanged() {
+
     }
 
     /**
@@ -98,6 +190,7 @@ public class RangeStyle<T extends RangeStyle> {
         mPaddingRight = rightPadding;
         mPaddingTop = topPadding;
         mPaddingBottom = bottomPadding;
+        notifyStyleChanged();
     }
 
     /**
@@ -113,6 +206,7 @@ public class RangeStyle<T extends RangeStyle> {
         this.mMarginTop = topMargin;
         this.mMarginRight = rightMargin;
         this.mMarginBottom = bottomMargin;
+        notifyStyleChanged();
     }
 
     /**
@@ -185,34 +279,42 @@ public class RangeStyle<T extends RangeStyle> {
 
     public void setPaddingLeft(int paddingLeft) {
         mPaddingLeft = paddingLeft;
+        notifyStyleChanged();
     }
 
     public void setPaddingRight(int paddingRight) {
         mPaddingRight = paddingRight;
+        notifyStyleChanged();
     }
 
     public void setPaddingTop(int paddingTop) {
         mPaddingTop = paddingTop;
+        notifyStyleChanged();
     }
 
     public void setPaddingBottom(int paddingBottom) {
         mPaddingBottom = paddingBottom;
+        notifyStyleChanged();
     }
 
     public void setMarginLeft(int marginLeft) {
         mMarginLeft = marginLeft;
+        notifyStyleChanged();
     }
 
     public void setMarginRight(int marginRight) {
         mMarginRight = marginRight;
+        notifyStyleChanged();
     }
 
     public void setMarginTop(int marginTop) {
         mMarginTop = marginTop;
+        notifyStyleChanged();
     }
 
     public void setMarginBottom(int marginBottom) {
         mMarginBottom = marginBottom;
+        notifyStyleChanged();
     }
 
     /**
@@ -221,7 +323,7 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getFamilyHorizontalMargin() {
-        return (mParent != null ? mParent.getFamilyHorizontalMargin() : 0) + getHorizontalMargin();
+        return getAncestorHorizontalMargin() + getHorizontalMargin();
     }
 
     /**
@@ -230,7 +332,7 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getFamilyVerticalMargin() {
-        return (mParent != null ? mParent.getFamilyVerticalMargin() : 0) + getVerticalMargin();
+        return getAncestorVerticalMargin() + getVerticalMargin();
     }
 
     /**
@@ -239,7 +341,7 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getFamilyHorizontalPadding() {
-        return (mParent != null ? mParent.getFamilyHorizontalPadding() : 0) + getHorizontalPadding();
+        return getAncestorHorizontalPadding() + getHorizontalPadding();
     }
 
     /**
@@ -248,39 +350,39 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getFamilyVerticalPadding() {
-        return (mParent != null ? mParent.getFamilyVerticalPadding() : 0) + getVerticalPadding();
+        return getAncestorVerticalPadding() + getVerticalPadding();
     }
 
     public int getFamilyPaddingLeft() {
-        return (mParent != null ? mParent.getFamilyPaddingLeft() : 0) + mPaddingLeft;
+        return getAncestorSums()[ANCESTOR_PADDING_LEFT] + mPaddingLeft;
     }
 
     public int getFamilyPaddingRight() {
-        return (mParent != null ? mParent.getFamilyPaddingRight() : 0) + mPaddingRight;
+        return getAncestorSums()[ANCESTOR_PADDING_RIGHT] + mPaddingRight;
     }
 
     public int getFamilyPaddingTop() {
-        return (mParent != null ? mParent.getFamilyPaddingTop() : 0) + mPaddingTop;
+        return getAncestorSums()[ANCESTOR_PADDING_TOP] + mPaddingTop;
     }
 
     public int getFamilyPaddingBottom() {
-        return (mParent != null ? mParent.getFamilyPaddingBottom() : 0) + mPaddingBottom;
+        return getAncestorSums()[ANCESTOR_PADDING_BOTTOM] + mPaddingBottom;
     }
 
     public int getFamilyMarginLeft() {
-        return (mParent != null ? mParent.getFamilyMarginLeft() : 0) + mMarginLeft;
+        return getAncestorSums()[ANCESTOR_MARGIN_LEFT] + mMarginLeft;
     }
 
     public int getFamilyMarginRight() {
-        return (mParent != null ? mParent.getFamilyMarginRight() : 0) + mMarginRight;
+        return getAncestorSums()[ANCESTOR_MARGIN_RIGHT] + mMarginRight;
     }
 
     public int getFamilyMarginTop() {
-        return (mParent != null ? mParent.getFamilyMarginTop() : 0) + mMarginTop;
+        return getAncestorSums()[ANCESTOR_MARGIN_TOP] + mMarginTop;
     }
 
     public int getFamilyMarginBottom() {
-        return (mParent != null ? mParent.getFamilyMarginBottom() : 0) + mMarginBottom;
+        return getAncestorSums()[ANCESTOR_MARGIN_BOTTOM] + mMarginBottom;
     }
 
     /**
@@ -289,7 +391,8 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getAncestorHorizontalMargin() {
-        return (mParent != null ? mParent.getAncestorHorizontalMargin() + mParent.getHorizontalMargin() : 0);
+        final int[] sums = getAncestorSums();
+        return sums[ANCESTOR_MARGIN_LEFT] + sums[ANCESTOR_MARGIN_RIGHT];
     }
 
     /**
@@ -298,7 +401,8 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getAncestorVerticalMargin() {
-        return (mParent != null ? mParent.getAncestorVerticalMargin() + mParent.getVerticalMargin() : 0);
+        final int[] sums = getAncestorSums();
+        return sums[ANCESTOR_MARGIN_TOP] + sums[ANCESTOR_MARGIN_BOTTOM];
     }
 
     /**
@@ -307,7 +411,8 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getAncestorHorizontalPadding() {
-        return (mParent != null ? mParent.getAncestorHorizontalPadding() + mParent.getHorizontalPadding() : 0);
+        final int[] sums = getAncestorSums();
+        return sums[ANCESTOR_PADDING_LEFT] + sums[ANCESTOR_PADDING_RIGHT];
     }
 
     /**
@@ -316,39 +421,40 @@ public class RangeStyle<T extends RangeStyle> {
      * @return
      */
     public int getAncestorVerticalPadding() {
-        return (mParent != null ? mParent.getAncestorVerticalPadding() + mParent.getVerticalPadding() : 0);
+        final int[] sums = getAncestorSums();
+        return sums[ANCESTOR_PADDING_TOP] + sums[ANCESTOR_PADDING_BOTTOM];
     }
 
     public int getAncestorPaddingLeft() {
-        return (mParent != null ? mParent.getAncestorPaddingLeft() + mParent.getPaddingLeft() : 0);
+        return getAncestorSums()[ANCESTOR_PADDING_LEFT];
     }
 
     public int getAncestorPaddingRight() {
-        return (mParent != null ? mParent.getAncestorPaddingRight() + mParent.getPaddingRight() : 0);
+        return getAncestorSums()[ANCESTOR_PADDING_RIGHT];
     }
 
     public int getAncestorPaddingTop() {
-        return (mParent != null ? mParent.getAncestorPaddingTop() + mParent.getPaddingTop() : 0);
+        return getAncestorSums()[ANCESTOR_PADDING_TOP];
     }
 
     public int getAncestorPaddingBottom() {
-        return (mParent != null ? mParent.getAncestorPaddingBottom() + mParent.getPaddingBottom() : 0);
+        return getAncestorSums()[ANCESTOR_PADDING_BOTTOM];
     }
 
     public int getAncestorMarginLeft() {
-        return (mParent != null ? mParent.getAncestorMarginLeft() + mParent.getMarginLeft() : 0);
+        return getAncestorSums()[ANCESTOR_MARGIN_LEFT];
     }
 
     public int getAncestorMarginRight() {
-        return (mParent != null ? mParent.getAncestorMarginRight() + mParent.getMarginRight() : 0);
+        return getAncestorSums()[ANCESTOR_MARGIN_RIGHT];
     }
 
     public int getAncestorMarginTop() {
-        return (mParent != null ? mParent.getAncestorMarginTop() + mParent.getMarginTop() : 0);
+        return getAncestorSums()[ANCESTOR_MARGIN_TOP];
     }
 
     public int getAncestorMarginBottom() {
-        return (mParent != null ? mParent.getAncestorMarginBottom() + mParent.getMarginBottom() : 0);
+        return getAncestorSums()[ANCESTOR_MARGIN_BOTTOM];
     }
 
     public int getOriginStartOffset() {
@@ -390,7 +496,7 @@ public class RangeStyle<T extends RangeStyle> {
     }
 
     public boolean isOutOfRange(int position) {
-        return mRange != null ? !mRange.contains(position) : true;
+        return mRange == null || position < mRange.getLower() || position > mRange.getUpper();
     }
 
     public boolean isFirstPosition(int position) {
@@ -407,6 +513,8 @@ public class RangeStyle<T extends RangeStyle> {
      */
     public void setRange(int start, int end) {
         mRange = Range.create(start, end);
+        // 子样式的范围在下面逐个更新，各自清理缓存
+        onStyleChanged();
         if (!mChildren.isEmpty()) {
             HashMap<Range<Integer>, T> newMap = new HashMap<>();
             for (Map.Entry<Range<Integer>, T> entry : mChildren.entrySet()) {
@@ -425,8 +533,8 @@ public class RangeStyle<T extends RangeStyle> {
     public void beforeLayout(RecyclerView.Recycler recycler, RecyclerView.State state,
                              LayoutManagerHelper helper) {
         if (!isChildrenEmpty()) {
-            for (Map.Entry<Range<Integer>, T> entry : mChildren.entrySet()) {
-                RangeStyle childRangeStyle = entry.getValue();
+            for (int i = 0, size = mChildList.size(); i < size; i++) {
+                RangeStyle childRangeStyle = mChildList.get(i);
                 childRangeStyle.beforeLayout(recycler, state, helper);
             }
         }
@@ -456,8 +564,8 @@ public class RangeStyle<T extends RangeStyle> {
                             LayoutManagerHelper helper) {
 
         if (!isChildrenEmpty()) {
-            for (Map.Entry<Range<Integer>, T> entry : mChildren.entrySet()) {
-                RangeStyle childRangeStyle = entry.getValue();
+            for (int i = 0, size = mChildList.size(); i < size; i++) {
+                RangeStyle childRangeStyle = mChildList.get(i);
                 childRangeStyle.afterLayout(recycler, state, startPosition, endPosition, scrolled, helper);
             }
         }
@@ -525,8 +633,8 @@ public class RangeStyle<T extends RangeStyle> {
 
     private void unionChildRegion(RangeStyle<T> rangeStyle) {
         if (!rangeStyle.isChildrenEmpty()) {
-            for (Map.Entry<Range<Integer>, T> entry : rangeStyle.mChildren.entrySet()) {
-                RangeStyle childRangeStyle = entry.getValue();
+            for (int i = 0, size = rangeStyle.mChildList.size(); i < size; i++) {
+                RangeStyle childRangeStyle = rangeStyle.mChildList.get(i);
                 unionChildRegion(childRangeStyle);
                 if (childRangeStyle.mLayoutView != null) {
                     rangeStyle.mLayoutRegion.union(childRangeStyle.mLayoutView.getLeft(), childRangeStyle.mLayoutView.getTop(),
@@ -555,19 +663,21 @@ public class RangeStyle<T extends RangeStyle> {
 
     public void adjustLayout(int startPosition, int endPosition, LayoutManagerHelper helper) {
         if (!isChildrenEmpty()) {
-            for (Map.Entry<Range<Integer>, T> entry : mChildren.entrySet()) {
-                RangeStyle rangeStyle = entry.getValue();
+            for (int i = 0, size = mChildList.size(); i < size; i++) {
+                RangeStyle rangeStyle = mChildList.get(i);
                 rangeStyle.adjustLayout(startPosition, endPosition, helper);
             }
         }
         if (requireLayoutView()) {
             View refer = null;
-            Rect tempRect = new Rect();
+            final Rect tempRect = mTempRect;
+            tempRect.setEmpty();
             final OrientationHelperEx orientationHelper = helper.getMainOrientationHelper();
-            for (int i = 0; i < helper.getChildCount(); i++) {
+            // 切片只包含本区间的子视图，逐个合并区域，getPosition只读取LayoutParams，不需要按位置查找
+            for (int i = helper.getChildSliceStart(), end = helper.getChildSliceEnd(); i < end; i++) {
                 refer = helper.getChildAt(i);
                 int anchorPos = helper.getPosition(refer);
-                if (getRange().contains(anchorPos)) {
+                if (!isOutOfRange(anchorPos)) {
                     if (refer.getVisibility() == View.GONE) {
                         tempRect.setEmpty();
                     } else {
@@ -609,8 +719,8 @@ public class RangeStyle<T extends RangeStyle> {
     }
 
     private void hideChildLayoutViews(LayoutManagerHelper helper, RangeStyle<T> rangeStyle) {
-        for (Map.Entry<Range<Integer>, T> entry : rangeStyle.mChildren.entrySet()) {
-            RangeStyle childRangeStyle = entry.getValue();
+        for (int i = 0, size = rangeStyle.mChildList.size(); i < size; i++) {
+            RangeStyle childRangeStyle = rangeStyle.mChildList.get(i);
             if (!childRangeStyle.isChildrenEmpty()) {
                 hideChildLayoutViews(helper, childRangeStyle);
             }
@@ -632,8 +742,8 @@ public class RangeStyle<T extends RangeStyle> {
     private boolean requireChildLayoutView(RangeStyle<T> rangeStyle) {
         boolean self = rangeStyle.background != null || rangeStyle.mLayoutViewBindListener != null;
 
-        for (Map.Entry<Range<Integer>, T> entry : rangeStyle.mChildren.entrySet()) {
-            RangeStyle childRangeStyle = entry.getValue();
+        for (int i = 0, size = rangeStyle.mChildList.size(); i < size; i++) {
+            RangeStyle childRangeStyle = rangeStyle.mChildList.get(i);
             if (!childRangeStyle.isChildrenEmpty()) {
                 self |= requireChildLayoutView(childRangeStyle);
             } else {
@@ -704,6 +814,7 @@ public class RangeStyle<T extends RangeStyle> {
 
     public void onClearChildMap() {
         mChildren.clear();
+        mChildList.clear();
     }
 
     public void layoutChild(final View child, int left, int top, int right, int bottom, @NonNull LayoutManagerHelper helper, boolean addLayoutRegionWithMargin) {
@@ -30,6 +30,7 @@ import static com.ashlikun.vlayout.VirtualLayoutManager.LayoutStateWrapper.LAYOU
 import static com.ashlikun.vlayout.VirtualLayoutManager.LayoutStateWrapper.LAYOUT_START;
 import static com.ashlikun.vlayout.VirtualLayoutManager.VERTICAL;
 
+import android.content.ComponentCallbacks2;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
@@ -51,7 +52,6 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.List;
 
 /**
  * LayoutHelper provides waterfall.
@@ -87,17 +87,21 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
 
     private LazySpanLookup mLazySpanLookup = new LazySpanLookup();
 
-    private List<View> prelayoutViewList = new ArrayList<>();
-
     private boolean mLayoutWithAnchor;
 
     private int anchorPosition;
 
     private WeakReference<VirtualLayoutManager> mLayoutManager = null;
 
+    /**
+     * 已经提交了间隙检查还没有执行，每次布局都提交会在消息队列里累积重复的任务
+     */
+    private boolean mGapCheckPending = false;
+
     private final Runnable checkForGapsRunnable = new Runnable() {
         @Override
         public void run() {
+            mGapCheckPending = false;
             checkForGaps();
         }
     };
@@ -199,9 +203,11 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
             //do not in visible screen, skip
             return;
         }
-        if (!state.isPreLayout() && helper.getChildCount() > 0) {
+        if (!state.isPreLayout() && helper.getChildCount() > 0 && !mGapCheckPending) {
             // call after doing layout, to check whether there is a gap between staggered layout and other layouts
-            ViewCompat.postOnAnimation(helper.getChildAt(0), checkForGapsRunnable);
+            // 提交到RecyclerView上：子视图被回收后可能不再挂载，提交给它的任务不会执行，标记也就无法清除
+            mGapCheckPending = true;
+            ViewCompat.postOnAnimation(helper.getRecyclerView(), checkForGapsRunnable);
         }
     }
 
@@ -241,7 +247,6 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
 
         final int defaultNewViewLine = layoutState.getOffset();
 
-        prelayoutViewList.clear();
         while (layoutState.hasMore(state) && !mRemainingSpans.isEmpty() && !isOutOfRange(layoutState.getCurrentPosition())) {
             boolean isStartLine = false, isEndLine = false;
             int currentPosition = layoutState.getCurrentPosition();
@@ -255,12 +260,18 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
 
             // find the span to put the view
             final int position = lp.getViewLayoutPosition();
-            final int spanIndex = mLazySpanLookup.getSpan(position);
+            // 跨度按新位置保存，预布局中转换后只读，已删除的项目临时分配
+            final int lookupPosition = layoutState.isPreLayout()
+                    ? recycler.convertPreLayoutPositionToPostLayout(position) : position;
+            final int spanIndex = lookupPosition == RecyclerView.NO_POSITION
+                    ? INVALID_SPAN_ID : mLazySpanLookup.getSpan(lookupPosition);
             Span currentSpan;
             boolean assignSpan = spanIndex == INVALID_SPAN_ID;
             if (assignSpan) {
                 currentSpan = getNextSpan(defaultNewViewLine, layoutState, helper);
-                mLazySpanLookup.setSpan(position, currentSpan);
+                if (!layoutState.isPreLayout()) {
+                    mLazySpanLookup.setSpan(position, currentSpan);
+                }
             } else {
                 currentSpan = mSpans[spanIndex];
             }
@@ -268,10 +279,6 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
             isStartLine = position - getRange().getLower() < mNumLanes;
             isEndLine = getRange().getUpper() - position < mNumLanes; //fix the end line condition, edit by longerian
 
-            if (layoutState.isPreLayout()) {
-                prelayoutViewList.add(view);
-            }
-
             helper.addChildView(layoutState, view);
 
             if (layoutInVertical) {
@@ -393,35 +400,6 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
             }
 
         }
-
-        recycleForPreLayout(recycler, layoutState, helper);
-    }
-
-    private void recycleForPreLayout(RecyclerView.Recycler recycler, LayoutStateWrapper layoutState, LayoutManagerHelper helper) {
-        final OrientationHelperEx orientationHelper = helper.getMainOrientationHelper();
-        for (int i = prelayoutViewList.size() - 1; i >= 0; i--) {
-            View child = prelayoutViewList.get(i);
-            if (child != null && orientationHelper.getDecoratedStart(child) > orientationHelper.getEndAfterPadding()) {
-                LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                int position = lp.getViewLayoutPosition();
-                Span span = findSpan(position, child, false);
-                if (span != null) {
-                    span.popEnd(orientationHelper);
-                }
-                helper.removeChildView(child);
-                recycler.recycleView(child);
-            } else {
-                LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                int position = lp.getViewLayoutPosition();
-                Span span = findSpan(position, child, false);
-                if (span != null) {
-                    span.popEnd(orientationHelper);
-                }
-                helper.removeChildView(child);
-                recycler.recycleView(child);
-                break;
-            }
-        }
     }
 
     @Override
@@ -484,6 +462,17 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
         mLazySpanLookup.clear();
         mSpans = null;
         mLayoutManager = null;
+        mGapCheckPending = false;
+    }
+
+    @Override
+    public long trimMemory(int level, int startPosition, int endPosition, LayoutManagerHelper helper) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || endPosition < 0) {
+            return 0;
+        }
+        // 只保留可见区域之后两屏以内的跨度分配，更远的位置再次布局时重新分配
+        final int visibleCount = Math.max(endPosition - startPosition + 1, 1);
+        return mLazySpanLookup.trim(endPosition + visibleCount * 2);
     }
 
     /**
@@ -522,67 +511,61 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
         int alignLine = Integer.MIN_VALUE;
 
         // find view anchor and get align line, the views should be aligned to alignLine
+        // 通过位置表直接定位，不再遍历所有子视图
+        final int anchorIndex = layoutManager.findChildIndexByPosition(alignPos);
+        if (anchorIndex < 0) {
+            // if not find view anchor, break
+            return;
+        }
+        final View view = layoutManager.getChildAt(anchorIndex);
+        final int position = alignPos;
         if (layoutManager.getReverseLayout()) {
-            for (int i = childCount - 1; i >= 0; i--) {
-                View view = layoutManager.getChildAt(i);
-                int position = layoutManager.getPosition(view);
-                if (position == alignPos) {
-                    viewAnchor = position;
-                    if (i == childCount - 1) {
-                        // if last child, alignLine is the end of child
-                        alignLine = orientationHelper.getDecoratedEnd(view);
-                    } else {
-                        // if not, alignLine is the start of next child
-                        View child = layoutManager.getChildAt(i + 1);
-                        int aPos = layoutManager.getPosition(child);
-                        if (aPos == position - 1) {
-                            // if position is sequence, which means the next child is not hidden one
-                            alignLine = orientationHelper.getDecoratedStart(child) - layoutManager.obtainExtraMargin(child, false)
-                                    + layoutManager.obtainExtraMargin(view, true);
-                        } else {
-                            // if next child is hidden one, use end of current view
-                            alignLine = orientationHelper.getDecoratedEnd(view);
-                        }
-                    }
-                    break;
+            viewAnchor = position;
+            if (anchorIndex == childCount - 1) {
+                // if last child, alignLine is the end of child
+                alignLine = orientationHelper.getDecoratedEnd(view);
+            } else {
+                // if not, alignLine is the start of next child
+                View child = layoutManager.getChildAt(anchorIndex + 1);
+                int aPos = layoutManager.getPosition(child);
+                if (aPos == position - 1) {
+                    // if position is sequence, which means the next child is not hidden one
+                    alignLine = orientationHelper.getDecoratedStart(child) - layoutManager.obtainExtraMargin(child, false)
+                            + layoutManager.obtainExtraMargin(view, true);
+                } else {
+                    // if next child is hidden one, use end of current view
+                    alignLine = orientationHelper.getDecoratedEnd(view);
                 }
             }
         } else {
-            for (int i = 0; i < childCount; i++) {
-                View view = layoutManager.getChildAt(i);
-                int position = layoutManager.getPosition(view);
-                if (position == alignPos) {
-                    viewAnchor = position;
-                    if (i == 0) {
-                        // TODO: there is problem
-                        // if first child, alignLine is the start
-                        alignLine = orientationHelper.getDecoratedStart(view);
-                    } else {
-                        // if not, alignLine is the end of previous child
-                        View child = layoutManager.getChildAt(i - 1);
-                        alignLine = orientationHelper.getDecoratedEnd(child) + layoutManager.obtainExtraMargin(child, true, false)
-                                - layoutManager.obtainExtraMargin(view, false, false);
-                        int viewStart = orientationHelper.getDecoratedStart(view);
-                        if (alignLine == viewStart) {
-                            //actually not gap here skip;
-                            viewAnchor = Integer.MIN_VALUE;
-                        } else {
-                            int nextPosition = layoutManager.getPosition(child);
-                            if (nextPosition != alignPos - 1) {
-                                //may has sticky layout, add extra space occur by stickyLayoutHelper
-                                LayoutHelper layoutHelper = layoutManager.findLayoutHelperByPosition(alignPos - 1);
-                                if (layoutHelper != null && layoutHelper instanceof StickyLayoutHelper) {
-                                    if (layoutHelper.getFixedView() != null) {
-                                        alignLine += layoutHelper.getFixedView().getMeasuredHeight();
-                                    }
-                                }
-                            } else {
-                                LayoutHelper layoutHelper = layoutManager.findLayoutHelperByPosition(nextPosition);
-                                layoutHelper.getRange();
+            viewAnchor = position;
+            if (anchorIndex == 0) {
+                // TODO: there is problem
+                // if first child, alignLine is the start
+                alignLine = orientationHelper.getDecoratedStart(view);
+            } else {
+                // if not, alignLine is the end of previous child
+                View child = layoutManager.getChildAt(anchorIndex - 1);
+                alignLine = orientationHelper.getDecoratedEnd(child) + layoutManager.obtainExtraMargin(child, true, false)
+                        - layoutManager.obtainExtraMargin(view, false, false);
+                int viewStart = orientationHelper.getDecoratedStart(view);
+                if (alignLine == viewStart) {
+                    //actually not gap here skip;
+                    viewAnchor = Integer.MIN_VALUE;
+                } else {
+                    int nextPosition = layoutManager.getPosition(child);
+                    if (nextPosition != alignPos - 1) {
+                        //may has sticky layout, add extra space occur by stickyLayoutHelper
+                        LayoutHelper layoutHelper = layoutManager.findLayoutHelperByPosition(alignPos - 1);
+                        if (layoutHelper != null && layoutHelper instanceof StickyLayoutHelper) {
+                            if (layoutHelper.getFixedView() != null) {
+                                alignLine += layoutHelper.getFixedView().getMeasuredHeight();
                             }
                         }
+                    } else {
+                        LayoutHelper layoutHelper = layoutManager.findLayoutHelperByPosition(nextPosition);
+                        layoutHelper.getRange();
                     }
-                    break;
                 }
             }
         }
@@ -621,10 +604,6 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
             return null;
         }
 
-
-        BitSet mSpansToCheck = new BitSet(mNumLanes);
-        mSpansToCheck.set(0, mNumLanes, true);
-
         if (mSpans != null) {
             for (int i = 0, size = mSpans.length; i < size; i++) {
                 Span span = mSpans[i];
@@ -751,45 +730,44 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
             View child = helper.findViewByPosition(childPos);
 
             if (child != null) {
-                final OrientationHelperEx orientationHelper = helper.getMainOrientationHelper();
-                LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                int position = lp.getViewLayoutPosition();
-
-                if (helper.getReverseLayout()) {
-                    if (fromStart) {
-                        // recycle from end
-                        Span span = findSpan(position, child, true);
-                        if (span != null) {
-                            span.popEnd(orientationHelper);
-                        }
-                    } else {
-                        // recycle from start
-                        Span span = findSpan(position, child, false);
-                        if (span != null) {
-                            span.popStart(orientationHelper);
-                        }
-                    }
-                } else {
-                    if (fromStart) {
-                        // recycle from start
-                        Span span = findSpan(position, child, true);
-                        if (span != null) {
-                            span.popStart(orientationHelper);
-                        }
-                    } else {
-                        // recycle from end
-                        Span span = findSpan(position, child, false);
-                        if (span != null) {
-                            span.popEnd(orientationHelper);
-                        }
-                    }
-                }
+                popSpan(child, helper.getMainOrientationHelper(), fromStart, helper.getReverseLayout() != fromStart);
             }
         }
 
         return recyclable;
     }
 
+    @Override
+    public int getRecyclableCount(View[] children, int[] positions, int offset, int count,
+                                  int startIndex, int endIndex, LayoutManagerHelper helper, boolean fromStart) {
+        // 子项已经由VirtualLayoutManager给出，不需要再按位置查找，方向和orientationHelper整段只取一次
+        final OrientationHelperEx orientationHelper = helper.getMainOrientationHelper();
+        final boolean popStart = helper.getReverseLayout() != fromStart;
+        for (int i = offset, end = offset + count; i < end; i++) {
+            popSpan(children[i], orientationHelper, fromStart, popStart);
+        }
+        return count;
+    }
+
+    /**
+     * 从子项所在span的一端移除，反向布局时从开始回收的是span的结尾
+     *
+     * @param fromStart 是否从开始回收
+     * @param popStart  true从span开始移除，false从span结尾移除
+     */
+    private void popSpan(View child, OrientationHelperEx orientationHelper, boolean fromStart, boolean popStart) {
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        int position = lp.getViewLayoutPosition();
+        Span span = findSpan(position, child, fromStart);
+        if (span != null) {
+            if (popStart) {
+                span.popStart(orientationHelper);
+            } else {
+                span.popEnd(orientationHelper);
+            }
+        }
+    }
+
     private void updateAllRemainingSpans(int layoutDir, int targetLine, OrientationHelperEx helper) {
         for (int i = 0; i < mNumLanes; i++) {
             if (mSpans[i].mViews.isEmpty()) {
@@ -1053,6 +1031,27 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
 //        mLazySpanLookup.clear();
     }
 
+    @Override
+    public void onItemsAdded(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        // 跨度记录按绝对位置保存，插入点之后整体平移
+        mLazySpanLookup.offsetForAddition(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        mLazySpanLookup.offsetForRemoval(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsUpdated(int positionStart, int itemCount, LayoutManagerHelper helper) {
+        // 内容更新不影响已经分配的跨度
+    }
+
+    @Override
+    public void onItemsMoved(int from, int to, int itemCount, LayoutManagerHelper helper) {
+        mLazySpanLookup.invalidateAfter(Math.min(from, to));
+    }
+
     @Override
     public void onSaveState(Bundle bundle) {
         super.onSaveState(bundle);
@@ -1094,7 +1093,11 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
     static class Span {
 
         static final int INVALID_OFFSET = Integer.MIN_VALUE;
-        private ArrayList<View> mViews = new ArrayList<View>();
+        /**
+         * 预留足够的容量，避免滚动过程中扩容
+         */
+        static final int INITIAL_VIEW_CAPACITY = 32;
+        private ArrayList<View> mViews = new ArrayList<View>(INITIAL_VIEW_CAPACITY);
         int mCachedStart = INVALID_LINE;
         int mCachedEnd = INVALID_LINE;
         int mDeletedSize = 0;
@@ -1404,6 +1407,24 @@ public class StaggeredGridLayoutHelper extends BaseLayoutHelper {
             }
         }
 
+        /**
+         * 丢弃keepUpTo之后的位置并缩小数组
+         *
+         * @return 释放的字节数
+         */
+        long trim(int keepUpTo) {
+            if (mData == null) {
+                return 0;
+            }
+            final int newLength = Math.max(keepUpTo, MIN_SIZE) + 1;
+            if (newLength >= mData.length) {
+                return 0;
+            }
+            final long reclaimed = (long) (mData.length - newLength) * 4;
+            mData = Arrays.copyOf(mData, newLength);
+            return reclaimed;
+        }
+
         void offsetForRemoval(int positionStart, int itemCount) {
             if (mData == null || positionStart >= mData.length) {
                 return;
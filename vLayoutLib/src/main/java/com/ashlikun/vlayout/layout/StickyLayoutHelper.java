@@ -115,6 +115,13 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
+        if (state.isPreLayout() && mFixView != null) {
+            // 预布局中浮动视图保持不变，只占用原来的位置
+            layoutState.skipCurrentPosition();
+            result.mConsumed = helper.getMainOrientationHelper().getDecoratedMeasurement(mFixView);
+            return;
+        }
+
         // 在当前位置查找视图
         View view = mFixView;
         if (view == null) {
@@ -127,9 +134,9 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
             return;
         }
 
-
-        doMeasure(view, helper);
-
+        if (!canSkipOverlayMeasure(view, helper)) {
+            doMeasure(view, helper);
+        }
 
         // do layout
         final boolean layoutInVertical = helper.getOrientation() == VERTICAL;
@@ -230,7 +237,9 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
         result.mConsumed += (layoutInVertical ? getVerticalMargin() : getHorizontalMargin());
 
         if (state.isPreLayout()) {
+            // 预布局中按正常子视图布局，由RecyclerView统一回收，不作为浮动视图保存
             mDoNormalHandle = true;
+            mFixView = null;
         }
 
         if (mDoNormalHandle) {
@@ -247,8 +256,8 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
         super.beforeLayout(recycler, state, helper);
 
 
-        if (mFixView != null && helper.isViewHolderUpdated(mFixView)) {
-            // recycle view for later usage
+        if (!state.isPreLayout() && mFixView != null && helper.isViewHolderUpdated(mFixView)) {
+            // recycle view for later usage, 预布局中保持不变
             helper.removeChildView(mFixView);
             recycler.recycleView(mFixView);
             mFixView = null;
@@ -269,7 +278,8 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
         super.afterLayout(recycler, state, startPosition, endPosition, scrolled, helper);
 
         // 如果mPos为负数，则禁用
-        if (mPos < 0) {
+        if (mPos < 0 || state.isPreLayout()) {
+            // 预布局添加的视图由RecyclerView统一回收
             return;
         }
 
@@ -280,11 +290,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
             fixLayoutStateFromAbnormal2Normal(orientationHelper, recycler, startPosition, endPosition, helper);
         }
 
-        if (mDoNormalHandle || state.isPreLayout()) {
-            if (!state.isPreLayout()) {
-                // TODO: 粘性现在只支持一个项目
-
-            }
+        if (mDoNormalHandle) {
             if (mFixView != null) {
                 helper.removeChildView(mFixView);
             } else {
@@ -318,6 +324,32 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
         }
     }
 
+    /**
+     * 查找参考视图的起始下标：正常顺序布局时直接通过位置表找到mPos前一项，否则从末尾开始遍历
+     */
+    private int findReferIndexBefore(LayoutManagerHelper helper) {
+        if (!helper.getReverseLayout() && mPos > 0) {
+            final int index = helper.findChildIndexByPosition(mPos - 1);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return helper.getChildCount() - 1;
+    }
+
+    /**
+     * 查找参考视图的起始下标：正常顺序布局时直接通过位置表找到mPos后一项，否则从头开始遍历
+     */
+    private int findReferIndexAfter(LayoutManagerHelper helper) {
+        if (!helper.getReverseLayout()) {
+            final int index = helper.findChildIndexByPosition(mPos + 1);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return 0;
+    }
+
     private void fixLayoutStateFromAbnormal2Normal(OrientationHelperEx orientationHelper, RecyclerView.Recycler recycler, int startPosition, int endPosition,
                                                    LayoutManagerHelper helper) {
         //修复状态，从异常到正常
@@ -329,7 +361,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
             int top, bottom;
             View refer = null;
             if (mStickyStart) {
-                for (int i = helper.getChildCount() - 1; i >= 0; i--) {
+                for (int i = findReferIndexBefore(helper); i >= 0; i--) {
                     refer = helper.getChildAt(i);
                     int anchorPos = helper.getPosition(refer);
                     if (anchorPos < mPos) { // TODO: when view size is larger than totalSpace!
@@ -350,7 +382,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
 
 
             } else {
-                for (int i = 0; i < helper.getChildCount(); i++) {
+                for (int i = findReferIndexAfter(helper); i < helper.getChildCount(); i++) {
                     refer = helper.getChildAt(i);
                     int anchorPos = helper.getPosition(refer);
                     if (anchorPos > mPos) {
@@ -395,7 +427,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
 
                 View refer = null;
                 if (mStickyStart) {
-                    for (int i = helper.getChildCount() - 1; i >= 0; i--) {
+                    for (int i = findReferIndexBefore(helper); i >= 0; i--) {
                         refer = helper.getChildAt(i);
                         int anchorPos = helper.getPosition(refer);
                         if (anchorPos < mPos) {
@@ -414,7 +446,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                     }
 
                 } else {
-                    for (int i = 0; i < helper.getChildCount(); i++) {
+                    for (int i = findReferIndexAfter(helper); i < helper.getChildCount(); i++) {
                         refer = helper.getChildAt(i);
                         int anchorPos = helper.getPosition(refer);
                         if (anchorPos > mPos) { // TODO: when view size is larger than totalSpace!
@@ -465,7 +497,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                 if (mDoNormalHandle) {
                     View refer = null;
                     if (mStickyStart) {
-                        for (int i = helper.getChildCount() - 1; i >= 0; i--) {
+                        for (int i = findReferIndexBefore(helper); i >= 0; i--) {
                             refer = helper.getChildAt(i);
                             int anchorPos = helper.getPosition(refer);
                             if (anchorPos < mPos) {
@@ -476,7 +508,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                             }
                         }
                     } else {
-                        for (int i = 0; i < helper.getChildCount(); i++) {
+                        for (int i = findReferIndexAfter(helper); i < helper.getChildCount(); i++) {
                             refer = helper.getChildAt(i);
                             int anchorPos = helper.getPosition(refer);
                             if (anchorPos > mPos) {
@@ -506,7 +538,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                     }
                     mFixView = null;
                 }
-            } else {
+            } else if (!helper.isFixedViewHosted(mFixView)) {
                 helper.showView(mFixView);
                 helper.addFixedView(mFixView);
             }
@@ -589,7 +621,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                 if (normalHandle) {
                     View refer = null;
                     if (mStickyStart) {
-                        for (int i = helper.getChildCount() - 1; i >= 0; i--) {
+                        for (int i = findReferIndexBefore(helper); i >= 0; i--) {
                             refer = helper.getChildAt(i);
                             int anchorPos = helper.getPosition(refer);
                             if (anchorPos < mPos) {
@@ -607,7 +639,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                             }
                         }
                     } else {
-                        for (int i = 0; i < helper.getChildCount(); i++) {
+                        for (int i = findReferIndexAfter(helper); i < helper.getChildCount(); i++) {
                             refer = helper.getChildAt(i);
                             int anchorPos = helper.getPosition(refer);
                             if (anchorPos > mPos) {
@@ -659,7 +691,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                 if (normalHandle) {
                     View refer = null;
                     if (mStickyStart) {
-                        for (int i = helper.getChildCount() - 1; i >= 0; i--) {
+                        for (int i = findReferIndexBefore(helper); i >= 0; i--) {
                             refer = helper.getChildAt(i);
                             int anchorPos = helper.getPosition(refer);
                             if (anchorPos < mPos) {
@@ -670,7 +702,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
                             }
                         }
                     } else {
-                        for (int i = 0; i < helper.getChildCount(); i++) {
+                        for (int i = findReferIndexAfter(helper); i < helper.getChildCount(); i++) {
                             refer = helper.getChildAt(i);
                             int anchorPos = helper.getPosition(refer);
                             if (anchorPos > mPos) {
@@ -758,7 +790,7 @@ public class StickyLayoutHelper extends FixAreaLayoutHelper {
 
             helper.measureChildWithMargins(view, widthSpec, heightSpec);
         }
-
+        markOverlayMeasured(helper);
     }
 
     public void setStickyListener(StickyListener stickyListener) {
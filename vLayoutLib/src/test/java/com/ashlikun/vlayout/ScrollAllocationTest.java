@@ -0,0 +1,337 @@
+package com.ashlikun.vlayout;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.layout.ColumnLayoutHelper;
+import com.ashlikun.vlayout.layout.GridLayoutHelper;
+import com.ashlikun.vlayout.layout.LinearLayoutHelper;
+import com.ashlikun.vlayout.layout.OnePlusNLayoutHelper;
+import com.ashlikun.vlayout.layout.StaggeredGridLayoutHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowTrace;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预热之后在已经访问过的范围内来回滚动，RecyclerView.scrollBy中的填充、回收和各layoutHelper的滚动回调不应该再分配对象。
+ * 只统计scrollBy本身，每一步之后在统计之外执行主线程Looper中的任务和下一帧
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class ScrollAllocationTest {
+
+    private static final int STEP = 37;
+
+    private static final int MEASURED_STEPS = 4000;
+
+    private static final int FRAME_MILLIS = 16;
+
+    private static final int ATTACH_PROBES = 64;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+
+    private QuietRecyclerView mRecyclerView;
+
+    private ProbeLayout mProbeLayout;
+
+    private int mScrolled;
+
+    private int mDirection = 1;
+
+    /**
+     * 读取计数本身分配的字节数
+     */
+    private long mOverhead;
+
+    /**
+     * 平台每次attach分配的字节数
+     */
+    private long mAttachCost;
+
+    private long mAllocated;
+
+    @Before
+    public void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        // Robolectric模拟的vsync会装箱参数，推迟到下一帧的时间再分发，在统计之外推进时钟
+        ShadowChoreographer.setPostFrameCallbackDelay(FRAME_MILLIS);
+
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mRecyclerView = new QuietRecyclerView(activity);
+        final VirtualLayoutManager layoutManager = new VirtualLayoutManager(activity);
+        final ItemAdapter adapter = new ItemAdapter();
+        final List<LayoutHelper> helpers = new ArrayList<>();
+        helpers.add(new LinearLayoutHelper(8, 120));
+        adapter.addSection(ItemAdapter.TYPE_LINEAR, 120, 160, false);
+        helpers.add(new GridLayoutHelper(4, 200));
+        adapter.addSection(ItemAdapter.TYPE_GRID, 200, 240, false);
+        final ColumnLayoutHelper column = new ColumnLayoutHelper();
+        column.setItemCount(4);
+        helpers.add(column);
+        adapter.addSection(ItemAdapter.TYPE_COLUMN, 4, 200, false);
+        helpers.add(new OnePlusNLayoutHelper(5));
+        adapter.addSection(ItemAdapter.TYPE_ONE_PLUS_N, 5, 180, false);
+        final StaggeredGridLayoutHelper staggered = new StaggeredGridLayoutHelper(2, 8);
+        staggered.setItemCount(200);
+        helpers.add(staggered);
+        adapter.addSection(ItemAdapter.TYPE_STAGGERED, 200, 180, true);
+        helpers.add(new LinearLayoutHelper(8, 120));
+        adapter.addSection(ItemAdapter.TYPE_LINEAR, 120, 160, false);
+        layoutManager.setLayoutHelpers(helpers);
+
+        mRecyclerView.setLayoutManager(layoutManager);
+        mRecyclerView.setItemAnimator(null);
+        mRecyclerView.setAdapter(adapter);
+        for (int type = ItemAdapter.TYPE_LINEAR; type <= ItemAdapter.TYPE_STAGGERED; type++) {
+            mRecyclerView.getRecycledViewPool().setMaxRecycledViews(type, 64);
+        }
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                mScrolled += dy;
+            }
+        });
+        activity.setContentView(mRecyclerView);
+        mProbeLayout = new ProbeLayout(activity);
+        activity.addContentView(mProbeLayout, new ViewGroup.LayoutParams(0, 0));
+        nextFrame();
+    }
+
+    @Test
+    public void scrollWithoutAllocation() {
+        // 预热：滚到底再回到顶部，创建所有视图，各layoutHelper的缓存扩容到需要的大小
+        int warmUp = 0;
+        while (scrollBy(STEP) == STEP) {
+            warmUp++;
+        }
+        while (scrollBy(-STEP) == -STEP) {
+            warmUp++;
+        }
+        scroll(warmUp, false);
+
+        final long thread = Thread.currentThread().getId();
+        final long calibrateStart = mThreadBean.getThreadAllocatedBytes(thread);
+        final long calibrateEnd = mThreadBean.getThreadAllocatedBytes(thread);
+        mOverhead = calibrateEnd - calibrateStart;
+        mAttachCost = measureAttachCost();
+        final int allocatingSteps = scroll(MEASURED_STEPS, true);
+
+        // 偶尔有几步被GC、弱引用的清理等运行时的开销计入，布局中的分配会出现在每一步
+        assertTrue("steps allocating while scrolling: " + allocatingSteps + " of " + MEASURED_STEPS
+                + ", " + mAllocated + " bytes", allocatingSteps <= MEASURED_STEPS / 100);
+    }
+
+    /**
+     * Android 11的View.onAttachedToWindow会为无障碍登记一个弱引用，这是平台每次attach的开销，与布局无关。
+     * 在另一个容器中反复attach和detach同样的视图测出单次的字节数，从滚动的统计中按attach次数扣除
+     *
+     */
+    private long measureAttachCost() {
+        final ItemView probe = new ItemView(mProbeLayout.getContext());
+        probe.setLayoutParams(new ViewGroup.LayoutParams(0, 0));
+        mProbeLayout.attach(probe);
+        mProbeLayout.detach(probe);
+        final long thread = Thread.currentThread().getId();
+        final long start = mThreadBean.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ATTACH_PROBES; i++) {
+            mProbeLayout.attach(probe);
+            mProbeLayout.detach(probe);
+        }
+        return (mThreadBean.getThreadAllocatedBytes(thread) - start - mOverhead) / ATTACH_PROBES;
+    }
+
+    /**
+     * 来回滚动steps步，到达两端时换向
+     *
+     * @param measure 是否统计每次scrollBy分配的字节数，扣除读取计数本身和attach的开销后累加到mAllocated
+     * @return 统计时分配了对象的步数
+     */
+    private int scroll(int steps, boolean measure) {
+        final long thread = Thread.currentThread().getId();
+        int allocatingSteps = 0;
+        for (int i = 0; i < steps; i++) {
+            final int attached = mRecyclerView.mAttached;
+            final long start = measure ? mThreadBean.getThreadAllocatedBytes(thread) : 0;
+            final int dy = STEP * mDirection;
+            final int scrolled = scrollBy(dy);
+            if (measure) {
+                final long allocated = mThreadBean.getThreadAllocatedBytes(thread) - start - mOverhead
+                        - (mRecyclerView.mAttached - attached) * mAttachCost;
+                if (allocated > 0) {
+                    allocatingSteps++;
+                    mAllocated += allocated;
+                }
+            }
+            if (scrolled != dy) {
+                mDirection = -mDirection;
+            }
+            nextFrame();
+        }
+        return allocatingSteps;
+    }
+
+    /**
+     * 执行主线程的任务和下一帧的回调。Robolectric的Trace实现记录每个结束的section，队列扩容也会计入分配，每一帧清空
+     */
+    private void nextFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(FRAME_MILLIS));
+        ShadowTrace.reset();
+    }
+
+    /**
+     * @return 实际滚动的距离，到达两端时小于dy
+     */
+    private int scrollBy(int dy) {
+        mScrolled = 0;
+        mRecyclerView.scrollBy(0, dy);
+        return mScrolled;
+    }
+
+    /**
+     * 绕开Robolectric中ViewGroup.addView和View.invalidate的影子实现，它们每次调用都会创建反射代理和参数数组，
+     * invalidate还会让Robolectric模拟一次vsync
+     */
+    static class QuietRecyclerView extends RecyclerView {
+
+        /**
+         * 子视图attach的次数
+         */
+        int mAttached;
+
+        QuietRecyclerView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void onChildAttachedToWindow(@NonNull View child) {
+            mAttached++;
+        }
+
+        @Override
+        public void addView(View child, int index) {
+            addViewInLayout(child, index, child.getLayoutParams(), true);
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+
+    /**
+     * 与{@link QuietRecyclerView}相同的方式添加和移除子视图
+     */
+    static class ProbeLayout extends ViewGroup {
+
+        ProbeLayout(Context context) {
+            super(context);
+        }
+
+        void attach(View child) {
+            addViewInLayout(child, -1, child.getLayoutParams(), true);
+        }
+
+        void detach(View child) {
+            removeViewInLayout(child);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        }
+    }
+
+    /**
+     * 不触发Robolectric中View.onLayout的影子实现，它每次调用都会创建反射代理
+     */
+    static class ItemView extends View {
+
+        ItemView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        }
+    }
+
+    static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        static final int TYPE_LINEAR = 1;
+
+        static final int TYPE_GRID = 2;
+
+        static final int TYPE_COLUMN = 3;
+
+        static final int TYPE_ONE_PLUS_N = 4;
+
+        static final int TYPE_STAGGERED = 5;
+
+        private int[] mTypes = new int[0];
+
+        private int[] mHeights = new int[0];
+
+        /**
+         * 在设置给RecyclerView之前添加分段
+         */
+        void addSection(int type, int count, int height, boolean varied) {
+            final int start = mTypes.length;
+            final int[] types = new int[start + count];
+            final int[] heights = new int[start + count];
+            System.arraycopy(mTypes, 0, types, 0, start);
+            System.arraycopy(mHeights, 0, heights, 0, start);
+            for (int i = 0; i < count; i++) {
+                types[start + i] = type;
+                heights[start + i] = varied ? height + (i * 7 % 5) * height / 4 : height;
+            }
+            mTypes = types;
+            mHeights = heights;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            final ItemView view = new ItemView(parent.getContext());
+            view.setLayoutParams(new VirtualLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            holder.itemView.getLayoutParams().height = mHeights[position];
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return mTypes[position];
+        }
+
+        @Override
+        public int getItemCount() {
+            return mTypes.length;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ashlikun.vlayout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ScrollView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.layout.LinearLayoutHelper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * 外部ScrollView中的虚拟化布局：估算的位置和实际不一致时，外部容器的同步滚动不能发生在布局过程中
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w360dp-h640dp-xxhdpi")
+public class VirtualNestedScrollTest {
+
+    private static final int ITEM_COUNT = 200;
+
+    private static final int TALL_COUNT = 20;
+
+    private static final int TALL_HEIGHT = 700;
+
+    private static final int ITEM_HEIGHT = 300;
+
+    private static final int CONTENT_HEIGHT = TALL_COUNT * TALL_HEIGHT + (ITEM_COUNT - TALL_COUNT) * ITEM_HEIGHT;
+
+    private static final int STEP = 400;
+
+    @Test
+    public void syncsAncestorOutsideLayout() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        final RecordingScrollView scrollView = new RecordingScrollView(activity);
+        final RecyclerView recyclerView = new FixedHeightRecyclerView(activity, CONTENT_HEIGHT);
+        scrollView.mRecyclerView = recyclerView;
+        final VirtualLayoutManager layoutManager = new VirtualLayoutManager(activity);
+        layoutManager.setVirtualizedNestedScrolling(true);
+        layoutManager.setLayoutHelpers(Collections.singletonList(new LinearLayoutHelper()));
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setItemAnimator(null);
+        recyclerView.setAdapter(new ItemAdapter());
+        scrollView.addView(recyclerView, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+        activity.setContentView(scrollView);
+        idle();
+
+        // 直接跳到估算的中间位置，再逐步滚回顶部，第一项的实际位置和估算的不一致
+        scrollTo(scrollView, recyclerView.getHeight() / 2);
+        while (scrollView.getScrollY() > 0) {
+            scrollTo(scrollView, Math.max(0, scrollView.getScrollY() - STEP));
+        }
+
+        assertTrue("first chunk never corrected", scrollView.mCorrections > 0);
+        assertEquals("ancestor scrolled inside layout", 0, scrollView.mScrolledInLayout);
+    }
+
+    /**
+     * Robolectric的窗口没有surface，不分发OnScrollChangedListener，这里代替它请求补充布局
+     */
+    private static void scrollTo(RecordingScrollView scrollView, int y) {
+        scrollView.scrollTo(0, y);
+        scrollView.mRecyclerView.requestLayout();
+        idle();
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16));
+    }
+
+    /**
+     * ScrollView按UNSPECIFIED测量子视图，这里固定为内容的实际高度
+     */
+    static class FixedHeightRecyclerView extends RecyclerView {
+
+        private final int mHeight;
+
+        FixedHeightRecyclerView(Context context, int height) {
+            super(context);
+            mHeight = height;
+        }
+
+        @Override
+        protected void onMeasure(int widthSpec, int heightSpec) {
+            super.onMeasure(widthSpec, MeasureSpec.makeMeasureSpec(mHeight, MeasureSpec.EXACTLY));
+        }
+    }
+
+    /**
+     * 记录VirtualLayoutManager的同步滚动，测试本身只调用scrollTo
+     */
+    static class RecordingScrollView extends ScrollView {
+
+        RecyclerView mRecyclerView;
+
+        int mCorrections;
+
+        int mScrolledInLayout;
+
+        RecordingScrollView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void scrollBy(int x, int y) {
+            mCorrections++;
+            if (mRecyclerView.isComputingLayout()) {
+                mScrolledInLayout++;
+            }
+            super.scrollBy(x, y);
+        }
+    }
+
+    static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            final View view = new View(parent.getContext());
+            view.setLayoutParams(new VirtualLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            // 前面的项更高，从中间按平均高度估算的位置与实际不一致
+            holder.itemView.getLayoutParams().height = position < TALL_COUNT ? TALL_HEIGHT : ITEM_HEIGHT;
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}
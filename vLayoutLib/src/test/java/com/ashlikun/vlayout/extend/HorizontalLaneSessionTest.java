@@ -0,0 +1,113 @@
+package com.ashlikun.vlayout.extend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+import com.ashlikun.vlayout.layout.HorizontalLaneLayoutHelper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 横向的一行夹在两段列表中间，垂直滚动让它依次越过可见区域的下边和上边，
+ * 从行内的卡片继续填充时不能再添加已经在屏幕上的卡片；卡片高度不同，先滚出的卡片不能单独回收留下空缺。
+ * 行内卡片的上边对齐，下一段不与行重叠
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HorizontalLaneSessionTest {
+
+    private static final int STEP = 97;
+
+    private static final int WIDTH = 1080;
+
+    private static final int CARD_WIDTH = 300;
+
+    private static final int CARD_HEIGHT = 400;
+
+    private static final int LINEAR_COUNT = 20;
+
+    private static final int LANE_COUNT = 30;
+
+    @Test
+    public void laneCrossesBothEdgesWithoutDuplicates() {
+        final RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.getApplication());
+        final VirtualLayoutManager layoutManager = new VirtualLayoutManager(recyclerView.getContext());
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setItemAnimator(null);
+        final DelegateAdapter adapter = new DelegateAdapter(layoutManager);
+        recyclerView.setAdapter(adapter);
+        adapter.setAdapters(Arrays.<DelegateAdapter.Adapter>asList(
+                new SectionAdapter(SectionAdapter.LINEAR, 1, LINEAR_COUNT, 150),
+                new SectionAdapter(SectionAdapter.LANE, CARD_WIDTH, LANE_COUNT, CARD_HEIGHT),
+                new SectionAdapter(SectionAdapter.LINEAR, 1, LINEAR_COUNT, 150)));
+
+        final LayoutSessionRecorder recorder = new LayoutSessionRecorder(recyclerView, WIDTH, 1920);
+        recorder.setStepListener((step, snapshot) -> checkLane(step, snapshot));
+        recorder.layout();
+        // 从行的中间开始，两侧都有没添加的卡片
+        ((HorizontalLaneLayoutHelper) layoutManager.getLayoutHelpers().get(1)).scrollToIndex(10, -CARD_WIDTH / 3);
+        recorder.layout();
+
+        // 行从下边滚入，再从上边滚出，然后反向
+        final int distance = LINEAR_COUNT * 150 + CARD_HEIGHT * 3;
+        for (int scrolled = 0; scrolled < distance; scrolled += STEP) {
+            recorder.scrollBy(STEP);
+        }
+        for (int scrolled = 0; scrolled < distance; scrolled += STEP) {
+            recorder.scrollBy(-STEP);
+        }
+    }
+
+    private static void checkLane(int step, LayoutSnapshot snapshot) {
+        final Set<Integer> positions = new HashSet<>();
+        int laneTop = Integer.MIN_VALUE;
+        int laneBottom = Integer.MIN_VALUE;
+        int afterLaneTop = Integer.MIN_VALUE;
+        int laneLeft = Integer.MAX_VALUE;
+        int laneRight = Integer.MIN_VALUE;
+        int lastCard = -1;
+        for (String line : snapshot.toString().split("\n")) {
+            final String[] args = line.split(" ");
+            if (!args[0].equals("C")) {
+                continue;
+            }
+            final int position = Integer.parseInt(args[1]);
+            assertTrue("step " + step + " duplicated position: " + line, positions.add(position));
+            final int top = Integer.parseInt(args[3]);
+            final int bottom = Integer.parseInt(args[5]);
+            if (position >= LINEAR_COUNT && position < LINEAR_COUNT + LANE_COUNT) {
+                if (laneTop == Integer.MIN_VALUE) {
+                    laneTop = top;
+                }
+                assertEquals("step " + step + " lane top: " + line, laneTop, top);
+                if (lastCard >= 0) {
+                    assertEquals("step " + step + " lane hole before: " + line, lastCard + 1, position);
+                }
+                lastCard = position;
+                laneBottom = Math.max(laneBottom, bottom);
+                laneLeft = Math.min(laneLeft, Integer.parseInt(args[2]));
+                laneRight = Math.max(laneRight, Integer.parseInt(args[4]));
+            } else if (position == LINEAR_COUNT + LANE_COUNT) {
+                afterLaneTop = top;
+            }
+        }
+        if (laneTop != Integer.MIN_VALUE) {
+            assertTrue("step " + step + " lane does not fill the width: " + laneLeft + ".." + laneRight,
+                    laneLeft <= 0 && laneRight >= WIDTH);
+        }
+        if (laneTop != Integer.MIN_VALUE && afterLaneTop != Integer.MIN_VALUE) {
+            // 行高取测量过的卡片中最高的，最高的卡片不一定还在屏幕上
+            assertTrue("step " + step + " section after the lane overlaps it", afterLaneTop >= laneBottom);
+        }
+    }
+}
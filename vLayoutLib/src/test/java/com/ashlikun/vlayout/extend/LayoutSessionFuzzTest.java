@@ -0,0 +1,100 @@
+package com.ashlikun.vlayout.extend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 固定种子的随机会话：滚动、跳转、增删数据和旋转，每一步检查布局不变量，同一个种子运行两次结果一致
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LayoutSessionFuzzTest {
+
+    private static final long SEED = 0x5eed_2026L;
+
+    /**
+     * 默认200步，构建时用-PlargeFuzz传入十万步
+     */
+    private static final int STEPS = Integer.getInteger("vlayout.fuzzSteps", 200);
+
+    @Test
+    public void seededSessionKeepsInvariantsAndRepeats() {
+        final long[] first = run(SEED);
+        final long[] second = run(SEED);
+        assertEquals(STEPS + 1, first.length);
+        assertEquals("first different step", -1, LayoutSessionRecorder.compare(first, second));
+    }
+
+    private long[] run(long seed) {
+        final RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.getApplication());
+        final VirtualLayoutManager layoutManager = new VirtualLayoutManager(recyclerView.getContext());
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setItemAnimator(null);
+        final DelegateAdapter adapter = new DelegateAdapter(layoutManager);
+        recyclerView.setAdapter(adapter);
+        final List<SectionAdapter> sections = Arrays.asList(
+                new SectionAdapter(SectionAdapter.LINEAR, 1, 40, 150),
+                new SectionAdapter(SectionAdapter.GRID, 3, 60, 300),
+                new SectionAdapter(SectionAdapter.STAGGERED, 2, 60, 200),
+                new SectionAdapter(SectionAdapter.LINEAR, 1, 40, 150));
+        adapter.setAdapters(Arrays.<DelegateAdapter.Adapter>asList(sections.toArray(new DelegateAdapter.Adapter[0])));
+
+        final LayoutSessionRecorder recorder = new LayoutSessionRecorder(recyclerView, 1080, 1920);
+        recorder.setStepListener((step, snapshot) ->
+                checkInvariants(step, snapshot, adapter.getItemCount(), recorder.getWidth(), recorder.getHeight()));
+        recorder.layout();
+        recorder.runRandom(seed, STEPS, random -> {
+            final SectionAdapter section = sections.get(random.nextInt(sections.size()));
+            final int count = section.getItemCount();
+            // 至少保留一项，分段的范围保持连续
+            if (count > 1 && random.nextBoolean()) {
+                final int removed = 1 + random.nextInt(Math.min(3, count - 1));
+                section.remove(random.nextInt(count - removed + 1), removed);
+            } else {
+                section.insert(random.nextInt(count + 1), 1 + random.nextInt(3));
+            }
+        });
+        assertEquals(STEPS + 1, recorder.getStepCount());
+        return recorder.getChecksums();
+    }
+
+    /**
+     * layoutHelper的范围首尾相接覆盖全部数据，子视图的位置不重复且有效，可见区域内至少有一个子视图
+     */
+    private static void checkInvariants(int step, @NonNull LayoutSnapshot snapshot, int itemCount, int width, int height) {
+        int nextLower = 0;
+        final Set<Integer> positions = new HashSet<>();
+        for (String line : snapshot.toString().split("\n")) {
+            final String[] args = line.split(" ");
+            if (args[0].equals("H")) {
+                assertEquals("step " + step + " range start: " + line, nextLower, Integer.parseInt(args[2]));
+                nextLower = Integer.parseInt(args[3]) + 1;
+            } else if (args[0].equals("C")) {
+                final int position = Integer.parseInt(args[1]);
+                if (position < 0 || position >= itemCount) {
+                    fail("step " + step + " position out of range: " + line);
+                }
+                assertTrue("step " + step + " duplicated position: " + line, positions.add(position));
+            }
+        }
+        assertEquals("step " + step + " range end", itemCount, nextLower);
+        final String visible = snapshot.crop(width, height).toString();
+        assertTrue("step " + step + " nothing visible", visible.contains("\nC ") || visible.startsWith("C "));
+    }
+}
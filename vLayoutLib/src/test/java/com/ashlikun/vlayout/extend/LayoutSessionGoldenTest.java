@@ -0,0 +1,100 @@
+package com.ashlikun.vlayout.extend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按固定脚本滚动和旋转，每一步可见区域内的布局与golden_session.txt一致。
+ * <p>
+ * 基准文件由这个测试在Robolectric中运行生成，可见区域外的视图与回收时机有关，比较前裁掉。
+ * 布局有意改变时设置系统属性vlayout.goldenOutput为输出路径重新生成
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LayoutSessionGoldenTest {
+
+    @Test
+    public void scriptedSessionMatchesGolden() throws IOException {
+        final RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.getApplication());
+        final VirtualLayoutManager layoutManager = new VirtualLayoutManager(recyclerView.getContext());
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setItemAnimator(null);
+        final DelegateAdapter adapter = new DelegateAdapter(layoutManager);
+        recyclerView.setAdapter(adapter);
+        adapter.setAdapters(Arrays.<DelegateAdapter.Adapter>asList(
+                new SectionAdapter(SectionAdapter.LINEAR, 1, 30, 150),
+                new SectionAdapter(SectionAdapter.GRID, 3, 60, 300),
+                new SectionAdapter(SectionAdapter.LINEAR, 1, 30, 150)));
+
+        final LayoutSessionRecorder recorder = new LayoutSessionRecorder(recyclerView, 1080, 1920);
+        final StringBuilder actual = new StringBuilder();
+        recorder.setStepListener((step, snapshot) -> actual.append("S ").append(step)
+                .append(' ').append(recorder.getWidth()).append(' ').append(recorder.getHeight()).append('\n')
+                .append(snapshot.crop(recorder.getWidth(), recorder.getHeight())));
+
+        recorder.layout();
+        recorder.scrollBy(1000);
+        recorder.scrollBy(2500);
+        recorder.scrollBy(3000);
+        recorder.scrollBy(-1200);
+        recorder.rotate();
+        recorder.scrollBy(4700);
+        recorder.rotate();
+        recorder.scrollBy(-777);
+        assertEquals(9, recorder.getStepCount());
+
+        final String output = System.getProperty("vlayout.goldenOutput");
+        if (output != null) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)) {
+                writer.write(actual.toString());
+            }
+        }
+        final LayoutSnapshot expected = LayoutSnapshot.parse(readGolden("golden_session.txt"));
+        assertNull(expected.diff(LayoutSnapshot.parse(actual.toString())));
+    }
+
+    @Test
+    public void cropKeepsHelpersAndVisibleChildren() {
+        final LayoutSnapshot snapshot = LayoutSnapshot.parse("H LinearLayoutHelper 0 9\nC 0 0 0 1080 150\n");
+        assertEquals(snapshot, LayoutSnapshot.parse(snapshot.toString()));
+        assertNotNull(snapshot.diff(LayoutSnapshot.parse("H LinearLayoutHelper 0 9\nC 0 0 1 1080 150\n")));
+        final List<String> lines = Arrays.asList(snapshot.crop(1080, 100).toString().split("\n"));
+        assertEquals(Arrays.asList("H LinearLayoutHelper 0 9", "C 0 0 0 1080 150"), lines);
+        assertEquals("H LinearLayoutHelper 0 9\n", LayoutSnapshot.parse("H LinearLayoutHelper 0 9\nC 0 0 -150 1080 0\n")
+                .crop(1080, 100).toString());
+    }
+
+    private String readGolden(String name) throws IOException {
+        final InputStream stream = getClass().getClassLoader().getResourceAsStream(name);
+        assertNotNull(name, stream);
+        final StringBuilder builder = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.ashlikun.vlayout.extend;
+
+import android.app.Activity;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.LayoutHelper;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 按脚本驱动{@link VirtualLayoutManager}并在每一步后记录{@link LayoutSnapshot}，用于验证重构前后布局是否等价。
+ * RecyclerView添加到一个空Activity中，LayoutManager在attach后才能拿到RecyclerView；
+ * 每一步都用固定尺寸同步完成measure和layout，主线程Looper不执行，不依赖窗口的遍历和绘制。
+ * 在Robolectric中运行，此类只能在主线程使用。
+ * <p>
+ * 同一个脚本或同一个种子在重构前后各运行一次，用{@link #compare(long[], long[])}比较校验和，
+ * 不一致时再用{@link #setKeepSnapshots(boolean)}保留完整快照定位第一处差异。
+ */
+class LayoutSessionRecorder {
+
+    /**
+     * 随机会话中修改适配器，由调用方实现，修改后按需调用notifyXxx
+     */
+    interface Mutator {
+
+        void mutate(@NonNull Random random);
+    }
+
+    /**
+     * 每一步布局并记录后回调，用于逐步检查不变量
+     */
+    interface StepListener {
+
+        void onStep(int step, @NonNull LayoutSnapshot snapshot);
+    }
+
+    private final RecyclerView mRecyclerView;
+
+    private int mWidth;
+
+    private int mHeight;
+
+    private boolean mKeepSnapshots = false;
+
+    private final List<LayoutSnapshot> mSnapshots = new ArrayList<>();
+
+    private long[] mChecksums = new long[64];
+
+    private int mStepCount = 0;
+
+    private StepListener mStepListener;
+
+    LayoutSessionRecorder(@NonNull RecyclerView recyclerView, int width, int height) {
+        mRecyclerView = recyclerView;
+        mWidth = width;
+        mHeight = height;
+        if (!recyclerView.isAttachedToWindow()) {
+            Robolectric.buildActivity(Activity.class).setup().get().setContentView(recyclerView);
+        }
+    }
+
+    /**
+     * 大量步骤时默认只保存校验和
+     */
+    void setKeepSnapshots(boolean keepSnapshots) {
+        mKeepSnapshots = keepSnapshots;
+    }
+
+    void setStepListener(StepListener stepListener) {
+        mStepListener = stepListener;
+    }
+
+    /**
+     * @return 当前的宽度，旋转后交换
+     */
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    void setLayoutHelpers(@NonNull List<LayoutHelper> helpers) {
+        getLayoutManager().setLayoutHelpers(helpers);
+        layout();
+    }
+
+    /**
+     * 同步完成一次布局并记录
+     */
+    LayoutSnapshot layout() {
+        measureAndLayout();
+        return record();
+    }
+
+    LayoutSnapshot scrollBy(int dy) {
+        if (getLayoutManager().getOrientation() == VirtualLayoutManager.VERTICAL) {
+            mRecyclerView.scrollBy(0, dy);
+        } else {
+            mRecyclerView.scrollBy(dy, 0);
+        }
+        return layout();
+    }
+
+    LayoutSnapshot scrollToPosition(int position) {
+        mRecyclerView.scrollToPosition(position);
+        return layout();
+    }
+
+    /**
+     * 修改适配器后布局，动画立即结束，记录的是动画结束后的状态
+     */
+    LayoutSnapshot mutate(@NonNull Runnable mutation) {
+        mutation.run();
+        measureAndLayout();
+        final RecyclerView.ItemAnimator animator = mRecyclerView.getItemAnimator();
+        if (animator != null) {
+            animator.runPendingAnimations();
+            animator.endAnimations();
+        }
+        return record();
+    }
+
+    /**
+     * 交换宽高，模拟旋转屏幕
+     */
+    LayoutSnapshot rotate() {
+        final int width = mWidth;
+        mWidth = mHeight;
+        mHeight = width;
+        return layout();
+    }
+
+    /**
+     * 随机执行滚动、跳转、修改和旋转，相同的种子和相同的初始数据得到相同的步骤
+     *
+     * @param seed    随机种子
+     * @param steps   步数
+     * @param mutator 修改适配器，为空时只滚动
+     */
+    void runRandom(long seed, int steps, Mutator mutator) {
+        final Random random = new Random(seed);
+        for (int i = 0; i < steps; i++) {
+            final int itemCount = getLayoutManager().getItemCount();
+            final int action = random.nextInt(100);
+            if (action < 70 || (mutator == null && action < 95)) {
+                scrollBy((int) (random.nextGaussian() * mHeight));
+            } else if (action < 80 && itemCount > 0) {
+                scrollToPosition(random.nextInt(itemCount));
+            } else if (action < 98 && mutator != null) {
+                mutate(() -> mutator.mutate(random));
+            } else {
+                rotate();
+            }
+        }
+    }
+
+    /**
+     * @return 每一步的校验和
+     */
+    @NonNull
+    long[] getChecksums() {
+        final long[] checksums = new long[mStepCount];
+        System.arraycopy(mChecksums, 0, checksums, 0, mStepCount);
+        return checksums;
+    }
+
+    /**
+     * 只有{@link #setKeepSnapshots(boolean)}为true时才有内容
+     */
+    @NonNull
+    List<LayoutSnapshot> getSnapshots() {
+        return mSnapshots;
+    }
+
+    int getStepCount() {
+        return mStepCount;
+    }
+
+    void reset() {
+        mSnapshots.clear();
+        mStepCount = 0;
+    }
+
+    /**
+     * @return 第一个不同的步骤，完全一致时为-1
+     */
+    static int compare(@NonNull long[] expected, @NonNull long[] actual) {
+        final int size = Math.min(expected.length, actual.length);
+        for (int i = 0; i < size; i++) {
+            if (expected[i] != actual[i]) {
+                return i;
+            }
+        }
+        return expected.length == actual.length ? -1 : size;
+    }
+
+    private void measureAndLayout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(mWidth, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(mHeight, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, mWidth, mHeight);
+    }
+
+    private LayoutSnapshot record() {
+        final LayoutSnapshot snapshot = LayoutSnapshot.capture(mRecyclerView);
+        if (mStepCount == mChecksums.length) {
+            long[] checksums = new long[mStepCount * 2];
+            System.arraycopy(mChecksums, 0, checksums, 0, mStepCount);
+            mChecksums = checksums;
+        }
+        mChecksums[mStepCount++] = snapshot.getChecksum();
+        if (mKeepSnapshots) {
+            mSnapshots.add(snapshot);
+        }
+        if (mStepListener != null) {
+            mStepListener.onStep(mStepCount - 1, snapshot);
+        }
+        return snapshot;
+    }
+
+    private VirtualLayoutManager getLayoutManager() {
+        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (!(layoutManager instanceof VirtualLayoutManager)) {
+            throw new IllegalStateException("LayoutSessionRecorder requires a VirtualLayoutManager");
+        }
+        return (VirtualLayoutManager) layoutManager;
+    }
+}
@@ -0,0 +1,183 @@
+package com.ashlikun.vlayout.extend;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.LayoutHelper;
+import com.ashlikun.vlayout.Range;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 某一时刻的布局快照：layoutHelper的范围、每个子视图的位置和边界、背景视图的区域。
+ * 编码为紧凑的文本，每行一条记录，用于在重构前后比较布局是否等价：
+ * <pre>
+ * H 类名 lower upper
+ * C 位置 left top right bottom   （适配器的子视图）
+ * B left top right bottom        （背景等没有位置的视图）
+ * </pre>
+ * 子视图按RecyclerView中的顺序记录，浮动视图和普通子视图一样带位置。
+ */
+class LayoutSnapshot {
+
+    private final String mText;
+
+    private final long mChecksum;
+
+    private LayoutSnapshot(String text) {
+        mText = text;
+        mChecksum = checksum(text);
+    }
+
+    /**
+     * 在主线程调用，记录当前已经布局好的状态
+     */
+    @NonNull
+    static LayoutSnapshot capture(@NonNull RecyclerView recyclerView) {
+        final StringBuilder builder = new StringBuilder(256);
+        final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof VirtualLayoutManager) {
+            List<LayoutHelper> helpers = ((VirtualLayoutManager) layoutManager).getLayoutHelpers();
+            for (int i = 0, size = helpers.size(); i < size; i++) {
+                LayoutHelper helper = helpers.get(i);
+                Range<Integer> range = helper.getRange();
+                builder.append("H ").append(helper.getClass().getSimpleName())
+                        .append(' ').append(range.getLower())
+                        .append(' ').append(range.getUpper()).append('\n');
+            }
+        }
+        // 包括隐藏的浮动视图和背景视图
+        for (int i = 0, count = recyclerView.getChildCount(); i < count; i++) {
+            View child = recyclerView.getChildAt(i);
+            // 背景视图的ViewHolder没有位置
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+            if (holder != null && holder.getLayoutPosition() != RecyclerView.NO_POSITION) {
+                builder.append("C ").append(holder.getLayoutPosition()).append(' ');
+            } else {
+                builder.append("B ");
+            }
+            builder.append(child.getLeft()).append(' ').append(child.getTop())
+                    .append(' ').append(child.getRight()).append(' ').append(child.getBottom()).append('\n');
+        }
+        return new LayoutSnapshot(builder.toString());
+    }
+
+    /**
+     * 从{@link #toString()}的结果还原，用于读取保存的基准
+     */
+    @NonNull
+    static LayoutSnapshot parse(@NonNull String text) {
+        return new LayoutSnapshot(text);
+    }
+
+    /**
+     * 只保留layoutHelper和与可见区域相交的视图，子视图按位置排序。
+     * 可见区域外预布局和还没回收的视图取决于回收时机，和布局结果无关，比较基准时去掉
+     */
+    @NonNull
+    LayoutSnapshot crop(int width, int height) {
+        final StringBuilder builder = new StringBuilder(mText.length());
+        final List<int[]> children = new ArrayList<>();
+        final List<String> backgrounds = new ArrayList<>();
+        for (String line : mText.split("\n")) {
+            if (line.startsWith("H ")) {
+                builder.append(line).append('\n');
+                continue;
+            }
+            final String[] args = line.split(" ");
+            final boolean child = args[0].equals("C");
+            if (!child && !args[0].equals("B")) {
+                continue;
+            }
+            final int base = child ? 2 : 1;
+            final int left = Integer.parseInt(args[base]);
+            final int top = Integer.parseInt(args[base + 1]);
+            final int right = Integer.parseInt(args[base + 2]);
+            final int bottom = Integer.parseInt(args[base + 3]);
+            if (right <= 0 || left >= width || bottom <= 0 || top >= height) {
+                continue;
+            }
+            if (child) {
+                children.add(new int[]{Integer.parseInt(args[1]), left, top, right, bottom});
+            } else {
+                backgrounds.add(line);
+            }
+        }
+        Collections.sort(children, (a, b) -> Integer.compare(a[0], b[0]));
+        for (int[] child : children) {
+            builder.append("C ").append(child[0]).append(' ').append(child[1]).append(' ').append(child[2])
+                    .append(' ').append(child[3]).append(' ').append(child[4]).append('\n');
+        }
+        for (String line : backgrounds) {
+            builder.append(line).append('\n');
+        }
+        return new LayoutSnapshot(builder.toString());
+    }
+
+    /**
+     * @return 文本的64位校验和，大量步骤时只保存校验和
+     */
+    long getChecksum() {
+        return mChecksum;
+    }
+
+    /**
+     * @return 第一处不同的描述，没有不同时为空
+     */
+    @Nullable
+    String diff(@NonNull LayoutSnapshot other) {
+        if (mChecksum == other.mChecksum && mText.equals(other.mText)) {
+            return null;
+        }
+        final String[] lines = mText.split("\n");
+        final String[] otherLines = other.mText.split("\n");
+        final int size = Math.min(lines.length, otherLines.length);
+        for (int i = 0; i < size; i++) {
+            if (!lines[i].equals(otherLines[i])) {
+                return "line " + i + ": expected [" + lines[i] + "] but was [" + otherLines[i] + "]";
+            }
+        }
+        return "line count: expected " + lines.length + " but was " + otherLines.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LayoutSnapshot)) {
+            return false;
+        }
+        LayoutSnapshot that = (LayoutSnapshot) o;
+        return mChecksum == that.mChecksum && mText.equals(that.mText);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (mChecksum ^ (mChecksum >>> 32));
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mText;
+    }
+
+    /**
+     * FNV-1a
+     */
+    private static long checksum(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
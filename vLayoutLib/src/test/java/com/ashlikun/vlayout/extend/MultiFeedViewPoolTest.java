@@ -0,0 +1,156 @@
+package com.ashlikun.vlayout.extend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+
+/**
+ * 两个列表中同一个子适配器类的下标不同，编码后的类型不同，仍然通过逻辑类型共享缓存
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MultiFeedViewPoolTest {
+
+    private static final int ITEM_HEIGHT = 150;
+
+    private static final int ITEM_COUNT = 60;
+
+    @Test
+    public void sharesHoldersAcrossAdapterIndices() {
+        final MultiFeedViewPool pool = new MultiFeedViewPool();
+        final Feed first = new Feed(pool, "first", new SectionAdapter(SectionAdapter.LINEAR, 1, ITEM_COUNT, ITEM_HEIGHT));
+        first.mRecorder.layout();
+        first.mRecorder.scrollBy(ITEM_HEIGHT * ITEM_COUNT);
+        final int parked = pool.size();
+        assertTrue("nothing recycled", parked > 0);
+
+        // 前面多一个其他类的分段，同一个子适配器类的下标变为1
+        final Feed second = new Feed(pool, "second", new HeaderAdapter(),
+                new SectionAdapter(SectionAdapter.LINEAR, 1, ITEM_COUNT, ITEM_HEIGHT));
+        pool.setActiveHost("second");
+        second.mRecorder.layout();
+
+        final int children = second.mRecyclerView.getChildCount();
+        assertTrue("created " + second.mPolicy.getCreatedCount() + " for " + children + " children",
+                second.mPolicy.getCreatedCount() < children);
+        for (int i = 0; i < children; i++) {
+            final View child = second.mRecyclerView.getChildAt(i);
+            final RecyclerView.ViewHolder holder = second.mRecyclerView.getChildViewHolder(child);
+            assertEquals("view type of position " + holder.getLayoutPosition(),
+                    second.mAdapter.getItemViewType(holder.getLayoutPosition()), holder.getItemViewType());
+        }
+    }
+
+    @Test
+    public void handsCachedHoldersToActiveHost() {
+        final MultiFeedViewPool pool = new MultiFeedViewPool();
+        final Feed first = new Feed(pool, "first", new SectionAdapter(SectionAdapter.LINEAR, 1, ITEM_COUNT, ITEM_HEIGHT));
+        first.mRecorder.layout();
+        first.mRecorder.scrollBy(ITEM_HEIGHT * 4);
+        final MultiFeedViewPool.HostPool secondHost = pool.obtainHostPool("second");
+        assertEquals(0, secondHost.getHostCount());
+
+        // 第一个列表RecyclerView缓存中的ViewHolder放回共享池，归属于新激活的列表
+        pool.setActiveHost("second");
+        assertTrue("nothing handed off", secondHost.getHostCount() > 0);
+    }
+
+    @Test
+    public void limitsEstimatedMemoryPerHost() {
+        final MultiFeedViewPool pool = new MultiFeedViewPool();
+        final Feed first = new Feed(pool, "first", new SectionAdapter(SectionAdapter.LINEAR, 1, ITEM_COUNT, ITEM_HEIGHT));
+        first.mRecorder.layout();
+        final View child = first.mRecyclerView.getChildAt(0);
+        final long quota = 3 * MultiFeedViewPool.AREA_ESTIMATOR.estimate(first.mRecyclerView.getChildViewHolder(child));
+        pool.setHostMemoryQuota(quota);
+        // 移除适配器时所有子视图一起回收
+        first.mRecyclerView.setAdapter(null);
+
+        final MultiFeedViewPool.HostPool host = pool.obtainHostPool("first");
+        assertEquals(3, host.getHostCount());
+        assertEquals(quota, host.getHostBytes());
+        assertEquals(quota, pool.getBytes());
+    }
+
+    @Test
+    public void trimsByLevelAndKeepsActiveHost() {
+        final MultiFeedViewPool pool = new MultiFeedViewPool();
+        final Feed first = new Feed(pool, "first", new SectionAdapter(SectionAdapter.LINEAR, 1, ITEM_COUNT, ITEM_HEIGHT));
+        final Feed second = new Feed(pool, "second", new SectionAdapter(SectionAdapter.LINEAR, 1, ITEM_COUNT, ITEM_HEIGHT));
+        first.mRecyclerView.getRecycledViewPool().setMaxRecycledViews(first.mAdapter.getItemViewType(0), 64);
+        first.mRecorder.layout();
+        second.mRecorder.layout();
+        first.mRecyclerView.setAdapter(null);
+        pool.setActiveHost("second");
+        second.mRecyclerView.setAdapter(null);
+        final MultiFeedViewPool.HostPool firstHost = pool.obtainHostPool("first");
+        final MultiFeedViewPool.HostPool secondHost = pool.obtainHostPool("second");
+        final int firstCount = firstHost.getHostCount();
+        final int secondCount = secondHost.getHostCount();
+        final int total = firstCount + secondCount;
+        assertTrue(firstCount > 0 && secondCount > 0);
+
+        // 切到后台只销毁一半，先销毁不是激活的列表放入的
+        final int destroyed = secondHost.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(total - total / 2, destroyed);
+        assertEquals(total / 2, pool.size());
+        assertEquals(Math.max(0, firstCount - destroyed), firstHost.getHostCount());
+        assertEquals(secondCount - Math.max(0, destroyed - firstCount), secondHost.getHostCount());
+        assertEquals(firstHost.getHostBytes() + secondHost.getHostBytes(), pool.getBytes());
+
+        // 其他列表收到同一次通知时不再处理
+        assertEquals(0, firstHost.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+
+        assertEquals(total / 2, firstHost.trimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getBytes());
+        assertEquals(0, firstHost.getHostCount() + secondHost.getHostCount());
+    }
+
+    /**
+     * 与{@link SectionAdapter}不同的子适配器类
+     */
+    static class HeaderAdapter extends SectionAdapter {
+
+        HeaderAdapter() {
+            super(LINEAR, 1, 1, ITEM_HEIGHT * 2);
+        }
+    }
+
+    private static class Feed {
+
+        final RecyclerView mRecyclerView;
+
+        final DelegateAdapter mAdapter;
+
+        final LayoutSpacePolicy mPolicy = new LayoutSpacePolicy();
+
+        final LayoutSessionRecorder mRecorder;
+
+        Feed(MultiFeedViewPool pool, String key, DelegateAdapter.Adapter... adapters) {
+            mRecyclerView = new RecyclerView(RuntimeEnvironment.getApplication());
+            final VirtualLayoutManager layoutManager = new VirtualLayoutManager(mRecyclerView.getContext());
+            layoutManager.setLayoutSpacePolicy(mPolicy);
+            mRecyclerView.setLayoutManager(layoutManager);
+            mRecyclerView.setItemAnimator(null);
+            mAdapter = new DelegateAdapter(layoutManager);
+            mRecyclerView.setAdapter(mAdapter);
+            mAdapter.setAdapters(Arrays.asList(adapters));
+            pool.attachHost(key, mRecyclerView);
+            mRecorder = new LayoutSessionRecorder(mRecyclerView, 1080, 1920);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ashlikun.vlayout.extend;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ashlikun.vlayout.DelegateAdapter;
+import com.ashlikun.vlayout.LayoutHelper;
+import com.ashlikun.vlayout.VirtualLayoutManager;
+import com.ashlikun.vlayout.layout.GridLayoutHelper;
+import com.ashlikun.vlayout.layout.HorizontalLaneLayoutHelper;
+import com.ashlikun.vlayout.layout.LinearLayoutHelper;
+import com.ashlikun.vlayout.layout.StaggeredGridLayoutHelper;
+
+/**
+ * 会话测试用的分段，视图高度只由位置决定，结果可以重复
+ */
+class SectionAdapter extends DelegateAdapter.Adapter<RecyclerView.ViewHolder> {
+
+    static final String LINEAR = "linear";
+
+    static final String GRID = "grid";
+
+    static final String STAGGERED = "staggered";
+
+    /**
+     * 横向的一行，spanCount为卡片的宽度
+     */
+    static final String LANE = "lane";
+
+    private final String mType;
+
+    private final int mSpanCount;
+
+    private final int mItemHeight;
+
+    private int mCount;
+
+    SectionAdapter(String type, int spanCount, int count, int itemHeight) {
+        mType = type;
+        mSpanCount = spanCount;
+        mCount = count;
+        mItemHeight = itemHeight;
+    }
+
+    void insert(int index, int count) {
+        mCount += count;
+        notifyItemRangeInserted(index, count);
+    }
+
+    void remove(int index, int count) {
+        mCount -= count;
+        notifyItemRangeRemoved(index, count);
+    }
+
+    @Override
+    public LayoutHelper onCreateLayoutHelper() {
+        switch (mType) {
+            case LINEAR:
+                return new LinearLayoutHelper();
+            case GRID:
+                return new GridLayoutHelper(mSpanCount);
+            case STAGGERED:
+                return new StaggeredGridLayoutHelper(mSpanCount);
+            case LANE:
+                final HorizontalLaneLayoutHelper lane = new HorizontalLaneLayoutHelper();
+                lane.setItemWidth(mSpanCount);
+                return lane;
+            default:
+                throw new IllegalArgumentException("Unknown section type: " + mType);
+        }
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        final View view = new View(parent.getContext());
+        view.setLayoutParams(new VirtualLayoutManager.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mItemHeight));
+        return new RecyclerView.ViewHolder(view) {
+        };
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (STAGGERED.equals(mType) || LANE.equals(mType)) {
+            holder.itemView.getLayoutParams().height = mItemHeight + mItemHeight * (position * 7 % 5) / 4;
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return mCount;
+    }
+}